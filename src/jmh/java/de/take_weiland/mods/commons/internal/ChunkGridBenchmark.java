@@ -0,0 +1,119 @@
+package de.take_weiland.mods.commons.internal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Compares finding the players near a position using the {@link ChunkGrid} used by {@link PlayerGrid} to the
+ * linear scan over all players in the world.</p>
+ *
+ * @author diesieben07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ChunkGridBenchmark {
+
+	private static final int QUERIES = 1024;
+	private static final double RADIUS = 64;
+
+	@Param({ "10", "100", "500" })
+	public int players;
+
+	@Param({ "512", "4096" })
+	public int worldSize;
+
+	private Pos[] positions;
+	private final ChunkGrid<Pos> grid = new ChunkGrid<>();
+	private double[] queries;
+	private final List<Pos> candidates = new ArrayList<>();
+	private final List<Pos> result = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Random r = new Random(0);
+		positions = new Pos[players];
+		for (int i = 0; i < players; i++) {
+			Pos pos = positions[i] = new Pos(coord(r), 64 + r.nextInt(64), coord(r));
+			grid.put(pos, pos.x, pos.z);
+		}
+		queries = new double[QUERIES * 3];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i * 3] = coord(r);
+			queries[i * 3 + 1] = 64 + r.nextInt(64);
+			queries[i * 3 + 2] = coord(r);
+		}
+	}
+
+	private double coord(Random r) {
+		return (r.nextDouble() - 0.5) * worldSize;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int linearScan() {
+		int found = 0;
+		double radiusSq = RADIUS * RADIUS;
+		for (int q = 0; q < QUERIES; q++) {
+			double x = queries[q * 3], y = queries[q * 3 + 1], z = queries[q * 3 + 2];
+			List<Pos> result = this.result;
+			for (Pos pos : positions) {
+				if (pos.distanceSq(x, y, z) < radiusSq) {
+					result.add(pos);
+				}
+			}
+			found += result.size();
+			result.clear();
+		}
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int chunkGrid() {
+		int found = 0;
+		double radiusSq = RADIUS * RADIUS;
+		for (int q = 0; q < QUERIES; q++) {
+			double x = queries[q * 3], y = queries[q * 3 + 1], z = queries[q * 3 + 2];
+			List<Pos> candidates = this.candidates;
+			List<Pos> result = this.result;
+			grid.collect(x, z, RADIUS, candidates);
+			for (int i = 0, len = candidates.size(); i < len; i++) {
+				Pos pos = candidates.get(i);
+				if (pos.distanceSq(x, y, z) < radiusSq) {
+					result.add(pos);
+				}
+			}
+			found += result.size();
+			candidates.clear();
+			result.clear();
+		}
+		return found;
+	}
+
+	private static final class Pos {
+
+		final double x, y, z;
+
+		Pos(double x, double y, double z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		double distanceSq(double x, double y, double z) {
+			double dx = x - this.x;
+			double dy = y - this.y;
+			double dz = z - this.z;
+			return dx * dx + dy * dy + dz * dz;
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package de.take_weiland.mods.commons.internal.sync;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Compares the two ways a companion generated by {@link BytecodeEmittingCompanionGenerator} accesses the synced
+ * members when checking for changes: GETFIELD/PUTFIELD for accessible members and {@code invokeExact} on a static
+ * final MethodHandle for all others.</p>
+ * <p>Both companions are written by hand to mirror the generated code: compare every field to the last synced value
+ * and copy it if it changed.</p>
+ *
+ * @author diesieben07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompanionAccessBenchmark {
+
+    private static final int OBJECTS = 256;
+
+    private static final MethodHandle GET_A;
+    private static final MethodHandle GET_B;
+    private static final MethodHandle GET_C;
+    private static final MethodHandle GET_D;
+    private static final MethodHandle SET_A;
+    private static final MethodHandle SET_B;
+    private static final MethodHandle SET_C;
+    private static final MethodHandle SET_D;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            // same types as the generated code uses for invokeExact
+            MethodType getType = MethodType.methodType(int.class, Object.class);
+            MethodType setType = MethodType.methodType(void.class, Object.class, int.class);
+            GET_A = lookup.findGetter(Synced.class, "a", int.class).asType(getType);
+            GET_B = lookup.findGetter(Synced.class, "b", int.class).asType(getType);
+            GET_C = lookup.findGetter(Synced.class, "c", int.class).asType(getType);
+            GET_D = lookup.findGetter(Synced.class, "d", int.class).asType(getType);
+            SET_A = lookup.findSetter(Synced.class, "a", int.class).asType(setType);
+            SET_B = lookup.findSetter(Synced.class, "b", int.class).asType(setType);
+            SET_C = lookup.findSetter(Synced.class, "c", int.class).asType(setType);
+            SET_D = lookup.findSetter(Synced.class, "d", int.class).asType(setType);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "0", "0.1", "1" })
+    public double changeRate;
+
+    private Synced[] objects;
+    private Synced[] lastSynced;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        objects = new Synced[OBJECTS];
+        lastSynced = new Synced[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            objects[i] = new Synced();
+            lastSynced[i] = new Synced();
+        }
+    }
+
+    private void mutate() {
+        int changed = (int) (OBJECTS * changeRate);
+        int t = ++tick;
+        for (int i = 0; i < changed; i++) {
+            objects[i].b = t;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OBJECTS)
+    public int direct() {
+        mutate();
+        int changes = 0;
+        for (int i = 0; i < OBJECTS; i++) {
+            Synced obj = objects[i];
+            Synced last = lastSynced[i];
+            if (obj.a != last.a) {
+                last.a = obj.a;
+                changes++;
+            }
+            if (obj.b != last.b) {
+                last.b = obj.b;
+                changes++;
+            }
+            if (obj.c != last.c) {
+                last.c = obj.c;
+                changes++;
+            }
+            if (obj.d != last.d) {
+                last.d = obj.d;
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OBJECTS)
+    public int methodHandle() throws Throwable {
+        mutate();
+        int changes = 0;
+        for (int i = 0; i < OBJECTS; i++) {
+            Object obj = objects[i];
+            Object last = lastSynced[i];
+            int v;
+            if ((v = (int) GET_A.invokeExact(obj)) != (int) GET_A.invokeExact(last)) {
+                SET_A.invokeExact(last, v);
+                changes++;
+            }
+            if ((v = (int) GET_B.invokeExact(obj)) != (int) GET_B.invokeExact(last)) {
+                SET_B.invokeExact(last, v);
+                changes++;
+            }
+            if ((v = (int) GET_C.invokeExact(obj)) != (int) GET_C.invokeExact(last)) {
+                SET_C.invokeExact(last, v);
+                changes++;
+            }
+            if ((v = (int) GET_D.invokeExact(obj)) != (int) GET_D.invokeExact(last)) {
+                SET_D.invokeExact(last, v);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    static final class Synced {
+
+        int a, b, c, d;
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package de.take_weiland.mods.commons.net;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Compares the bulk array copies used by the MCDataOutput/MCDataInput array methods to the old element-by-element loop.</p>
+ *
+ * @author diesieben07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArrayCopyBenchmark {
+
+	@Param({ "16", "256", "4096" })
+	public int size;
+
+	private int[] ints;
+	private long[] longs;
+	private byte[] bytes;
+
+	private final ArrayCopy unsafe = new ArrayCopy.UnsafeCopy();
+	private final ArrayCopy views = new ArrayCopy.BufferViewCopy();
+
+	@Setup
+	public void setup() {
+		Random r = new Random(0);
+		ints = new int[size];
+		longs = new long[size];
+		for (int i = 0; i < size; i++) {
+			ints[i] = r.nextInt();
+			longs[i] = r.nextLong();
+		}
+		bytes = new byte[size << 3];
+	}
+
+	@Benchmark
+	public byte[] writeIntsLoop() {
+		byte[] bytes = this.bytes;
+		int pos = 0;
+		for (int i : ints) {
+			bytes[pos++] = (byte) i;
+			bytes[pos++] = (byte) (i >>> 8);
+			bytes[pos++] = (byte) (i >>> 16);
+			bytes[pos++] = (byte) (i >>> 24);
+		}
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] writeIntsUnsafe() {
+		unsafe.copy(ints, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] writeIntsViews() {
+		views.copy(ints, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] writeLongsLoop() {
+		byte[] bytes = this.bytes;
+		int pos = 0;
+		for (long l : longs) {
+			bytes[pos++] = (byte) l;
+			bytes[pos++] = (byte) (l >>> 8);
+			bytes[pos++] = (byte) (l >>> 16);
+			bytes[pos++] = (byte) (l >>> 24);
+			bytes[pos++] = (byte) (l >>> 32);
+			bytes[pos++] = (byte) (l >>> 40);
+			bytes[pos++] = (byte) (l >>> 48);
+			bytes[pos++] = (byte) (l >>> 56);
+		}
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] writeLongsUnsafe() {
+		unsafe.copy(longs, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] writeLongsViews() {
+		views.copy(longs, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	@Benchmark
+	public int[] readIntsLoop() {
+		byte[] bytes = this.bytes;
+		int[] ints = this.ints;
+		int pos = 0;
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = (bytes[pos++] & 0xFF)
+					| (bytes[pos++] & 0xFF) << 8
+					| (bytes[pos++] & 0xFF) << 16
+					| (bytes[pos++] & 0xFF) << 24;
+		}
+		return ints;
+	}
+
+	@Benchmark
+	public int[] readIntsUnsafe() {
+		unsafe.copy(bytes, 0, ints, 0, size);
+		return ints;
+	}
+
+	@Benchmark
+	public int[] readIntsViews() {
+		views.copy(bytes, 0, ints, 0, size);
+		return ints;
+	}
+
+	@Benchmark
+	public MCDataOutput streamWriteInts() {
+		MCDataOutput out = Network.newDataOutput((size << 2) + 5);
+		out.writeInts(ints);
+		return out;
+	}
+
+}
@@ -167,6 +167,10 @@ public final class MCPNames {
 
 	public static final String M_TRY_START_WATCHING_THIS = "func_73117_b";
 
+	public static final String M_REMOVE_ENTITY_FROM_ALL_TRACKING_PLAYERS = "func_72790_b";
+
+	public static final String M_SET_PLAYER_LOCATION = "func_72569_a";
+
 	public static final String M_ON_UPDATE = "func_70071_h_";
 
 	public static final String M_UPDATE_ENTITY = "func_70316_g";
@@ -225,6 +229,8 @@ public final class MCPNames {
 
 	public static final String F_CRAFTERS = "field_75149_d";
 
+	public static final String F_PLAYERS_IN_CHUNK = "field_73263_b";
+
 	public static final String M_GET_ICON_STRING = "func_111208_A";
 
 	public static final String M_GET_TEXTURE_NAME = "func_111023_E";
@@ -18,6 +18,7 @@ import de.take_weiland.mods.commons.util.SCReflector;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiScreen;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityTrackerEntry;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.Container;
@@ -25,6 +26,7 @@ import net.minecraft.inventory.ICrafting;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.Slot;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.NetServerHandler;
 import net.minecraft.network.packet.Packet250CustomPayload;
 import net.minecraftforge.common.IExtendedEntityProperties;
 import net.minecraftforge.common.MinecraftForge;
@@ -187,6 +189,24 @@ public final class ASMHooks {
 		MinecraftForge.EVENT_BUS.post(new GuiInitEvent(gui, SCReflector.instance.getButtonList(gui)));
 	}
 
+	public static final String ON_NEW_TRACKER_ENTRY = "onNewTrackerEntry";
+
+	public static void onNewTrackerEntry(EntityTrackerEntry entry) {
+		((EntityProxy) entry.myEntity)._sc$setTrackerEntry(entry);
+	}
+
+	public static final String ON_STOP_TRACKING = "onStopTracking";
+
+	public static void onStopTracking(Entity entity) {
+		((EntityProxy) entity)._sc$setTrackerEntry(null);
+	}
+
+	public static final String ON_SET_PLAYER_LOCATION = "onSetPlayerLocation";
+
+	public static void onSetPlayerLocation(NetServerHandler nsh) {
+		PlayerGrid.update(nsh.playerEntity);
+	}
+
 	public static void onStartTracking(EntityPlayer player, Entity tracked) {
 		MinecraftForge.EVENT_BUS.post(new PlayerStartTrackingEvent(player, tracked));
 
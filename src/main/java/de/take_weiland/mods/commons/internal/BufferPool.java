@@ -0,0 +1,243 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.BufferPoolStats;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>A pool of size-classed byte arrays used as backing storage for outbound packet buffers.</p>
+ * <p>A pooled array is owned by the stream it was handed to and by any packet created from that stream. Since a single
+ * packet can be queued on any number of connections (and cached by {@link de.take_weiland.mods.commons.net.ModPacket}),
+ * there is no single point at which the last {@code writePacketData} call is known to have happened. Instead the owner
+ * is tracked with a {@link java.lang.ref.PhantomReference} and the array is recycled once the owner is unreachable.</p>
+ *
+ * @author diesieben07
+ */
+public final class BufferPool {
+
+	public static final boolean ENABLED = Boolean.getBoolean("sevencommons.net.pooledBuffers");
+	private static final boolean TRACK_LEAKS = Boolean.getBoolean("sevencommons.net.pooledBuffers.trackLeaks");
+
+	private static final Logger logger = SevenCommonsLoader.scLogger("BufferPool");
+
+	private static final int MIN_SHIFT = 6; // 64 bytes
+	private static final int MAX_SHIFT = 16; // 64 KiB
+	private static final int MAX_BYTES_PER_CLASS = 1 << 20;
+
+	private static final SizeClass[] classes;
+
+	static {
+		classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = new SizeClass(i + MIN_SHIFT);
+		}
+	}
+
+	private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+	// keeps the references themselves reachable until they are enqueued
+	private static final Set<OwnerRef> liveRefs = Collections.newSetFromMap(new ConcurrentHashMap<OwnerRef, Boolean>());
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong recycled = new AtomicLong();
+	private static final AtomicLong leaked = new AtomicLong();
+
+	/**
+	 * <p>Acquire a Buffer of at least the given capacity. Returns null if the capacity is too large to be pooled.</p>
+	 * @param minCapacity the minimum capacity
+	 * @return a Buffer or null
+	 */
+	public static Buffer acquire(int minCapacity) {
+		drainQueue();
+
+		SizeClass sizeClass = sizeClassFor(minCapacity);
+		if (sizeClass == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		byte[] arr = sizeClass.poll();
+		if (arr == null) {
+			misses.incrementAndGet();
+			arr = new byte[sizeClass.size];
+		} else {
+			hits.incrementAndGet();
+		}
+		return new Buffer(arr);
+	}
+
+	/**
+	 * <p>Start tracking the given owner. Once the owner is unreachable, the Buffer's current array is returned to the pool.</p>
+	 * @param owner the owner
+	 * @param buffer the Buffer
+	 */
+	public static void track(Object owner, Buffer buffer) {
+		liveRefs.add(new OwnerRef(owner, buffer, queue));
+	}
+
+	public static BufferPoolStats stats() {
+		return Stats.INSTANCE;
+	}
+
+	private static SizeClass sizeClassFor(int capacity) {
+		int shift = capacity <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(capacity - 1); // ceil(log2(capacity))
+		if (shift > MAX_SHIFT) {
+			return null;
+		}
+		return classes[Math.max(shift, MIN_SHIFT) - MIN_SHIFT];
+	}
+
+	private static void drainQueue() {
+		OwnerRef ref;
+		while ((ref = (OwnerRef) queue.poll()) != null) {
+			liveRefs.remove(ref);
+			Buffer buffer = ref.buffer;
+			if (!buffer.committed) {
+				leaked.incrementAndGet();
+				if (buffer.origin != null) {
+					logger.log(Level.WARNING, "Pooled buffer was discarded without being sent in a packet", buffer.origin);
+				}
+			}
+			recycle(buffer.array);
+		}
+	}
+
+	private static void recycle(byte[] arr) {
+		int len = arr.length;
+		// only arrays of exactly a size class are pooled, grown arrays might have any size
+		if ((len & (len - 1)) == 0) {
+			SizeClass sizeClass = sizeClassFor(len);
+			if (sizeClass != null && sizeClass.size == len && sizeClass.offer(arr)) {
+				recycled.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * <p>Holder for a pooled array. The array changes if the owning stream has to grow.</p>
+	 */
+	public static final class Buffer {
+
+		public byte[] array;
+		volatile boolean committed;
+		final Throwable origin;
+
+		Buffer(byte[] array) {
+			this.array = array;
+			this.origin = TRACK_LEAKS ? new Throwable("Buffer acquired here") : null;
+		}
+
+		/**
+		 * <p>Grow this buffer to at least the given capacity, keeping the first {@code used} bytes.</p>
+		 * @param used the number of bytes in use
+		 * @param minCapacity the new minimum capacity
+		 * @return the new array
+		 */
+		public byte[] grow(int used, int minCapacity) {
+			SizeClass sizeClass = sizeClassFor(minCapacity);
+			int newCapacity;
+			if (sizeClass != null) {
+				newCapacity = sizeClass.size;
+			} else {
+				// grow geometrically above the largest size class, like an unpooled stream
+				newCapacity = array.length << 1;
+				if (newCapacity - minCapacity < 0)
+					newCapacity = minCapacity;
+				if (newCapacity < 0) {
+					if (minCapacity < 0)
+						throw new OutOfMemoryError();
+					newCapacity = Integer.MAX_VALUE;
+				}
+			}
+			byte[] newArr = new byte[newCapacity];
+			System.arraycopy(array, 0, newArr, 0, used);
+			// the old array is not recycled here, someone might still hold on to it via backingArray()
+			return array = newArr;
+		}
+
+		/**
+		 * <p>Mark this Buffer as committed to a packet.</p>
+		 */
+		public void commit() {
+			committed = true;
+		}
+
+	}
+
+	private static final class OwnerRef extends PhantomReference<Object> {
+
+		final Buffer buffer;
+
+		OwnerRef(Object owner, Buffer buffer, ReferenceQueue<Object> queue) {
+			super(owner, queue);
+			this.buffer = buffer;
+		}
+	}
+
+	private static final class SizeClass {
+
+		final int size;
+		private final int maxRetained;
+		private final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger retained = new AtomicInteger();
+
+		SizeClass(int shift) {
+			size = 1 << shift;
+			maxRetained = Math.max(4, MAX_BYTES_PER_CLASS >> shift);
+		}
+
+		byte[] poll() {
+			byte[] arr = free.poll();
+			if (arr != null) {
+				retained.decrementAndGet();
+			}
+			return arr;
+		}
+
+		boolean offer(byte[] arr) {
+			if (retained.incrementAndGet() > maxRetained) {
+				retained.decrementAndGet();
+				return false;
+			}
+			// streams rely on fresh arrays being zeroed (writeNulls, writeEnumSet)
+			Arrays.fill(arr, (byte) 0);
+			free.offer(arr);
+			return true;
+		}
+	}
+
+	private enum Stats implements BufferPoolStats {
+		INSTANCE;
+
+		@Override
+		public long hits() {
+			return hits.get();
+		}
+
+		@Override
+		public long misses() {
+			return misses.get();
+		}
+
+		@Override
+		public long recycled() {
+			return recycled.get();
+		}
+
+		@Override
+		public long leaked() {
+			return leaked.get();
+		}
+	}
+
+	private BufferPool() { }
+}
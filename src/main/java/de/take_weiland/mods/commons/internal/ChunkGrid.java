@@ -0,0 +1,154 @@
+package de.take_weiland.mods.commons.internal;
+
+import net.minecraft.util.LongHashMap;
+import net.minecraft.util.MathHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A grid of chunk sized (16x16 blocks) buckets on the x/z plane. Each element is in exactly one bucket, depending
+ * on the position it was last {@link #put(Object, double, double) put} at.</p>
+ * <p>Elements are compared by identity. This class is not thread-safe.</p>
+ *
+ * @author diesieben07
+ */
+public final class ChunkGrid<T> {
+
+	private final LongHashMap cells = new LongHashMap();
+	private final List<Cell<T>> occupied = new ArrayList<>();
+	private final Map<T, Cell<T>> cellOf = new IdentityHashMap<>();
+
+	/**
+	 * <p>Add the element at the given position or move it there if it is already in this grid.</p>
+	 * @param element the element
+	 * @param x the x coordinate
+	 * @param z the z coordinate
+	 */
+	public void put(T element, double x, double z) {
+		int cellX = MathHelper.floor_double(x) >> 4;
+		int cellZ = MathHelper.floor_double(z) >> 4;
+
+		Cell<T> cell = cellOf.get(element);
+		if (cell != null) {
+			if (cell.x == cellX && cell.z == cellZ) {
+				return;
+			}
+			removeFrom(cell, element);
+		}
+
+		long key = key(cellX, cellZ);
+		@SuppressWarnings("unchecked")
+		Cell<T> newCell = (Cell<T>) cells.getValueByKey(key);
+		if (newCell == null) {
+			newCell = new Cell<>(cellX, cellZ, occupied.size());
+			cells.add(key, newCell);
+			occupied.add(newCell);
+		}
+		newCell.elements.add(element);
+		cellOf.put(element, newCell);
+	}
+
+	/**
+	 * <p>Remove the element from this grid.</p>
+	 * @param element the element
+	 * @return true if the element was in this grid
+	 */
+	public boolean remove(T element) {
+		Cell<T> cell = cellOf.remove(element);
+		if (cell == null) {
+			return false;
+		}
+		removeFrom(cell, element);
+		return true;
+	}
+
+	/**
+	 * <p>The number of elements in this grid.</p>
+	 * @return the number of elements
+	 */
+	public int size() {
+		return cellOf.size();
+	}
+
+	/**
+	 * <p>Add all elements in buckets that intersect the square of the given radius around the given position to the
+	 * collection. The result may contain elements outside of the radius, callers must check the actual distance.</p>
+	 * @param x the x coordinate
+	 * @param z the z coordinate
+	 * @param radius the radius
+	 * @param out the collection to add the elements to
+	 */
+	public void collect(double x, double z, double radius, Collection<? super T> out) {
+		if (occupied.isEmpty()) {
+			return;
+		}
+		int minX = MathHelper.floor_double(x - radius) >> 4;
+		int maxX = MathHelper.floor_double(x + radius) >> 4;
+		int minZ = MathHelper.floor_double(z - radius) >> 4;
+		int maxZ = MathHelper.floor_double(z + radius) >> 4;
+
+		long area = (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+		if (area > occupied.size()) {
+			// fewer occupied cells than cells in range, check them all instead
+			List<Cell<T>> occupied = this.occupied;
+			for (int i = 0, len = occupied.size(); i < len; i++) {
+				Cell<T> cell = occupied.get(i);
+				if (cell.x >= minX && cell.x <= maxX && cell.z >= minZ && cell.z <= maxZ) {
+					out.addAll(cell.elements);
+				}
+			}
+		} else {
+			for (int cellX = minX; cellX <= maxX; cellX++) {
+				for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+					@SuppressWarnings("unchecked")
+					Cell<T> cell = (Cell<T>) cells.getValueByKey(key(cellX, cellZ));
+					if (cell != null) {
+						out.addAll(cell.elements);
+					}
+				}
+			}
+		}
+	}
+
+	private void removeFrom(Cell<T> cell, T element) {
+		List<T> elements = cell.elements;
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			if (elements.get(i) == element) {
+				elements.remove(i);
+				break;
+			}
+		}
+		if (elements.isEmpty()) {
+			cells.remove(key(cell.x, cell.z));
+			// swap-remove from the occupied list
+			Cell<T> last = occupied.remove(occupied.size() - 1);
+			if (last != cell) {
+				occupied.set(cell.index, last);
+				last.index = cell.index;
+			}
+		}
+	}
+
+	private static long key(int cellX, int cellZ) {
+		return (long) cellX & 0xFFFFFFFFL | ((long) cellZ & 0xFFFFFFFFL) << 32;
+	}
+
+	private static final class Cell<T> {
+
+		final int x;
+		final int z;
+		int index;
+		final List<T> elements = new ArrayList<>(4);
+
+		Cell(int x, int z, int index) {
+			this.x = x;
+			this.z = z;
+			this.index = index;
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package de.take_weiland.mods.commons.internal;
 
 import de.take_weiland.mods.commons.internal.sync.IEEPSyncCompanion;
+import net.minecraft.entity.EntityTrackerEntry;
 
 import java.util.List;
 
@@ -12,8 +13,16 @@ public interface EntityProxy {
 	public static final String CLASS_NAME = "de/take_weiland/mods/commons/internal/EntityProxy";
 	public static final String GET_PROPERTIES = "_sc$getPropsCompanions";
 	public static final String SET_PROPERTIES = "_sc$setPropsCompanions";
+	public static final String GET_TRACKER_ENTRY = "_sc$getTrackerEntry";
+	public static final String SET_TRACKER_ENTRY = "_sc$setTrackerEntry";
 
 	List<IEEPSyncCompanion> _sc$getPropsCompanions();
 	void _sc$setPropsCompanions(List<IEEPSyncCompanion> props);
 
+	/**
+	 * <p>The EntityTrackerEntry tracking this entity on the server, null if the entity is not tracked.</p>
+	 */
+	EntityTrackerEntry _sc$getTrackerEntry();
+	void _sc$setTrackerEntry(EntityTrackerEntry entry);
+
 }
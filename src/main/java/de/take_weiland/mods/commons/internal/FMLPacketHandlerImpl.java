@@ -1,6 +1,7 @@
 package de.take_weiland.mods.commons.internal;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import cpw.mods.fml.common.FMLLog;
 import cpw.mods.fml.common.network.IPacketHandler;
@@ -13,6 +14,7 @@ import de.take_weiland.mods.commons.util.Sides;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.INetworkManager;
+import net.minecraft.network.NetServerHandler;
 import net.minecraft.network.packet.Packet;
 import net.minecraft.network.packet.Packet250CustomPayload;
 import org.apache.commons.lang3.ArrayUtils;
@@ -23,10 +25,14 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.invoke.MethodHandles.publicLookup;
 import static java.lang.invoke.MethodType.methodType;
 
@@ -36,10 +42,14 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
 
 	private final String channel;
 	private final Logger logger;
+	final PacketMetrics.Counters traffic;
 
     private static ImmutableMap<Class<? extends ModPacket>, ModPacketInfo> packetInfo = ImmutableMap.of();
+    private static final Map<String, FMLPacketHandlerImpl> byChannel = new ConcurrentHashMap<>();
 
-    private final Map<Integer, MethodHandle> packetCstrs;
+    // receive path, both indexed by packet ID
+    private final PacketFactory factory;
+    private final ModPacketInfo[] infoByID;
 
     private static final InstantiationStrategy strategy;
 
@@ -59,74 +69,168 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
 
 	public FMLPacketHandlerImpl(String channel, Map<Class<? extends ModPacket>, Integer> packets) {
 		this.channel = channel;
-        this.packetCstrs = buildConstructors(packets);
-        updatePacketInfo(packets);
+		this.traffic = PacketMetrics.forChannel(channel);
+        this.factory = buildFactory(packets);
+        this.infoByID = updatePacketInfo(packets);
 
 		String logChannel = "SCNet|" + channel;
 		FMLLog.makeLog(logChannel);
 		logger = Logger.getLogger(logChannel);
+
+		byChannel.put(channel, this);
+	}
+
+	static FMLPacketHandlerImpl forChannel(String channel) {
+		return byChannel.get(channel);
 	}
 
-    private Map<Integer, MethodHandle> buildConstructors(Map<Class<? extends ModPacket>, Integer> packets) {
-        ImmutableMap.Builder<Integer, MethodHandle> builder = ImmutableMap.builder();
+    private static int tableSize(Map<Class<? extends ModPacket>, Integer> packets) {
+        return packets.isEmpty() ? 0 : Collections.max(packets.values()) + 1;
+    }
+
+    private static PacketFactory buildFactory(Map<Class<? extends ModPacket>, Integer> packets) {
+        int size = tableSize(packets);
+        @SuppressWarnings("unchecked")
+        Class<? extends ModPacket>[] classes = new Class[size];
+        MethodHandle[] cstrs = new MethodHandle[size];
 
         for (Map.Entry<Class<? extends ModPacket>, Integer> entry : packets.entrySet()) {
-            builder.put(entry.getValue(), strategy.makeNoArgCstr(entry.getKey()));
+            int id = entry.getValue();
+            classes[id] = entry.getKey();
+            cstrs[id] = strategy.makeNoArgCstr(entry.getKey());
         }
 
-        return builder.build();
+        return PacketFactory.create(classes, cstrs);
     }
 
-
-    private void updatePacketInfo(Map<Class<? extends ModPacket>, Integer> newPackets) {
+    private ModPacketInfo[] updatePacketInfo(Map<Class<? extends ModPacket>, Integer> newPackets) {
+        ModPacketInfo[] byID = new ModPacketInfo[tableSize(newPackets)];
         synchronized (FMLPacketHandlerImpl.class) {
             ImmutableMap.Builder<Class<? extends ModPacket>, ModPacketInfo> builder = ImmutableMap.builder();
             builder.putAll(packetInfo);
 
             for (Map.Entry<Class<? extends ModPacket>, Integer> entry : newPackets.entrySet()) {
                 Class<? extends ModPacket> clazz = entry.getKey();
-                Integer id = entry.getValue();
+                int id = entry.getValue();
 
-                builder.put(clazz, new ModPacketInfo(clazz, this, id));
+                ModPacketInfo info = new ModPacketInfo(clazz, this, id);
+                builder.put(clazz, info);
+                byID[id] = info;
             }
             packetInfo = builder.build();
         }
+        return byID;
     }
 
 
 	@Override
 	public void onPacketData(INetworkManager manager, Packet250CustomPayload packet, Player fmlPlayer) {
-		MCDataInput in = Network.newDataInput(packet.data, 0, packet.length);
 		EntityPlayer player = (EntityPlayer) fmlPlayer;
+		try {
+			handlePayload(packet.data, 0, packet.length, player);
+		} catch (ProtocolException e) {
+			logger.log(Level.WARNING, String.format("Invalid packet for player %s", player.username), e);
+			String kickMsg = e.getKickMessage();
+			if (kickMsg != null && player instanceof EntityPlayerMP) {
+				((EntityPlayerMP) player).playerNetServerHandler.kickPlayerFromServer(kickMsg);
+			}
+		}
+	}
 
-		int id = in.readVarInt();
+	final void handlePayload(byte[] data, int off, int len, EntityPlayer player) throws ProtocolException {
+		if (PacketMetrics.ENABLED) {
+			traffic.recordIn(len);
+		}
+		MCDataInput in = PacketCompression.open(data, off, len, Sides.logical(player).isServer());
 
-		ModPacket modPacket = newPacket(id);
-		handlePacket(in, player, modPacket, packetInfo.get(modPacket.getClass()));
+		handlePacket(in, player, null);
 	}
 
-	final void handlePacket(MCDataInput in, EntityPlayer player) {
-        ModPacket packet = newPacket(in.readVarInt());
-        handlePacket(in, player, packet, packetInfo.get(packet.getClass()));
+	final void handlePacket(MCDataInput in, EntityPlayer player, Object owner) {
+        int id = in.readVarInt();
+        // throws for unknown IDs, so infoByID[id] is valid afterwards
+        ModPacket packet = factory.newPacket(id);
+        ModPacketInfo info = infoByID[id];
+        if (PacketMetrics.ENABLED && owner == null) {
+            // packets processed locally are not counted
+            info.traffic.recordIn(in.len());
+        }
+        handlePacket(in, player, packet, info, owner);
 	}
 
-	static void handlePacket(MCDataInput in, EntityPlayer player, ModPacket modPacket, ModPacketInfo info) {
+	/**
+	 * @param in the packet data, null if the packet has been handed over locally and must not be read
+	 */
+	static void handlePacket(MCDataInput in, EntityPlayer player, ModPacket modPacket, ModPacketInfo info, Object owner) {
 		Side side = Sides.logical(player);
-        try {
-            if (!info.isValidTarget(side)) {
-				throw new ProtocolException("Packet received on wrong Side!");
+		if (!info.isValidTarget(side)) {
+			handleException(new ProtocolException("Packet received on wrong Side!"), player, side, modPacket, info);
+		} else if (info.asyncRead || PacketDecoder.isBusy(player, side)) {
+			// packets received after an async one need to wait for it
+			PacketDecoder.submit(in, owner, player, side, modPacket, info, info.asyncRead);
+		} else {
+			try {
+				if (in == null) {
+					// handed over locally
+				} else if (PacketMetrics.ENABLED) {
+					long start = System.nanoTime();
+					modPacket.read(in, player, side);
+					PacketMetrics.recordDecode(info, System.nanoTime() - start);
+				} else {
+					modPacket.read(in, player, side);
+				}
+				modPacket.execute(player, side);
+			} catch (ProtocolException | IOException e) {
+				handleException(e, player, side, modPacket, info);
 			}
-			modPacket.read(in, player, side);
-			modPacket.execute(player, side);
-		} catch (ProtocolException pe) {
-            String kickMsg = pe.getKickMessage();
+		}
+	}
+
+	/**
+	 * <p>Hand the packet over to the local server directly, if it supports it (see {@link ModPacket#copyForLocal()}).</p>
+	 * @return true if the packet has been sent
+	 */
+	public static boolean sendLocalToServer(ModPacket packet) {
+		if (!SevenCommons.proxy.isServerLocal()) {
+			return false;
+		}
+		ModPacket copy = packet.copyForLocal();
+		if (copy == null) {
+			return false;
+		}
+		SevenCommons.proxy.sendPacketToServer(new Packet250Local(copy, packetInfo.get(packet.getClass())));
+		return true;
+	}
+
+	/**
+	 * <p>Create a packet that hands the packet over to the given player directly, if the player is connected to this JVM
+	 * and the packet supports it (see {@link ModPacket#copyForLocal()}). The result must be sent like any other packet,
+	 * so that it stays in order with the packets queued for the player.</p>
+	 * @return the packet to send or null if the packet must be written
+	 */
+	public static Packet localPacketFor(ModPacket packet, EntityPlayer player) {
+		ModPacket copy = packet.copyForLocal();
+		if (copy == null || !(player instanceof EntityPlayerMP)) {
+			return null;
+		}
+		NetServerHandler nsh = ((EntityPlayerMP) player).playerNetServerHandler;
+		if (nsh == null || !SevenCommons.proxy.isLocalConnection(nsh.netManager)) {
+			return null;
+		}
+		return new Packet250Local(copy, packetInfo.get(packet.getClass()));
+	}
+
+	static void handleException(Exception e, EntityPlayer player, Side side, ModPacket modPacket, ModPacketInfo info) {
+		if (PacketMetrics.ENABLED) {
+			PacketMetrics.recordException(info);
+		}
+		if (e instanceof ProtocolException) {
+			String kickMsg = ((ProtocolException) e).getKickMessage();
 			if (kickMsg != null && side.isServer()) {
 				((EntityPlayerMP) player).playerNetServerHandler.kickPlayerFromServer(kickMsg);
 			}
-			info.handler.logException(modPacket, pe, player);
-		} catch (IOException e) {
-			info.handler.logException(modPacket, e, player);
 		}
+		info.handler.logException(modPacket, e, player);
 	}
 
     public static Packet makePacketForModPacket(ModPacket packet) {
@@ -135,11 +239,21 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
     }
 
 	private Packet buildPacket(ModPacket mp, ModPacketInfo info) {
-		MCDataOutput out = Network.newDataOutput(mp.expectedSize() + 1); // packetID should rarely take more than one byte (more than 127)
+		long start = PacketMetrics.ENABLED ? System.nanoTime() : 0;
+		MCDataOutput out = Network.newPooledDataOutput(info.sizeTracker.initialCapacity(mp));
+		byte[] initialBuf = out.backingArray();
 		out.writeVarInt(info.packetID);
 		mp.write(out);
 		out.lock();
-		return new Packet250Fake(mp, info, channel, out.backingArray(), out.length());
+		info.sizeTracker.record(out.length(), out.backingArray() != initialBuf);
+		MCDataOutput payload = PacketCompression.compress(out);
+		if (PacketMetrics.ENABLED) {
+			long nanos = System.nanoTime() - start;
+			info.traffic.encodeNanos.addAndGet(nanos);
+			traffic.encodeNanos.addAndGet(nanos);
+		}
+		// copied here, the packet might be changed after it has been sent
+		return new Packet250Fake(mp, info, channel, out, payload, mp.copyForLocal());
 	}
 
 	@Override
@@ -149,7 +263,9 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
 
 	@Override
 	public MCDataOutput createStream(int packetId, int initialCapacity) {
-		MCDataOutput stream = Network.newDataOutput(initialCapacity + 1);
+		// a negative ID could be mistaken for the marker of a compressed packet
+		checkArgument(packetId >= 0, "packetId must be >= 0");
+		MCDataOutput stream = Network.newPooledDataOutput(initialCapacity + 1);
 		stream.writeVarInt(packetId);
 		return stream;
 	}
@@ -157,25 +273,58 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
 	@Override
 	public SimplePacket makePacket(MCDataOutput stream) {
 		stream.lock();
-		return new Packet250FakeNoMP(this, channel, stream.backingArray(), stream.length());
+		if (PacketMetrics.ENABLED) {
+			long start = System.nanoTime();
+			MCDataOutput payload = PacketCompression.compress(stream);
+			traffic.encodeNanos.addAndGet(System.nanoTime() - start);
+			return new Packet250FakeNoMP(this, channel, stream, payload);
+		}
+		return new Packet250FakeNoMP(this, channel, stream, PacketCompression.compress(stream));
 	}
 
-	private void logException(ModPacket packet, Exception e, EntityPlayer player) {
-        logger.log(Level.WARNING, String.format("Unhandled %s during Packet read of Packet %s for player %s", e.getClass().getSimpleName(), packet.getClass().getSimpleName(), player.username), e);
+	PacketPriority.Level priorityOf(MCDataOutput stream) {
+		int id = Network.newDataInput(stream.backingArray(), 0, stream.length()).readVarInt();
+		ModPacketInfo info = id < infoByID.length ? infoByID[id] : null;
+		return info == null ? PacketPriority.Level.NORMAL : info.priority;
 	}
 
-	private ModPacket newPacket(int id) {
-		try {
-			return (ModPacket) packetCstrs.get(id).invokeExact();
-		} catch (Throwable e) {
-			throw Throwables.propagate(e);
-		}
+	private void logException(ModPacket packet, Exception e, EntityPlayer player) {
+        logger.log(Level.WARNING, String.format("Unhandled %s during Packet read of Packet %s for player %s", e.getClass().getSimpleName(), packet.getClass().getSimpleName(), player.username), e);
 	}
 
     static {
         Map<Class<? extends Packet>, Integer> classToIdMap = SCReflector.instance.getClassToIdMap();
         classToIdMap.put(Packet250Fake.class, 250);
         classToIdMap.put(Packet250FakeNoMP.class, 250);
+        classToIdMap.put(Packet250Local.class, 250);
+    }
+
+    /**
+     * <p>The codec for the {@link PacketField} fields of the given packet.</p>
+     */
+    public static PacketCodec codecFor(ModPacket packet) {
+        return infoFor(packet).codec;
+    }
+
+    public static int expectedSize(ModPacket packet) {
+        ModPacketInfo info = infoFor(packet);
+        return info.exactSize ? info.codec.size(packet) : 32;
+    }
+
+    private static ModPacketInfo infoFor(ModPacket packet) {
+        ModPacketInfo info = packetInfo.get(packet.getClass());
+        if (info == null) {
+            throw new IllegalStateException("Packet " + packet.getClass().getName() + " has not been registered");
+        }
+        return info;
+    }
+
+    public static Collection<? extends PacketSizeStats> getPacketSizeStats() {
+        ImmutableList.Builder<PacketSizeTracker> builder = ImmutableList.builder();
+        for (ModPacketInfo info : packetInfo.values()) {
+            builder.add(info.sizeTracker);
+        }
+        return builder.build();
     }
 
     private static abstract class InstantiationStrategy {
@@ -251,13 +400,41 @@ public final class FMLPacketHandlerImpl implements IPacketHandler, PacketHandler
         private final PacketDirection.Dir direction;
         final int packetID;
         final FMLPacketHandlerImpl handler;
-
-        ModPacketInfo(Class<?> clazz, FMLPacketHandlerImpl handler, int packetID) {
+        final PacketSizeTracker sizeTracker;
+        final boolean asyncRead;
+        final PacketMetrics.Counters traffic;
+        final PacketPriority.Level priority;
+        final PacketCodec codec;
+        final boolean exactSize;
+
+        ModPacketInfo(Class<? extends ModPacket> clazz, FMLPacketHandlerImpl handler, int packetID) {
             PacketDirection dir = clazz.getAnnotation(PacketDirection.class);
             direction = dir == null ? PacketDirection.Dir.BOTH_WAYS : dir.value();
 
             this.packetID = packetID;
             this.handler = handler;
+            boolean customWrite = overrides(clazz, "write", MCDataOutput.class);
+            boolean customRead = overrides(clazz, "read", MCDataInput.class, EntityPlayer.class, Side.class);
+            // only generate the codec if it is used
+            this.codec = customWrite && customRead ? PacketCodec.EMPTY : PacketCodec.create(clazz);
+            // a packet without custom write/read and without fields would silently send nothing
+            checkArgument(codec != PacketCodec.EMPTY || customWrite && customRead,
+                    "ModPacket %s must override write and read or declare @PacketField fields", clazz.getName());
+            // the codec knows the exact size if it is used for writing
+            this.exactSize = codec != PacketCodec.EMPTY && !customWrite;
+            this.sizeTracker = new PacketSizeTracker(clazz, exactSize);
+            this.asyncRead = clazz.isAnnotationPresent(AsyncRead.class);
+            this.traffic = PacketMetrics.forPacket(clazz);
+            PacketPriority priority = clazz.getAnnotation(PacketPriority.class);
+            this.priority = priority == null ? PacketPriority.Level.NORMAL : priority.value();
+        }
+
+        private static boolean overrides(Class<?> clazz, String method, Class<?>... params) {
+            try {
+                return clazz.getMethod(method, params).getDeclaringClass() != ModPacket.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e); // impossible
+            }
         }
 
         boolean isValidTarget(Side side) {
@@ -1,8 +1,10 @@
 package de.take_weiland.mods.commons.internal;
 
 import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
 import de.take_weiland.mods.commons.net.ModPacket;
 import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.net.PacketPriority;
 import de.take_weiland.mods.commons.util.JavaUtils;
 import net.minecraft.network.packet.NetHandler;
 import net.minecraft.network.packet.Packet250CustomPayload;
@@ -18,18 +20,42 @@ public class Packet250Fake extends Packet250CustomPayload {
 
 	private final ModPacket modPacket;
     private final FMLPacketHandlerImpl.ModPacketInfo packetInfo;
+	// see ModPacket#copyForLocal
+	private final ModPacket localCopy;
 
-	public Packet250Fake(ModPacket modPacket, FMLPacketHandlerImpl.ModPacketInfo packetInfo, String channel, byte[] bytes, int len) {
+	// keep pooled backing arrays from being recycled while this packet is alive
+	private final MCDataOutput stream;
+	private final MCDataOutput payload;
+	// the serialized frame if this packet is sent to multiple players, see PacketFrames
+	private volatile byte[] frame;
+
+	/**
+	 * @param stream the encoded packet
+	 * @param payload the data to send over the network, either {@code stream} or a compressed version of it
+	 * @param localCopy the result of {@link ModPacket#copyForLocal()}, made when the packet was sent
+	 */
+	public Packet250Fake(ModPacket modPacket, FMLPacketHandlerImpl.ModPacketInfo packetInfo, String channel, MCDataOutput stream, MCDataOutput payload, ModPacket localCopy) {
 		this.modPacket = modPacket;
         this.packetInfo = packetInfo;
+		this.localCopy = localCopy;
         this.channel = channel;
-		this.data = bytes;
-		this.length = len;
+		this.stream = stream;
+		this.payload = payload;
+		this.data = payload.backingArray();
+		this.length = payload.length();
 	}
 
 	@Override
 	public void writePacketData(DataOutput out) {
+		if (PacketMetrics.ENABLED) {
+			recordSent();
+		}
 		try {
+			byte[] frame = this.frame;
+			if (frame != null) {
+				out.write(frame);
+				return;
+			}
 			writeString(channel, out);
 			out.writeShort(length);
 			out.write(data, 0, length);
@@ -39,11 +65,35 @@ public class Packet250Fake extends Packet250CustomPayload {
 		}
 	}
 
+	void recordSent() {
+		packetInfo.traffic.recordOut(stream.length());
+		packetInfo.handler.traffic.recordOut(length);
+	}
+
+	public PacketPriority.Level priority() {
+		return packetInfo.priority;
+	}
+
+	public ModPacket modPacket() {
+		return modPacket;
+	}
+
+	void prepareFrame() {
+		if (frame == null) {
+			frame = PacketFrames.encode(channel, data, length);
+		}
+	}
+
 	@Override
 	public void processPacket(NetHandler nh) {
-		MCDataInput in = Network.newDataInput(data, 0, length);
+		if (localCopy != null) {
+			FMLPacketHandlerImpl.handlePacket(null, nh.getPlayer(), localCopy, packetInfo, null);
+			return;
+		}
+		// processed locally, no need to inflate
+		MCDataInput in = Network.newDataInput(stream.backingArray(), 0, stream.length());
 		in.readVarInt(); // skip packet ID
-        FMLPacketHandlerImpl.handlePacket(in, nh.getPlayer(), modPacket, packetInfo);
+        FMLPacketHandlerImpl.handlePacket(in, nh.getPlayer(), modPacket, packetInfo, this);
 	}
 
 	@Override
@@ -21,16 +21,32 @@ public final class Packet250FakeNoMP extends Packet250CustomPayload implements S
 
 	private final FMLPacketHandlerImpl handler;
 
-	Packet250FakeNoMP(FMLPacketHandlerImpl handler, String channel, byte[] bytes, int len) {
+	// keep pooled backing arrays from being recycled while this packet is alive
+	private final MCDataOutput stream;
+	private final MCDataOutput payload;
+	// the serialized frame if this packet is sent to multiple players, see PacketFrames
+	private volatile byte[] frame;
+
+	Packet250FakeNoMP(FMLPacketHandlerImpl handler, String channel, MCDataOutput stream, MCDataOutput payload) {
 		this.handler = handler;
 		this.channel = channel;
-		this.data = bytes;
-		this.length = len;
+		this.stream = stream;
+		this.payload = payload;
+		this.data = payload.backingArray();
+		this.length = payload.length();
 	}
 
 	@Override
 	public void writePacketData(DataOutput out) {
+		if (PacketMetrics.ENABLED) {
+			recordSent();
+		}
 		try {
+			byte[] frame = this.frame;
+			if (frame != null) {
+				out.write(frame);
+				return;
+			}
 			writeString(channel, out);
 			out.writeShort(length);
 			out.write(data, 0, length);
@@ -40,9 +56,24 @@ public final class Packet250FakeNoMP extends Packet250CustomPayload implements S
 		}
 	}
 
+	void recordSent() {
+		handler.traffic.recordOut(length);
+	}
+
+	public PacketPriority.Level priority() {
+		return handler.priorityOf(stream);
+	}
+
+	void prepareFrame() {
+		if (frame == null) {
+			frame = PacketFrames.encode(channel, data, length);
+		}
+	}
+
 	@Override
 	public void processPacket(NetHandler nh) {
-		handler.handlePacket(Network.newDataInput(data, 0, length), nh.getPlayer());
+		// processed locally, no need to inflate
+		handler.handlePacket(Network.newDataInput(stream.backingArray(), 0, stream.length()), nh.getPlayer(), this);
 	}
 
 	@Override
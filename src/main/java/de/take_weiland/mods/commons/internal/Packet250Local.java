@@ -0,0 +1,46 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.ModPacket;
+import net.minecraft.network.packet.NetHandler;
+import net.minecraft.network.packet.Packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+
+/**
+ * <p>A ModPacket that is handed over to the other side directly, because both sides share this JVM
+ * (see {@link de.take_weiland.mods.commons.net.ModPacket#copyForLocal()}). Only ever sent over a MemoryConnection.</p>
+ *
+ * @author diesieben07
+ */
+final class Packet250Local extends Packet {
+
+	private final ModPacket modPacket;
+	private final FMLPacketHandlerImpl.ModPacketInfo packetInfo;
+
+	Packet250Local(ModPacket modPacket, FMLPacketHandlerImpl.ModPacketInfo packetInfo) {
+		this.modPacket = modPacket;
+		this.packetInfo = packetInfo;
+	}
+
+	@Override
+	public void processPacket(NetHandler nh) {
+		FMLPacketHandlerImpl.handlePacket(null, nh.getPlayer(), modPacket, packetInfo, null);
+	}
+
+	@Override
+	public int getPacketSize() {
+		return 0;
+	}
+
+	@Override
+	public void writePacketData(DataOutput out) {
+		throw new AssertionError("Local packet sent over the network");
+	}
+
+	@Override
+	public void readPacketData(DataInput in) {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,211 @@
+package de.take_weiland.mods.commons.internal;
+
+import cpw.mods.fml.common.ITickHandler;
+import cpw.mods.fml.common.TickType;
+import cpw.mods.fml.common.network.IPacketHandler;
+import cpw.mods.fml.common.network.Player;
+import de.take_weiland.mods.commons.internal.sync.SyncBatcher;
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.net.ProtocolException;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.INetworkManager;
+import net.minecraft.network.NetServerHandler;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.Packet250CustomPayload;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * <p>Coalesces the small packets sent to a player during one server tick into a single custom payload packet.</p>
+ * <p>Batching is enabled with {@code -Dsevencommons.net.coalescePackets=true} and only applies to packets created by
+ * a {@link de.take_weiland.mods.commons.net.PacketHandler} and sent from the server thread. The batch for every player
+ * is sent at the end of the tick. Batched packets keep their order relative to each other, but may arrive after vanilla
+ * packets sent later in the same tick.</p>
+ * <p>The batch payload is a series of entries, each consisting of a VarInt channel reference (0 means the channel name
+ * follows as a compact String, any other value refers to the n-th channel named in this batch), the VarInt length of the
+ * packet data and the data itself.</p>
+ *
+ * @author diesieben07
+ */
+public final class PacketBatcher implements ITickHandler, IPacketHandler {
+
+	public static final boolean ENABLED = Boolean.getBoolean("sevencommons.net.coalescePackets");
+	public static final String CHANNEL = "SevenCommons|B";
+
+	private static final int MAX_BATCHED_PACKET = 2048;
+	private static final int MAX_BATCH = 32000; // stay below the vanilla limit of 32767
+	private static final int CHANNEL_INLINE = 0;
+
+	private static volatile Thread serverThread;
+	// only accessed from the server thread
+	private static final Map<NetServerHandler, Batch> pending = new IdentityHashMap<>();
+
+	/**
+	 * <p>Try to add the given packet to the batch of the given player.</p>
+	 * @param packet the packet
+	 * @param player the player
+	 * @return true if the packet has been batched, false if it needs to be sent directly
+	 */
+	public static boolean offer(Packet packet, EntityPlayerMP player) {
+		if (!ENABLED || !isServerThread()) {
+			return false;
+		}
+		NetServerHandler nsh = player.playerNetServerHandler;
+		Batch batch = pending.get(nsh);
+		if (!isBatchableType(packet)) {
+			// packets sent directly must not overtake previous ones
+			if (batch != null) {
+				pending.remove(nsh);
+				batch.send(nsh);
+			}
+			return false;
+		}
+
+		Packet250CustomPayload payload = (Packet250CustomPayload) packet;
+		if (batch != null && batch.out.length() + payload.length + payload.channel.length() + 10 > MAX_BATCH) {
+			batch.send(nsh);
+			batch = null;
+		}
+		if (batch == null) {
+			pending.put(nsh, batch = new Batch());
+		}
+		batch.add(payload);
+		return true;
+	}
+
+	/**
+	 * <p>Check if the current thread is the server thread.</p>
+	 * @return true if this is the server thread
+	 */
+	public static boolean isServerThread() {
+		return Thread.currentThread() == serverThread;
+	}
+
+	/**
+	 * <p>Check if the given packet would be batched when sent from the current thread.</p>
+	 * @param packet the packet
+	 * @return true if the packet would be batched
+	 */
+	public static boolean isBatchable(Packet packet) {
+		return ENABLED && isServerThread() && isBatchableType(packet);
+	}
+
+	private static boolean isBatchableType(Packet packet) {
+		return (packet instanceof Packet250Fake || packet instanceof Packet250FakeNoMP)
+				&& ((Packet250CustomPayload) packet).length <= MAX_BATCHED_PACKET;
+	}
+
+	@Override
+	public void tickStart(EnumSet<TickType> type, Object... tickData) {
+		serverThread = Thread.currentThread();
+	}
+
+	@Override
+	public void tickEnd(EnumSet<TickType> type, Object... tickData) {
+		// sync updates are sent as regular packets, they need to be in this tick's batches
+		SyncBatcher.flush();
+		if (!pending.isEmpty()) {
+			for (Map.Entry<NetServerHandler, Batch> entry : pending.entrySet()) {
+				entry.getValue().send(entry.getKey());
+			}
+			pending.clear();
+		}
+	}
+
+	private static final EnumSet<TickType> ticks = EnumSet.of(TickType.SERVER);
+	@Override
+	public EnumSet<TickType> ticks() {
+		return ticks;
+	}
+
+	@Override
+	public String getLabel() {
+		return "SevenCommons|PacketBatcher";
+	}
+
+	@Override
+	public void onPacketData(INetworkManager manager, Packet250CustomPayload packet, Player fmlPlayer) {
+		EntityPlayer player = (EntityPlayer) fmlPlayer;
+		try {
+			handleBatch(packet.data, packet.length, player);
+		} catch (ProtocolException e) {
+			SevenCommons.LOGGER.log(Level.WARNING, String.format("Invalid batched packet for player %s", player.username), e);
+			if (player instanceof EntityPlayerMP) {
+				((EntityPlayerMP) player).playerNetServerHandler.kickPlayerFromServer("Invalid batched packet");
+			}
+		}
+	}
+
+	private static void handleBatch(byte[] data, int length, EntityPlayer player) throws ProtocolException {
+		MCDataInput in = Network.newDataInput(data, 0, length);
+		List<String> channels = new ArrayList<>(4);
+		while (in.pos() < in.len()) {
+			int ref = in.readVarInt();
+			String channel;
+			if (ref == CHANNEL_INLINE) {
+				channels.add(channel = in.readCompactString());
+			} else if (ref < 0 || ref > channels.size()) {
+				throw new ProtocolException("Invalid channel reference " + ref);
+			} else {
+				channel = channels.get(ref - 1);
+			}
+			int len = in.readVarInt();
+			int off = in.pos();
+			if (len < 0 || len > in.len() - off) {
+				throw new ProtocolException("Invalid packet length " + len);
+			}
+			in.skipBytes(len);
+
+			FMLPacketHandlerImpl handler = channel == null ? null : FMLPacketHandlerImpl.forChannel(channel);
+			if (handler == null) {
+				throw new ProtocolException("Unknown channel " + channel + " in batched packet");
+			}
+			handler.handlePayload(data, off, len, player);
+		}
+	}
+
+	private static final class Batch {
+
+		final MCDataOutput out = Network.newPooledDataOutput(256);
+		private final List<String> channels = new ArrayList<>(4);
+		private final List<Packet250CustomPayload> packets = new ArrayList<>(4);
+
+		void add(Packet250CustomPayload packet) {
+			int ref = channels.indexOf(packet.channel);
+			if (ref < 0) {
+				out.writeVarInt(CHANNEL_INLINE);
+				out.writeCompactString(packet.channel);
+				channels.add(packet.channel);
+			} else {
+				out.writeVarInt(ref + 1);
+			}
+			out.writeVarInt(packet.length);
+			out.write(packet.data, 0, packet.length);
+
+			packets.add(packet);
+		}
+
+		void send(NetServerHandler nsh) {
+			out.lock();
+			if (packets.size() == 1) {
+				nsh.sendPacketToPlayer(packets.get(0));
+			} else {
+				if (PacketMetrics.ENABLED) {
+					// writePacketData is only called on the batch
+					for (int i = 0, len = packets.size(); i < len; i++) {
+						PacketMetrics.recordSent(packets.get(i));
+					}
+				}
+				nsh.sendPacketToPlayer(new Packet250CustomPayload(CHANNEL, out.toByteArray()));
+			}
+		}
+	}
+}
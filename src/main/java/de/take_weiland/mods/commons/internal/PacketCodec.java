@@ -0,0 +1,61 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.ModPacket;
+
+/**
+ * <p>Writes and reads the {@link de.take_weiland.mods.commons.net.PacketField} fields of a ModPacket class.</p>
+ * <p>Implementations are generated by {@link PacketCodecGenerator}.</p>
+ *
+ * @author diesieben07
+ */
+public abstract class PacketCodec {
+
+	static final PacketCodec EMPTY = new PacketCodec() {
+		@Override
+		public void write(ModPacket packet, MCDataOutput out) { }
+
+		@Override
+		public void read(ModPacket packet, MCDataInput in) { }
+
+		@Override
+		public int size(ModPacket packet) {
+			return 0;
+		}
+	};
+
+	static PacketCodec create(Class<? extends ModPacket> clazz) {
+		PacketCodec codec = new PacketCodecGenerator(clazz).generateCodec();
+		return codec == null ? EMPTY : codec;
+	}
+
+	public abstract void write(ModPacket packet, MCDataOutput out);
+
+	public abstract void read(ModPacket packet, MCDataInput in);
+
+	/**
+	 * <p>The exact number of bytes {@link #write(ModPacket, MCDataOutput)} will write for the given packet.</p>
+	 */
+	public abstract int size(ModPacket packet);
+
+	// size helpers for the generated classes, must match AbstractMCDataOutput
+
+	public static int varIntLen(int i) {
+		return i < 0 ? 5 : (38 - Integer.numberOfLeadingZeros(i | 1)) / 7;
+	}
+
+	public static int varLongLen(long l) {
+		return (70 - Long.numberOfLeadingZeros(l | 1)) / 7;
+	}
+
+	public static int stringLen(String s) {
+		int len = s.length();
+		return varIntLen(len) + (len << 1);
+	}
+
+	public static int enumLen(Enum<?> e) {
+		return e == null ? 5 : varIntLen(e.ordinal());
+	}
+
+}
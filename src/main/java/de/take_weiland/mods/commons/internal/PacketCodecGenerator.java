@@ -0,0 +1,427 @@
+package de.take_weiland.mods.commons.internal;
+
+import com.google.common.collect.Lists;
+import de.take_weiland.mods.commons.internal.prop.AbstractProperty;
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.net.PacketField;
+import de.take_weiland.mods.commons.reflect.SCReflection;
+import de.take_weiland.mods.commons.serialize.Property;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.objectweb.asm.Opcodes.*;
+import static org.objectweb.asm.Type.*;
+import static org.objectweb.asm.commons.Method.getMethod;
+
+/**
+ * <p>Generates a {@link PacketCodec} for the {@link de.take_weiland.mods.commons.net.PacketField} fields of a ModPacket class.</p>
+ * <p>All boolean fields are written first, packed into as few bytes as possible. All other fields follow in declaration
+ * order, superclass fields first.</p>
+ *
+ * @author diesieben07
+ */
+final class PacketCodecGenerator {
+
+    private static final String GETTER = "get";
+    private static final String SETTER = "set";
+    private static final String ENUM_TYPE = "type";
+
+    private final Class<? extends ModPacket> clazz;
+    private ClassWriter cw;
+    private String className;
+    private List<Property<?, ?>> booleans;
+    private List<Property<?, ?>> others;
+    // booleans first, then all others
+    private List<Property<?, ?>> properties;
+
+    PacketCodecGenerator(Class<? extends ModPacket> clazz) {
+        this.clazz = clazz;
+    }
+
+    PacketCodec generateCodec() {
+        List<Property<?, ?>> properties = findProperties();
+        if (properties.isEmpty()) {
+            return null;
+        }
+        booleans = new ArrayList<>();
+        others = new ArrayList<>();
+        for (Property<?, ?> property : properties) {
+            validate(property);
+            (property.getRawType() == boolean.class ? booleans : others).add(property);
+        }
+        this.properties = new ArrayList<>(booleans);
+        this.properties.addAll(others);
+
+        newClassWriter();
+
+        genFields();
+        genCLInit();
+        genWrite();
+        genRead();
+        genSize();
+
+        return finish();
+    }
+
+    private List<Property<?, ?>> findProperties() {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = clazz; c != ModPacket.class; c = c.getSuperclass()) {
+            hierarchy.add(c);
+        }
+        List<Property<?, ?>> properties = new ArrayList<>();
+        for (Class<?> c : Lists.reverse(hierarchy)) {
+            properties.addAll(AbstractProperty.allProperties(c, PacketField.class));
+        }
+        return properties;
+    }
+
+    private void validate(Property<?, ?> property) {
+        int mod = property.getMember().getModifiers();
+        if (Modifier.isStatic(mod) || Modifier.isFinal(mod)) {
+            throw new IllegalArgumentException(String.format("@PacketField %s in %s must not be static or final", property.getName(), clazz.getName()));
+        }
+        Class<?> type = property.getRawType();
+        if (!type.isPrimitive() && type != String.class && !type.isEnum()) {
+            throw new IllegalArgumentException(String.format("@PacketField %s in %s has unsupported type %s", property.getName(), clazz.getName(), type.getName()));
+        }
+        if (isVarInt(property) && type != int.class && type != long.class) {
+            throw new IllegalArgumentException(String.format("@PacketField %s in %s must be int or long to be a VarInt", property.getName(), clazz.getName()));
+        }
+    }
+
+    private void newClassWriter() {
+        className = SCReflection.nextDynamicClassName(PacketCodecGenerator.class.getPackage());
+        String superName = Type.getInternalName(PacketCodec.class);
+        cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_7, 0, className, null, superName, null);
+
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, getMethod("void <init>()"), null, null, cw);
+        gen.loadThis();
+        gen.invokeConstructor(Type.getObjectType(superName), getMethod("void <init>()"));
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    private void genFields() {
+        String methodHandleDesc = Type.getDescriptor(MethodHandle.class);
+        String classDesc = Type.getDescriptor(Class.class);
+        for (Property<?, ?> property : properties) {
+            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, identFor(property, GETTER), methodHandleDesc, null, null).visitEnd();
+            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, identFor(property, SETTER), methodHandleDesc, null, null).visitEnd();
+            if (property.getRawType().isEnum()) {
+                cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, identFor(property, ENUM_TYPE), classDesc, null, null).visitEnd();
+            }
+        }
+    }
+
+    private void genCLInit() {
+        Type iterType = Type.getType(Iterator.class);
+        Type objectArrType = Type.getType(Object[].class);
+        Type objectType = Type.getType(Object.class);
+        Type classType = Type.getType(Class.class);
+        Type generatorType = Type.getType(PacketCodecGenerator.class);
+        Type methodHandleType = Type.getType(MethodHandle.class);
+        Type myType = Type.getObjectType(className);
+
+        Method iterNext = getMethod("Object next()");
+
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_STATIC, getMethod("void <clinit>()"), null, null, cw);
+        gen.visitCode();
+
+        int iterLocal = gen.newLocal(iterType);
+        gen.invokeStatic(generatorType, new Method("getStaticInfo", iterType, new Type[0]));
+        gen.storeLocal(iterLocal);
+
+        for (Property<?, ?> property : properties) {
+            gen.loadLocal(iterLocal);
+            gen.invokeInterface(iterType, iterNext);
+            gen.checkCast(objectArrType);
+
+            gen.dup();
+            gen.push(0);
+            gen.arrayLoad(objectType);
+            gen.checkCast(methodHandleType);
+            gen.putStatic(myType, identFor(property, GETTER), methodHandleType);
+
+            if (property.getRawType().isEnum()) {
+                gen.dup();
+                gen.push(2);
+                gen.arrayLoad(objectType);
+                gen.checkCast(classType);
+                gen.putStatic(myType, identFor(property, ENUM_TYPE), classType);
+            }
+
+            gen.push(1);
+            gen.arrayLoad(objectType);
+            gen.checkCast(methodHandleType);
+            gen.putStatic(myType, identFor(property, SETTER), methodHandleType);
+        }
+
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    private void genWrite() {
+        Method method = getMethod("void write(de.take_weiland.mods.commons.net.ModPacket, de.take_weiland.mods.commons.net.MCDataOutput)");
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        gen.visitCode();
+
+        Type outType = Type.getType(MCDataOutput.class);
+
+        for (int i = 0, len = booleans.size(); i < len; i += 8) {
+            gen.loadArg(1);
+            gen.push(0);
+            for (int bit = 0; bit < 8 && i + bit < len; bit++) {
+                getValue(gen, booleans.get(i + bit));
+                if (bit != 0) {
+                    gen.push(bit);
+                    gen.math(GeneratorAdapter.SHL, INT_TYPE);
+                }
+                gen.math(GeneratorAdapter.OR, INT_TYPE);
+            }
+            gen.invokeInterface(outType, getMethod("void writeByte(int)"));
+        }
+
+        for (Property<?, ?> property : others) {
+            gen.loadArg(1);
+            getValue(gen, property);
+            if (property.getRawType().isEnum()) {
+                gen.checkCast(Type.getType(Enum.class));
+            }
+            gen.invokeInterface(outType, writeMethod(property));
+        }
+
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    private void genRead() {
+        Method method = getMethod("void read(de.take_weiland.mods.commons.net.ModPacket, de.take_weiland.mods.commons.net.MCDataInput)");
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        gen.visitCode();
+
+        Type inType = Type.getType(MCDataInput.class);
+        Type myType = Type.getObjectType(className);
+        Type classType = Type.getType(Class.class);
+
+        if (!booleans.isEmpty()) {
+            int bitsLocal = gen.newLocal(INT_TYPE);
+            for (int i = 0, len = booleans.size(); i < len; i += 8) {
+                gen.loadArg(1);
+                gen.invokeInterface(inType, getMethod("byte readByte()"));
+                gen.storeLocal(bitsLocal);
+                for (int bit = 0; bit < 8 && i + bit < len; bit++) {
+                    Property<?, ?> property = booleans.get(i + bit);
+                    prepareSetValue(gen, property);
+                    gen.loadLocal(bitsLocal);
+                    gen.push(bit);
+                    gen.math(GeneratorAdapter.USHR, INT_TYPE);
+                    gen.push(1);
+                    gen.math(GeneratorAdapter.AND, INT_TYPE);
+                    doSetValue(gen, property);
+                }
+            }
+        }
+
+        for (Property<?, ?> property : others) {
+            prepareSetValue(gen, property);
+            gen.loadArg(1);
+            if (property.getRawType().isEnum()) {
+                gen.getStatic(myType, identFor(property, ENUM_TYPE), classType);
+            }
+            gen.invokeInterface(inType, readMethod(property));
+            doSetValue(gen, property);
+        }
+
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    private void genSize() {
+        Method method = getMethod("int size(de.take_weiland.mods.commons.net.ModPacket)");
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        gen.visitCode();
+
+        Type codecType = Type.getType(PacketCodec.class);
+        Type enumType = Type.getType(Enum.class);
+
+        int fixed = (booleans.size() + 7) / 8;
+        for (Property<?, ?> property : others) {
+            Class<?> type = property.getRawType();
+            if (!isVarInt(property) && type.isPrimitive()) {
+                fixed += Type.getType(type).getSize() * 4;
+                if (type == byte.class) {
+                    fixed -= 3;
+                } else if (type == short.class || type == char.class) {
+                    fixed -= 2;
+                }
+            }
+        }
+        gen.push(fixed);
+
+        for (Property<?, ?> property : others) {
+            Class<?> type = property.getRawType();
+            Method sizeMethod;
+            if (isVarInt(property)) {
+                sizeMethod = type == int.class ? getMethod("int varIntLen(int)") : getMethod("int varLongLen(long)");
+            } else if (type == String.class) {
+                sizeMethod = getMethod("int stringLen(String)");
+            } else if (type.isEnum()) {
+                sizeMethod = new Method("enumLen", INT_TYPE, new Type[] { enumType });
+            } else {
+                continue;
+            }
+            getValue(gen, property);
+            if (type.isEnum()) {
+                gen.checkCast(enumType);
+            }
+            gen.invokeStatic(codecType, sizeMethod);
+            gen.math(GeneratorAdapter.ADD, INT_TYPE);
+        }
+
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    private static Method writeMethod(Property<?, ?> property) {
+        Class<?> type = property.getRawType();
+        if (isVarInt(property)) {
+            return type == int.class ? getMethod("void writeVarInt(int)") : getMethod("void writeVarLong(long)");
+        } else if (type == String.class) {
+            return getMethod("void writeString(String)");
+        } else if (type.isEnum()) {
+            return getMethod("void writeEnum(Enum)");
+        } else {
+            switch (Type.getType(type).getSort()) {
+                case Type.BYTE:
+                    return getMethod("void writeByte(int)");
+                case Type.SHORT:
+                    return getMethod("void writeShort(int)");
+                case Type.CHAR:
+                    return getMethod("void writeChar(int)");
+                case Type.INT:
+                    return getMethod("void writeInt(int)");
+                case Type.LONG:
+                    return getMethod("void writeLong(long)");
+                case Type.FLOAT:
+                    return getMethod("void writeFloat(float)");
+                case Type.DOUBLE:
+                    return getMethod("void writeDouble(double)");
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    private static Method readMethod(Property<?, ?> property) {
+        Class<?> type = property.getRawType();
+        if (isVarInt(property)) {
+            return type == int.class ? getMethod("int readVarInt()") : getMethod("long readVarLong()");
+        } else if (type == String.class) {
+            return getMethod("String readString()");
+        } else if (type.isEnum()) {
+            return getMethod("Enum readEnum(Class)");
+        } else {
+            switch (Type.getType(type).getSort()) {
+                case Type.BYTE:
+                    return getMethod("byte readByte()");
+                case Type.SHORT:
+                    return getMethod("short readShort()");
+                case Type.CHAR:
+                    return getMethod("char readChar()");
+                case Type.INT:
+                    return getMethod("int readInt()");
+                case Type.LONG:
+                    return getMethod("long readLong()");
+                case Type.FLOAT:
+                    return getMethod("float readFloat()");
+                case Type.DOUBLE:
+                    return getMethod("double readDouble()");
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    private static boolean isVarInt(Property<?, ?> property) {
+        return property.getAnnotation(PacketField.class).varInt();
+    }
+
+    // enum types might not be accessible from the generated class, treat them as Object
+    private static Class<?> handleType(Property<?, ?> property) {
+        Class<?> type = property.getRawType();
+        return type.isEnum() ? Object.class : type;
+    }
+
+    private void getValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Type myType = Type.getObjectType(className);
+        Type methodHandleType = Type.getType(MethodHandle.class);
+        Type objectType = Type.getType(Object.class);
+
+        gen.getStatic(myType, identFor(property, GETTER), methodHandleType);
+        gen.loadArg(0);
+        gen.invokeVirtual(methodHandleType, new Method("invokeExact", Type.getType(handleType(property)), new Type[] { objectType }));
+    }
+
+    private void prepareSetValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Type myType = Type.getObjectType(className);
+        Type methodHandleType = Type.getType(MethodHandle.class);
+        gen.getStatic(myType, identFor(property, SETTER), methodHandleType);
+        gen.loadArg(0);
+    }
+
+    private void doSetValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Type objectType = Type.getType(Object.class);
+        Type methodHandleType = Type.getType(MethodHandle.class);
+
+        gen.invokeVirtual(methodHandleType, new Method("invokeExact", VOID_TYPE, new Type[] { objectType, Type.getType(handleType(property)) }));
+    }
+
+    private PacketCodec finish() {
+        cw.visitEnd();
+        synchronized (PacketCodecGenerator.class) {
+            staticProperties = properties;
+            try {
+                // instantiate here, so that the class is initialized while staticProperties is set
+                return (PacketCodec) SCReflection.defineDynamicClass(cw.toByteArray()).newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new AssertionError(e); // impossible
+            } finally {
+                staticProperties = null;
+            }
+        }
+    }
+
+    private static List<Property<?, ?>> staticProperties;
+
+    @SuppressWarnings("unused") // called by the dynamic classes
+    static Iterator<Object[]> getStaticInfo() {
+        List<Object[]> info = new ArrayList<>(staticProperties.size());
+        for (Property<?, ?> property : staticProperties) {
+            Class<?> type = handleType(property);
+            info.add(new Object[] {
+                    property.getGetter().asType(methodType(type, Object.class)),
+                    property.getSetter().asType(methodType(void.class, Object.class, type)),
+                    property.getRawType()
+            });
+        }
+        return info.iterator();
+    }
+
+    private String identFor(Property<?, ?> property, String type) {
+        // field names might not be unique in the hierarchy
+        return "_sc$" + properties.indexOf(property) + '$' + property.getName() + '$' + type;
+    }
+
+}
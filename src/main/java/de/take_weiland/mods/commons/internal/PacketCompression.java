@@ -0,0 +1,212 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.CompressionStats;
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.net.ProtocolException;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Optional deflate stage for outbound packets.</p>
+ * <p>Payloads of at least {@code sevencommons.net.compressThreshold} bytes are deflated. A compressed payload starts with
+ * a VarInt -1, followed by the uncompressed length as a VarInt and the deflated data. An uncompressed payload starts
+ * with the packet ID, which is never negative (see {@link FMLPacketHandlerImpl#createStream(int, int)}), so the marker
+ * cannot be mistaken for one.</p>
+ * <p>The client always accepts compressed packets, regardless of the threshold. The server only accepts them if
+ * compression is enabled on the server as well, so the property must be set on both sides. Since the uncompressed
+ * data takes the place of a regular serverbound packet, it must not be larger than {@link #MAX_SERVERBOUND}.</p>
+ *
+ * @author diesieben07
+ */
+public final class PacketCompression {
+
+	public static final int THRESHOLD = Integer.getInteger("sevencommons.net.compressThreshold", -1);
+	public static final boolean ENABLED = THRESHOLD > 0;
+
+	private static final int COMPRESSED_MARKER = -1;
+	private static final int MAX_UNCOMPRESSED = (1 << 23) - 1; // largest length ASMHooks.writeExtPacketLen can handle
+	static final int MAX_SERVERBOUND = Short.MAX_VALUE; // largest length Packet250CustomPayload accepts on the server
+	private static final int INITIAL_SCRATCH = 8192;
+
+	private static final ThreadLocal<Codec> codecs = new ThreadLocal<Codec>() {
+		@Override
+		protected Codec initialValue() {
+			return new Codec();
+		}
+	};
+
+	private static final AtomicLong candidates = new AtomicLong();
+	private static final AtomicLong compressed = new AtomicLong();
+	private static final AtomicLong bytesIn = new AtomicLong();
+	private static final AtomicLong bytesOut = new AtomicLong();
+	private static final AtomicLong deflateNanos = new AtomicLong();
+	private static final AtomicLong inflated = new AtomicLong();
+	private static final AtomicLong inflateNanos = new AtomicLong();
+
+	/**
+	 * <p>Compress the given locked stream if it is large enough and compression actually saves space.</p>
+	 * @param out the stream
+	 * @return a new locked stream containing the compressed data or {@code out} itself
+	 */
+	public static MCDataOutput compress(MCDataOutput out) {
+		int len = out.length();
+		if (!ENABLED || len < THRESHOLD) {
+			return out;
+		}
+		candidates.incrementAndGet();
+		long start = System.nanoTime();
+
+		Codec codec = codecs.get();
+		Deflater deflater = codec.deflater;
+		byte[] scratch = codec.scratch;
+		int n = 0;
+		try {
+			deflater.setInput(out.backingArray(), 0, len);
+			deflater.finish();
+			while (!deflater.finished()) {
+				if (n == scratch.length) {
+					if (n >= len) {
+						// not worth it
+						return out;
+					}
+					scratch = codec.scratch = Arrays.copyOf(scratch, Math.min(n << 1, len));
+				}
+				n += deflater.deflate(scratch, n, scratch.length - n);
+			}
+		} finally {
+			deflater.reset();
+			deflateNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		MCDataOutput result = Network.newPooledDataOutput(n + 10);
+		result.writeVarInt(COMPRESSED_MARKER);
+		result.writeVarInt(len);
+		result.write(scratch, 0, n);
+		if (result.length() >= len) {
+			result.lock(); // hand the pooled array back without counting it as leaked
+			return out;
+		}
+		result.lock();
+
+		compressed.incrementAndGet();
+		bytesIn.addAndGet(len);
+		bytesOut.addAndGet(result.length());
+		return result;
+	}
+
+	/**
+	 * <p>Create an MCDataInput for the given received payload, inflating it if needed.</p>
+	 * @param data the array containing the payload
+	 * @param off the start of the payload
+	 * @param len the length of the payload
+	 * @param serverbound true if the payload has been received on the server
+	 * @return an MCDataInput positioned at the packet ID
+	 * @throws ProtocolException if the payload is compressed but invalid or not allowed
+	 */
+	public static MCDataInput open(byte[] data, int off, int len, boolean serverbound) throws ProtocolException {
+		MCDataInput in = Network.newDataInput(data, off, len);
+		if (in.readVarInt() != COMPRESSED_MARKER) {
+			in.seek(0);
+			return in;
+		}
+		if (serverbound && !ENABLED) {
+			throw new ProtocolException("Compressed packet received, but compression is disabled").kickPlayer();
+		}
+		int uncompressedLen = in.readVarInt();
+		if (uncompressedLen < 0 || uncompressedLen > (serverbound ? MAX_SERVERBOUND : MAX_UNCOMPRESSED)) {
+			throw new ProtocolException("Invalid length of compressed packet: " + uncompressedLen).kickPlayer();
+		}
+		long start = System.nanoTime();
+
+		BufferPool.Buffer pooled = BufferPool.ENABLED ? BufferPool.acquire(uncompressedLen) : null;
+		byte[] buf = pooled == null ? new byte[uncompressedLen] : pooled.array;
+		Inflater inflater = codecs.get().inflater;
+		try {
+			inflater.setInput(data, off + in.pos(), len - in.pos());
+			int n = 0;
+			while (n < uncompressedLen) {
+				int read = inflater.inflate(buf, n, uncompressedLen - n);
+				if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += read;
+			}
+			if (n != uncompressedLen) {
+				throw new ProtocolException("Compressed packet is truncated").kickPlayer();
+			}
+		} catch (DataFormatException e) {
+			throw new ProtocolException("Corrupt compressed packet", e).kickPlayer();
+		} finally {
+			inflater.reset();
+			inflateNanos.addAndGet(System.nanoTime() - start);
+		}
+		inflated.incrementAndGet();
+
+		MCDataInput result = Network.newDataInput(buf, 0, uncompressedLen);
+		if (pooled != null) {
+			BufferPool.track(result, pooled);
+			pooled.commit();
+		}
+		return result;
+	}
+
+	public static CompressionStats stats() {
+		return Stats.INSTANCE;
+	}
+
+	private static final class Codec {
+
+		// speed matters more than ratio, this usually runs on the server thread
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		final Inflater inflater = new Inflater();
+		byte[] scratch = new byte[INITIAL_SCRATCH];
+
+	}
+
+	private enum Stats implements CompressionStats {
+		INSTANCE;
+
+		@Override
+		public long candidates() {
+			return candidates.get();
+		}
+
+		@Override
+		public long compressed() {
+			return compressed.get();
+		}
+
+		@Override
+		public long bytesIn() {
+			return bytesIn.get();
+		}
+
+		@Override
+		public long bytesOut() {
+			return bytesOut.get();
+		}
+
+		@Override
+		public long deflateNanos() {
+			return deflateNanos.get();
+		}
+
+		@Override
+		public long inflated() {
+			return inflated.get();
+		}
+
+		@Override
+		public long inflateNanos() {
+			return inflateNanos.get();
+		}
+	}
+
+	private PacketCompression() { }
+}
@@ -0,0 +1,184 @@
+package de.take_weiland.mods.commons.internal;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cpw.mods.fml.relauncher.Side;
+import de.take_weiland.mods.commons.internal.FMLPacketHandlerImpl.ModPacketInfo;
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.net.ProtocolException;
+import de.take_weiland.mods.commons.util.Scheduler;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Reads packets annotated with {@link de.take_weiland.mods.commons.net.AsyncRead} on a pool of decoder threads.</p>
+ * <p>Every connection with packets in flight has a queue of received packets. While that queue exists, all packets
+ * received from the connection are added to it, so that they are executed in the order they were received. The queue
+ * is drained on the main thread of the receiving side using the {@link de.take_weiland.mods.commons.util.Scheduler}.</p>
+ * <p>The number of decoder threads can be set with {@code -Dsevencommons.net.decoderThreads}.</p>
+ *
+ * @author diesieben07
+ */
+final class PacketDecoder {
+
+	private static final int THREADS = Integer.getInteger("sevencommons.net.decoderThreads",
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+	// the client only has a single connection
+	private static final Object CLIENT_CONNECTION = new Object();
+	private static final Map<Object, Connection> connections = new ConcurrentHashMap<>();
+
+	/**
+	 * <p>Check if the connection of the given player has packets that have not been executed yet. If so, any further
+	 * packet must be passed to {@link #submit} to keep the order.</p>
+	 * <p>Must be called from the main thread of the given side.</p>
+	 */
+	static boolean isBusy(EntityPlayer player, Side side) {
+		return !connections.isEmpty() && connections.containsKey(connectionKey(player, side));
+	}
+
+	/**
+	 * <p>Add the packet to the queue of the player's connection. If {@code async} is true, the packet is read on a
+	 * decoder thread, otherwise it is read immediately.</p>
+	 * <p>Must be called from the main thread of the given side.</p>
+	 * @param in the packet data, null if the packet has been handed over locally and must not be read
+	 * @param owner an object that must stay reachable until the data has been read, may be null
+	 */
+	static void submit(MCDataInput in, Object owner, EntityPlayer player, Side side, ModPacket packet, ModPacketInfo info, boolean async) {
+		Object key = connectionKey(player, side);
+		Connection connection = connections.get(key);
+		if (connection == null) {
+			connections.put(key, connection = new Connection(key, side));
+		}
+		Entry entry = new Entry(connection, in, owner, player, side, packet, info);
+		connection.queue.add(entry);
+		if (async) {
+			Workers.pool.execute(entry);
+		} else {
+			entry.read();
+			connection.run();
+		}
+	}
+
+	private static Object connectionKey(EntityPlayer player, Side side) {
+		return side.isServer() ? ((EntityPlayerMP) player).playerNetServerHandler : CLIENT_CONNECTION;
+	}
+
+	private static final class Workers {
+
+		static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+				.setNameFormat("SevenCommons Packet Decoder #%d")
+				.setDaemon(true)
+				.build());
+
+	}
+
+	private static final class Connection implements Runnable {
+
+		private final Object key;
+		private final Side side;
+		// only accessed from the main thread
+		final Queue<Entry> queue = new ArrayDeque<>();
+
+		Connection(Object key, Side side) {
+			this.key = key;
+			this.side = side;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Entry entry;
+				while ((entry = queue.peek()) != null && entry.done) {
+					queue.remove();
+					entry.execute();
+				}
+			} finally {
+				Entry head = queue.peek();
+				if (head == null) {
+					connections.remove(key);
+				} else if (head.done) {
+					// an exception escaped, continue next tick
+					Scheduler.forSide(side).execute(this);
+				}
+			}
+		}
+	}
+
+	private static final class Entry implements Runnable {
+
+		private final Connection connection;
+		private final EntityPlayer player;
+		private final Side side;
+		private final ModPacket packet;
+		private final ModPacketInfo info;
+		private MCDataInput in;
+		// keeps the source of the data reachable until it has been read
+		private Object owner;
+
+		private Throwable failure;
+		volatile boolean done;
+
+		Entry(Connection connection, MCDataInput in, Object owner, EntityPlayer player, Side side, ModPacket packet, ModPacketInfo info) {
+			this.connection = connection;
+			this.in = in;
+			this.owner = owner;
+			this.player = player;
+			this.side = side;
+			this.packet = packet;
+			this.info = info;
+		}
+
+		@Override
+		public void run() {
+			read();
+			Scheduler.forSide(side).execute(connection);
+		}
+
+		void read() {
+			try {
+				if (in == null) {
+					// handed over locally
+				} else if (PacketMetrics.ENABLED) {
+					long start = System.nanoTime();
+					packet.read(in, player, side);
+					PacketMetrics.recordDecode(info, System.nanoTime() - start);
+				} else {
+					packet.read(in, player, side);
+				}
+			} catch (Throwable t) {
+				failure = t;
+			} finally {
+				in = null;
+				owner = null;
+				done = true;
+			}
+		}
+
+		void execute() {
+			if (failure == null) {
+				try {
+					packet.execute(player, side);
+				} catch (ProtocolException pe) {
+					failure = pe;
+				}
+			}
+			if (failure instanceof ProtocolException || failure instanceof IOException) {
+				FMLPacketHandlerImpl.handleException((Exception) failure, player, side, packet, info);
+			} else if (failure != null) {
+				throw Throwables.propagate(failure);
+			}
+		}
+	}
+
+	private PacketDecoder() { }
+}
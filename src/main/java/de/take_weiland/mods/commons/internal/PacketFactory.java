@@ -0,0 +1,149 @@
+package de.take_weiland.mods.commons.internal;
+
+import com.google.common.base.Throwables;
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.reflect.SCReflection;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.commons.TableSwitchGenerator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.V1_7;
+import static org.objectweb.asm.commons.Method.getMethod;
+
+/**
+ * <p>Creates ModPacket instances from their packet ID on the receiving side.</p>
+ * <p>This class looks up the constructor in a table indexed by ID. Where possible a subclass is generated instead,
+ * which uses a {@code tableswitch} over the IDs and calls the constructors directly. Packet classes that are not public
+ * or do not have a public no-arg constructor still use the table.</p>
+ *
+ * @author diesieben07
+ */
+public class PacketFactory {
+
+	private final MethodHandle[] cstrs;
+
+	// public for the generated subclasses
+	public PacketFactory(MethodHandle[] cstrs) {
+		this.cstrs = cstrs;
+	}
+
+	/**
+	 * <p>Create a new, empty instance of the packet with the given ID.</p>
+	 * @param id the packet ID
+	 * @return a new packet
+	 */
+	public ModPacket newPacket(int id) {
+		MethodHandle cstr;
+		if (id < 0 || id >= cstrs.length || (cstr = cstrs[id]) == null) {
+			throw new IllegalStateException("Unknown packet ID " + id);
+		}
+		try {
+			return (ModPacket) cstr.invokeExact();
+		} catch (Throwable t) {
+			throw Throwables.propagate(t);
+		}
+	}
+
+	/**
+	 * <p>Create a PacketFactory for the given packet classes.</p>
+	 * @param classes the packet classes, indexed by ID, may contain null for unused IDs
+	 * @param cstrs the constructors, indexed by ID, each of type {@code ()ModPacket}
+	 * @return a PacketFactory
+	 */
+	static PacketFactory create(Class<? extends ModPacket>[] classes, MethodHandle[] cstrs) {
+		try {
+			PacketFactory generated = generate(classes, cstrs);
+			if (generated != null) {
+				return generated;
+			}
+		} catch (Throwable t) {
+			SevenCommons.LOGGER.log(Level.WARNING, "Failed to generate packet dispatcher, falling back to lookup table", t);
+		}
+		return new PacketFactory(cstrs);
+	}
+
+	private static PacketFactory generate(final Class<? extends ModPacket>[] classes, MethodHandle[] cstrs) throws Exception {
+		int count = 0;
+		int[] keys = new int[classes.length];
+		for (int id = 0; id < classes.length; id++) {
+			if (canConstructDirectly(classes[id])) {
+				keys[count++] = id;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		keys = Arrays.copyOf(keys, count);
+
+		String className = SCReflection.nextDynamicClassName(PacketFactory.class.getPackage());
+		final Type superType = Type.getType(PacketFactory.class);
+
+		ClassWriter cw = new ClassWriter(COMPUTE_FRAMES);
+		cw.visit(V1_7, ACC_PUBLIC, className, null, superType.getInternalName(), null);
+
+		Method cstr = getMethod("void <init>(java.lang.invoke.MethodHandle[])");
+		GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, cstr, null, null, cw);
+		gen.visitCode();
+		gen.loadThis();
+		gen.loadArg(0);
+		gen.invokeConstructor(superType, cstr);
+		gen.returnValue();
+		gen.endMethod();
+
+		final Method newPacket = getMethod("de.take_weiland.mods.commons.net.ModPacket newPacket(int)");
+		final GeneratorAdapter sw = new GeneratorAdapter(ACC_PUBLIC, newPacket, null, null, cw);
+		sw.visitCode();
+		sw.loadArg(0);
+		sw.tableSwitch(keys, new TableSwitchGenerator() {
+			@Override
+			public void generateCase(int key, Label end) {
+				Type type = Type.getType(classes[key]);
+				sw.newInstance(type);
+				sw.dup();
+				sw.invokeConstructor(type, getMethod("void <init>()"));
+				sw.returnValue();
+			}
+
+			@Override
+			public void generateDefault() {
+				sw.loadThis();
+				sw.loadArg(0);
+				sw.invokeConstructor(superType, newPacket); // invokespecial, calls the table lookup
+				sw.returnValue();
+			}
+		});
+		sw.endMethod();
+		cw.visitEnd();
+
+		Class<?> clazz = SCReflection.defineDynamicClass(cw.toByteArray(), PacketFactory.class);
+		return (PacketFactory) clazz.getConstructor(MethodHandle[].class).newInstance((Object) cstrs);
+	}
+
+	private static boolean canConstructDirectly(Class<? extends ModPacket> clazz) {
+		if (clazz == null || !Modifier.isPublic(clazz.getModifiers()) || Modifier.isAbstract(clazz.getModifiers())) {
+			return false;
+		}
+		try {
+			clazz.getConstructor();
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+		// the generated class lives in our ClassLoader, it must resolve to the same class
+		try {
+			return Class.forName(clazz.getName(), false, PacketFactory.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.take_weiland.mods.commons.internal;
+
+import net.minecraft.network.packet.Packet;
+
+/**
+ * <p>Pre-serialized wire frames for packets sent to many players.</p>
+ * <p>Vanilla calls {@code writePacketData} once for every connection a packet is sent to, which writes the channel
+ * name char by char each time. Before a packet created by a {@link de.take_weiland.mods.commons.net.PacketHandler}
+ * is sent to multiple players, {@link #prepare(Packet)} serializes everything after the packet ID (channel name,
+ * length and payload) into a single array, which is then written to every connection with a single bulk write.
+ * The packet ID itself is always written by vanilla.</p>
+ *
+ * @author diesieben07
+ */
+public final class PacketFrames {
+
+	/**
+	 * <p>Prepare the given packet to be sent to multiple players.</p>
+	 * @param packet the packet
+	 */
+	public static void prepare(Packet packet) {
+		if (PacketBatcher.isBatchable(packet)) {
+			// will be copied into the batches instead
+			return;
+		}
+		if (packet instanceof Packet250Fake) {
+			((Packet250Fake) packet).prepareFrame();
+		} else if (packet instanceof Packet250FakeNoMP) {
+			((Packet250FakeNoMP) packet).prepareFrame();
+		}
+	}
+
+	/**
+	 * <p>Encode the frame for a custom payload packet, in the format written by
+	 * {@link net.minecraft.network.packet.Packet250CustomPayload#writePacketData(java.io.DataOutput)}.</p>
+	 * @param channel the channel
+	 * @param data the payload
+	 * @param length the length of the payload
+	 * @return the frame
+	 */
+	static byte[] encode(String channel, byte[] data, int length) {
+		int chars = channel.length();
+		if (chars > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Channel name too long");
+		}
+		byte[] frame = new byte[2 + (chars << 1) + 2 + length];
+		int pos = writeShort(frame, 0, chars);
+		for (int i = 0; i < chars; i++) {
+			pos = writeShort(frame, pos, channel.charAt(i));
+		}
+		pos = writeShort(frame, pos, length);
+		System.arraycopy(data, 0, frame, pos, length);
+		return frame;
+	}
+
+	// DataOutput is big endian
+	private static int writeShort(byte[] arr, int pos, int s) {
+		arr[pos] = (byte) (s >>> 8);
+		arr[pos + 1] = (byte) s;
+		return pos + 2;
+	}
+
+	private PacketFrames() { }
+}
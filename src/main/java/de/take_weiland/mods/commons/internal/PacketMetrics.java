@@ -0,0 +1,189 @@
+package de.take_weiland.mods.commons.internal;
+
+import com.google.common.collect.ImmutableList;
+import de.take_weiland.mods.commons.internal.FMLPacketHandlerImpl.ModPacketInfo;
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.net.TrafficStats;
+import net.minecraft.network.packet.Packet;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Registry of the traffic counters for every packet channel and every ModPacket class.</p>
+ * <p>Metrics are enabled with {@code -Dsevencommons.net.metrics=true}. All recording calls must be guarded by
+ * {@link #ENABLED}, which is constant, so the checks are removed by the JIT if metrics are disabled.</p>
+ *
+ * @author diesieben07
+ */
+public final class PacketMetrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("sevencommons.net.metrics");
+
+	private static final ConcurrentMap<String, Counters> channels = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Class<? extends ModPacket>, Counters> packets = new ConcurrentHashMap<>();
+
+	static Counters forChannel(String channel) {
+		return getOrCreate(channels, channel, channel);
+	}
+
+	static Counters forPacket(Class<? extends ModPacket> clazz) {
+		return getOrCreate(packets, clazz, clazz.getName());
+	}
+
+	private static <K> Counters getOrCreate(ConcurrentMap<K, Counters> map, K key, String name) {
+		Counters counters = map.get(key);
+		if (counters == null) {
+			Counters newCounters = new Counters(name);
+			counters = map.putIfAbsent(key, newCounters);
+			if (counters == null) {
+				counters = newCounters;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * <p>Take a snapshot of the counters of all channels.</p>
+	 * @return a snapshot
+	 */
+	public static List<TrafficStats> channelSnapshot() {
+		return snapshot(channels.values());
+	}
+
+	/**
+	 * <p>Take a snapshot of the counters of all ModPacket classes.</p>
+	 * @return a snapshot
+	 */
+	public static List<TrafficStats> packetSnapshot() {
+		return snapshot(packets.values());
+	}
+
+	private static List<TrafficStats> snapshot(Collection<Counters> counters) {
+		ImmutableList.Builder<TrafficStats> builder = ImmutableList.builder();
+		for (Counters c : counters) {
+			builder.add(c.snapshot());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * <p>Record a packet that has been written to a connection.</p>
+	 */
+	static void recordSent(Packet packet) {
+		if (packet instanceof Packet250Fake) {
+			((Packet250Fake) packet).recordSent();
+		} else if (packet instanceof Packet250FakeNoMP) {
+			((Packet250FakeNoMP) packet).recordSent();
+		}
+	}
+
+	static void recordDecode(ModPacketInfo info, long nanos) {
+		info.traffic.decodeNanos.addAndGet(nanos);
+		info.handler.traffic.decodeNanos.addAndGet(nanos);
+	}
+
+	static void recordException(ModPacketInfo info) {
+		info.traffic.exceptions.incrementAndGet();
+		info.handler.traffic.exceptions.incrementAndGet();
+	}
+
+	static final class Counters {
+
+		private final String name;
+		final AtomicLong packetsIn = new AtomicLong();
+		final AtomicLong packetsOut = new AtomicLong();
+		final AtomicLong bytesIn = new AtomicLong();
+		final AtomicLong bytesOut = new AtomicLong();
+		final AtomicLong encodeNanos = new AtomicLong();
+		final AtomicLong decodeNanos = new AtomicLong();
+		final AtomicLong exceptions = new AtomicLong();
+
+		Counters(String name) {
+			this.name = name;
+		}
+
+		void recordIn(int bytes) {
+			packetsIn.incrementAndGet();
+			bytesIn.addAndGet(bytes);
+		}
+
+		void recordOut(int bytes) {
+			packetsOut.incrementAndGet();
+			bytesOut.addAndGet(bytes);
+		}
+
+		Snapshot snapshot() {
+			return new Snapshot(name, packetsIn.get(), packetsOut.get(), bytesIn.get(), bytesOut.get(),
+					encodeNanos.get(), decodeNanos.get(), exceptions.get());
+		}
+	}
+
+	private static final class Snapshot implements TrafficStats {
+
+		private final String name;
+		private final long packetsIn;
+		private final long packetsOut;
+		private final long bytesIn;
+		private final long bytesOut;
+		private final long encodeNanos;
+		private final long decodeNanos;
+		private final long exceptions;
+
+		Snapshot(String name, long packetsIn, long packetsOut, long bytesIn, long bytesOut, long encodeNanos, long decodeNanos, long exceptions) {
+			this.name = name;
+			this.packetsIn = packetsIn;
+			this.packetsOut = packetsOut;
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+			this.encodeNanos = encodeNanos;
+			this.decodeNanos = decodeNanos;
+			this.exceptions = exceptions;
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public long packetsIn() {
+			return packetsIn;
+		}
+
+		@Override
+		public long packetsOut() {
+			return packetsOut;
+		}
+
+		@Override
+		public long bytesIn() {
+			return bytesIn;
+		}
+
+		@Override
+		public long bytesOut() {
+			return bytesOut;
+		}
+
+		@Override
+		public long encodeNanos() {
+			return encodeNanos;
+		}
+
+		@Override
+		public long decodeNanos() {
+			return decodeNanos;
+		}
+
+		@Override
+		public long exceptions() {
+			return exceptions;
+		}
+	}
+
+	private PacketMetrics() { }
+}
@@ -0,0 +1,116 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.net.PacketSizeStats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Keeps a rolling window of the encoded sizes of a ModPacket class and derives a high percentile from it, which is used
+ * as the initial buffer capacity for that class.</p>
+ *
+ * @author diesieben07
+ */
+final class PacketSizeTracker implements PacketSizeStats {
+
+	private static final int WINDOW = 32;
+	private static final int RECOMPUTE_EVERY = 8;
+	private static final int PERCENTILE_IDX = (WINDOW * 9) / 10; // ~90th percentile
+	private static final int MIN_SIZE = 8;
+	private static final int DEFAULT_SIZE = 32 + 1; // ModPacket.expectedSize() + packetID
+
+	private final Class<? extends ModPacket> clazz;
+	private final boolean adaptive;
+
+	private final int[] samples = new int[WINDOW];
+	private final int[] sortBuf = new int[WINDOW];
+	private int sampleCount;
+	private int nextSample;
+	private volatile int learned = DEFAULT_SIZE;
+
+	private final AtomicLong packets = new AtomicLong();
+	private final AtomicLong growEvents = new AtomicLong();
+
+	/**
+	 * @param exactSize true if {@link ModPacket#expectedSize()} is exact, because the packet is written by a generated codec
+	 */
+	PacketSizeTracker(Class<? extends ModPacket> clazz, boolean exactSize) {
+		this.clazz = clazz;
+		this.adaptive = !exactSize && !overridesExpectedSize(clazz);
+	}
+
+	private static boolean overridesExpectedSize(Class<?> clazz) {
+		try {
+			return clazz.getMethod("expectedSize").getDeclaringClass() != ModPacket.class;
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e); // impossible
+		}
+	}
+
+	/**
+	 * <p>The initial capacity for a new packet buffer.</p>
+	 * @param packet the packet about to be written
+	 * @return the initial capacity
+	 */
+	int initialCapacity(ModPacket packet) {
+		return adaptive ? learned : packet.expectedSize() + 1; // packetID should rarely take more than one byte (more than 127)
+	}
+
+	/**
+	 * <p>Record the final size of an encoded packet.</p>
+	 * @param size the encoded size
+	 * @param grown whether the buffer had to be grown
+	 */
+	void record(int size, boolean grown) {
+		packets.incrementAndGet();
+		if (grown) {
+			growEvents.incrementAndGet();
+		}
+		if (adaptive) {
+			synchronized (this) {
+				samples[nextSample] = size;
+				nextSample = (nextSample + 1) % WINDOW;
+				if (sampleCount < WINDOW) {
+					sampleCount++;
+				}
+				// recompute eagerly until the window is full, after that only every few packets
+				if (grown || sampleCount < WINDOW || nextSample % RECOMPUTE_EVERY == 0) {
+					recompute();
+				}
+			}
+		}
+	}
+
+	private void recompute() {
+		int n = sampleCount;
+		System.arraycopy(samples, 0, sortBuf, 0, n);
+		Arrays.sort(sortBuf, 0, n);
+		learned = Math.max(MIN_SIZE, sortBuf[Math.min(n - 1, (n * PERCENTILE_IDX) / WINDOW)]);
+	}
+
+	@Override
+	public Class<? extends ModPacket> packetClass() {
+		return clazz;
+	}
+
+	@Override
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	@Override
+	public int learnedSize() {
+		return learned;
+	}
+
+	@Override
+	public long packets() {
+		return packets.get();
+	}
+
+	@Override
+	public long growEvents() {
+		return growEvents.get();
+	}
+}
@@ -0,0 +1,103 @@
+package de.take_weiland.mods.commons.internal;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetServerHandler;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>A spatial index of the players in every server World, used to find players near a position without checking
+ * every player in the World.</p>
+ * <p>The index contains the connections, so that it stays valid when a player respawns. It is updated every time
+ * a player entity is ticked, which is usually once per tick after a movement packet has been received. Since the
+ * positions might be one tick old, buckets within {@link #MAX_MOVE} blocks of the search area are checked as well.
+ * Larger jumps only happen when the server sets the location of a player (logging in, respawning, changing dimension
+ * and teleporting), which updates the index immediately (see {@link ASMHooks#onSetPlayerLocation}).</p>
+ * <p>The index must only be accessed from the server thread, {@link #isAvailable()} checks that.</p>
+ *
+ * @author diesieben07
+ */
+public final class PlayerGrid {
+
+	private static final double MAX_MOVE = 8;
+
+	private static final Map<World, ChunkGrid<NetServerHandler>> grids = new WeakHashMap<>();
+	private static final Map<NetServerHandler, ChunkGrid<NetServerHandler>> gridOf = new IdentityHashMap<>();
+	private static final List<NetServerHandler> candidates = new ArrayList<>();
+
+	/**
+	 * <p>Check if the index can be used from the current thread.</p>
+	 * @return true if this is the server thread
+	 */
+	public static boolean isAvailable() {
+		return PacketBatcher.isServerThread();
+	}
+
+	/**
+	 * <p>Add all players in the given World within the given radius around the given position to the list.</p>
+	 * @param world the World
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @param radius the radius
+	 * @param out the list to add the players to
+	 */
+	public static void playersWithin(World world, double x, double y, double z, double radius, List<? super EntityPlayerMP> out) {
+		ChunkGrid<NetServerHandler> grid = grids.get(world);
+		if (grid == null) {
+			return;
+		}
+		List<NetServerHandler> candidates = PlayerGrid.candidates;
+		try {
+			grid.collect(x, z, radius + MAX_MOVE, candidates);
+			double radiusSq = radius * radius;
+			for (int i = 0, len = candidates.size(); i < len; i++) {
+				NetServerHandler nsh = candidates.get(i);
+				EntityPlayerMP player = nsh.playerEntity;
+				if (nsh.connectionClosed || player.worldObj != world) {
+					continue;
+				}
+				double dx = x - player.posX;
+				double dy = y - player.posY;
+				double dz = z - player.posZ;
+				if (dx * dx + dy * dy + dz * dz < radiusSq) {
+					out.add(player);
+				}
+			}
+		} finally {
+			candidates.clear();
+		}
+	}
+
+	static void update(EntityPlayerMP player) {
+		NetServerHandler nsh = player.playerNetServerHandler;
+		if (nsh == null || nsh.playerEntity != player) {
+			// fake players or an old entity after respawning
+			return;
+		}
+		ChunkGrid<NetServerHandler> grid = grids.get(player.worldObj);
+		if (grid == null) {
+			grids.put(player.worldObj, grid = new ChunkGrid<>());
+		}
+		ChunkGrid<NetServerHandler> old = gridOf.put(nsh, grid);
+		if (old != null && old != grid) {
+			old.remove(nsh);
+		}
+		grid.put(nsh, player.posX, player.posZ);
+	}
+
+	static void remove(EntityPlayerMP player) {
+		NetServerHandler nsh = player.playerNetServerHandler;
+		ChunkGrid<NetServerHandler> grid = gridOf.remove(nsh);
+		if (grid != null) {
+			grid.remove(nsh);
+		}
+	}
+
+	private PlayerGrid() { }
+}
@@ -0,0 +1,98 @@
+package de.take_weiland.mods.commons.internal;
+
+import com.google.common.primitives.Longs;
+import de.take_weiland.mods.commons.net.TrafficStats;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatMessageComponent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>The {@code /sc} command.</p>
+ * <p>{@code /sc netstats [channels|packets] [count]} lists the channels or packet classes with the most traffic.</p>
+ *
+ * @author diesieben07
+ */
+public final class SCCommand extends CommandBase {
+
+	private static final int DEFAULT_COUNT = 10;
+
+	@Override
+	public String getCommandName() {
+		return "sc";
+	}
+
+	@Override
+	public String getCommandUsage(ICommandSender sender) {
+		return "/sc netstats [channels|packets] [count]";
+	}
+
+	@Override
+	public void processCommand(ICommandSender sender, String[] args) {
+		if (args.length == 0 || !args[0].equals("netstats")) {
+			throw new WrongUsageException(getCommandUsage(sender));
+		}
+		if (!PacketMetrics.ENABLED) {
+			send(sender, "Network metrics are disabled, enable them with -Dsevencommons.net.metrics=true");
+			return;
+		}
+
+		boolean packets = false;
+		int count = DEFAULT_COUNT;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("packets")) {
+				packets = true;
+			} else if (!args[i].equals("channels")) {
+				count = parseIntBounded(sender, args[i], 1, 100);
+			}
+		}
+
+		List<TrafficStats> stats = new ArrayList<>(packets ? PacketMetrics.packetSnapshot() : PacketMetrics.channelSnapshot());
+		Collections.sort(stats, byTotalBytes);
+
+		send(sender, String.format("Top %d %s by traffic:", Math.min(count, stats.size()), packets ? "packets" : "channels"));
+		for (int i = 0, len = Math.min(count, stats.size()); i < len; i++) {
+			TrafficStats s = stats.get(i);
+			send(sender, String.format("%s: in %d (%s), out %d (%s), enc %.1fms, dec %.1fms, errors %d",
+					s.name(), s.packetsIn(), bytes(s.bytesIn()), s.packetsOut(), bytes(s.bytesOut()),
+					s.encodeNanos() / 1e6, s.decodeNanos() / 1e6, s.exceptions()));
+		}
+	}
+
+	@Override
+	public List<?> addTabCompletionOptions(ICommandSender sender, String[] args) {
+		if (args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, "netstats");
+		} else if (args.length == 2 && args[0].equals("netstats")) {
+			return getListOfStringsMatchingLastWord(args, "channels", "packets");
+		}
+		return null;
+	}
+
+	private static String bytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		} else if (bytes < 1024 * 1024) {
+			return String.format("%.1f KiB", bytes / 1024d);
+		} else {
+			return String.format("%.1f MiB", bytes / (1024d * 1024d));
+		}
+	}
+
+	private static void send(ICommandSender sender, String msg) {
+		sender.sendChatToPlayer(ChatMessageComponent.createFromText(msg));
+	}
+
+	private static final Comparator<TrafficStats> byTotalBytes = new Comparator<TrafficStats>() {
+		@Override
+		public int compare(TrafficStats o1, TrafficStats o2) {
+			return Longs.compare(o2.bytesIn() + o2.bytesOut(), o1.bytesIn() + o1.bytesOut());
+		}
+	};
+
+}
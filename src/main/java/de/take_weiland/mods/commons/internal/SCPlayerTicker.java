@@ -3,6 +3,7 @@ package de.take_weiland.mods.commons.internal;
 import cpw.mods.fml.common.ITickHandler;
 import cpw.mods.fml.common.TickType;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.item.ItemStack;
 
 import java.util.EnumSet;
@@ -27,7 +28,11 @@ public final class SCPlayerTicker implements ITickHandler {
 	}
 
 	@Override
-	public void tickEnd(EnumSet<TickType> type, Object... tickData) { }
+	public void tickEnd(EnumSet<TickType> type, Object... tickData) {
+		if (tickData[0] instanceof EntityPlayerMP) {
+			PlayerGrid.update((EntityPlayerMP) tickData[0]);
+		}
+	}
 
 	private static final EnumSet<TickType> ticks = EnumSet.of(TickType.PLAYER);
 	@Override
@@ -2,6 +2,7 @@ package de.take_weiland.mods.commons.internal;
 
 import cpw.mods.fml.common.IPlayerTracker;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 
 /**
  * @author diesieben07
@@ -23,5 +24,9 @@ public final class SCPlayerTracker implements IPlayerTracker {
     public void onPlayerChangedDimension(EntityPlayer entityPlayer) { }
 
     @Override
-    public void onPlayerLogout(EntityPlayer entityPlayer) { }
+    public void onPlayerLogout(EntityPlayer entityPlayer) {
+        if (entityPlayer instanceof EntityPlayerMP) {
+            PlayerGrid.remove((EntityPlayerMP) entityPlayer);
+        }
+    }
 }
@@ -22,6 +22,16 @@ public class ServerProxy implements SevenCommonsProxy {
 		throw new IllegalStateException("Server cannot send Packet to itself!");
 	}
 
+	@Override
+	public boolean isServerLocal() {
+		return false;
+	}
+
+	@Override
+	public boolean isLocalConnection(INetworkManager manager) {
+		return false;
+	}
+
 	@Override
 	public EntityPlayer getClientPlayer() {
 		throw new IllegalStateException("Server has no client player!");
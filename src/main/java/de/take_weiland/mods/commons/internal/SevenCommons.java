@@ -8,7 +8,9 @@ import cpw.mods.fml.client.FMLFileResourcePack;
 import cpw.mods.fml.client.FMLFolderResourcePack;
 import cpw.mods.fml.common.*;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
+import cpw.mods.fml.common.event.FMLServerStartingEvent;
 import cpw.mods.fml.common.event.FMLStateEvent;
+import cpw.mods.fml.common.network.NetworkRegistry;
 import cpw.mods.fml.common.registry.GameRegistry;
 import cpw.mods.fml.common.registry.TickRegistry;
 import cpw.mods.fml.relauncher.Side;
@@ -103,6 +105,11 @@ public final class SevenCommons extends DummyModContainer {
 		Reflection.initialize(Scheduler.class);
 
 		TickRegistry.registerTickHandler(new SCPlayerTicker(), Side.SERVER);
+
+		PacketBatcher batcher = new PacketBatcher();
+		NetworkRegistry.instance().registerChannel(batcher, PacketBatcher.CHANNEL);
+		// always needed to know the server thread and to flush SyncBatcher
+		TickRegistry.registerTickHandler(batcher, Side.SERVER);
 		GameRegistry.registerPlayerTracker(new SCPlayerTracker());
 
 		proxy.preInit(event);
@@ -111,6 +118,11 @@ public final class SevenCommons extends DummyModContainer {
 		ToNbtFactories.registerFactory(Object.class, new DefaultNBTSerializers());
 	}
 
+	@Subscribe
+	public void serverStarting(FMLServerStartingEvent event) {
+		event.registerServerCommand(new SCCommand());
+	}
+
 	@Override
 	public File getSource() {
 		return SevenCommonsLoader.source;
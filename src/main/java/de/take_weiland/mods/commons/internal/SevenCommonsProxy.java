@@ -14,6 +14,10 @@ public interface SevenCommonsProxy {
 
 	void sendPacketToServer(Packet p);
 
+	boolean isServerLocal();
+
+	boolean isLocalConnection(INetworkManager manager);
+
 	EntityPlayer getClientPlayer();
 
 	String translate(String key);
@@ -8,6 +8,7 @@ import net.minecraft.client.multiplayer.NetClientHandler;
 import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.network.INetworkManager;
+import net.minecraft.network.MemoryConnection;
 import net.minecraft.network.packet.NetHandler;
 import net.minecraft.network.packet.Packet;
 import net.minecraftforge.client.event.GuiOpenEvent;
@@ -40,6 +41,17 @@ public final class ClientProxy implements SevenCommonsProxy {
 		mc.getNetHandler().addToSendQueue(p);
 	}
 
+	@Override
+	public boolean isServerLocal() {
+		NetClientHandler nch = mc.getNetHandler();
+		return nch != null && nch.getNetManager() instanceof MemoryConnection;
+	}
+
+	@Override
+	public boolean isLocalConnection(INetworkManager manager) {
+		return manager instanceof MemoryConnection;
+	}
+
 	@Override
 	public EntityPlayer getClientPlayer() {
 		return mc.thePlayer;
@@ -3,18 +3,25 @@ package de.take_weiland.mods.commons.internal.sync;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
+import com.google.common.primitives.Primitives;
 import com.google.common.primitives.UnsignedBytes;
+import com.google.common.reflect.Reflection;
 import de.take_weiland.mods.commons.asm.ASMUtils;
+import de.take_weiland.mods.commons.internal.SevenCommonsLoader;
+import de.take_weiland.mods.commons.internal.transformers.sync.DirtyTrackingHook;
+import de.take_weiland.mods.commons.nbt.ToNbt;
 import de.take_weiland.mods.commons.net.MCDataInput;
 import de.take_weiland.mods.commons.net.MCDataOutput;
 import de.take_weiland.mods.commons.reflect.SCReflection;
 import de.take_weiland.mods.commons.serialize.Property;
+import de.take_weiland.mods.commons.sync.Sync;
 import de.take_weiland.mods.commons.sync.Syncer;
 import de.take_weiland.mods.commons.util.UnsignedShorts;
 import net.minecraft.entity.Entity;
 import net.minecraft.inventory.Container;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.common.IExtendedEntityProperties;
+import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Type;
@@ -25,13 +32,22 @@ import org.objectweb.asm.commons.TableSwitchGenerator;
 import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static java.lang.invoke.MethodType.methodType;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.Opcodes.*;
 import static org.objectweb.asm.Type.*;
+import static org.objectweb.asm.commons.GeneratorAdapter.EQ;
+import static org.objectweb.asm.commons.GeneratorAdapter.LT;
 import static org.objectweb.asm.commons.GeneratorAdapter.NE;
 import static org.objectweb.asm.commons.Method.getMethod;
 
@@ -44,6 +60,9 @@ public final class BytecodeEmittingCompanionGenerator {
     private static final String COMPANION = "com";
     private static final String GETTER = "get";
     private static final String SETTER = "set";
+    private static final String LAST_SENT = "last";
+
+    private static final Logger logger = SevenCommonsLoader.scLogger("SyncSystem");
 
     private final DefaultCompanionFactory factory;
     private final Class<?> clazz;
@@ -53,6 +72,10 @@ public final class BytecodeEmittingCompanionGenerator {
     private Class<?> superClass;
     private ClassWriter cw;
     private final Map<Property<?, ?>, Syncer<?, ?>> properties;
+    private final Map<Property<?, ?>, Member> directGetters = new HashMap<>();
+    private final Map<Property<?, ?>, Member> directSetters = new HashMap<>();
+    private final Map<Property<?, ?>, Long> dirtyBits = new HashMap<>();
+    private boolean inTargetPackage;
     private int firstID;
 
     BytecodeEmittingCompanionGenerator(DefaultCompanionFactory factory, Class<?> clazz, Map<Property<?, ?>, Syncer<?, ?>> properties) {
@@ -62,6 +85,23 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     Class<?> generateCompanion() {
+        String pkg = Reflection.getPackageName(clazz);
+        if (!pkg.isEmpty() && clazz.getClassLoader() != null) {
+            try {
+                return generateCompanion(true);
+            } catch (SecurityException e) {
+                // sealed or signed package, only code from the same jar may be defined in it
+                logger.log(Level.FINE, "Could not define companion in the package of " + clazz.getName() + ", using MethodHandles", e);
+                directGetters.clear();
+                directSetters.clear();
+                dirtyBits.clear();
+            }
+        }
+        return generateCompanion(false);
+    }
+
+    private Class<?> generateCompanion(boolean inTargetPackage) {
+        this.inTargetPackage = inTargetPackage;
         beginClass();
 
         makeFields();
@@ -76,7 +116,11 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     private void beginClass() {
-        className = SCReflection.nextDynamicClassName(BytecodeEmittingCompanionGenerator.class.getPackage());
+        // define the companion next to the synced class if possible, so that it can access non-public members directly
+        String pkg = inTargetPackage ? Reflection.getPackageName(clazz) : BytecodeEmittingCompanionGenerator.class.getPackage().getName();
+        className = SCReflection.nextDynamicClassName(pkg);
+        findDirectAccessors();
+        findDirtyBits();
 
         superClass = findAppropriateSuperClass();
         superName = Type.getInternalName(superClass);
@@ -103,6 +147,96 @@ public final class BytecodeEmittingCompanionGenerator {
         }
     }
 
+    private void findDirectAccessors() {
+        for (Property<?, ?> property : properties.keySet()) {
+            Member member = property.getMember();
+            if (isAccessible(member)) {
+                directGetters.put(property, member);
+            }
+
+            Member setter;
+            if (member instanceof Field) {
+                setter = Modifier.isFinal(member.getModifiers()) ? null : member;
+            } else {
+                setter = SCReflection.findSetter((java.lang.reflect.Method) member);
+            }
+            if (setter != null && isAccessible(setter)) {
+                directSetters.put(property, setter);
+            }
+        }
+    }
+
+    private void findDirtyBits() {
+        // see DirtyTrackingHook, the field is only present if the class has been transformed
+        try {
+            clazz.getDeclaredField(DirtyTrackingHook.DIRTY_FIELD);
+        } catch (NoSuchFieldException e) {
+            return;
+        }
+        if (!isAccessible(clazz.getModifiers(), clazz)) {
+            return;
+        }
+
+        List<String> syncedFields = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            if (isTracked(field) && field.isAnnotationPresent(Sync.class)) {
+                syncedFields.add(field.getName());
+            }
+        }
+
+        for (Property<?, ?> property : properties.keySet()) {
+            Member member = property.getMember();
+            // properties with a mutable type can change without the field being written to
+            // rate limited properties need to be looked at again when their update has been deferred
+            if (member instanceof Field && member.getDeclaringClass() == clazz && isTracked((Field) member)
+                    && isImmutable(property.getRawType()) && !isRateLimited(property)) {
+                dirtyBits.put(property, 1L << DirtyTrackingHook.bitIndex(syncedFields, member.getName()));
+            }
+        }
+    }
+
+    private static boolean isTracked(Field field) {
+        // the reflection modifiers have the same values as the access flags
+        return DirtyTrackingHook.isTracked(field.getModifiers(), field.isAnnotationPresent(ToNbt.class));
+    }
+
+    private static boolean isRateLimited(Property<?, ?> property) {
+        Sync sync = property.getAnnotation(Sync.class);
+        return sync != null && (sync.interval() > 0 || sync.threshold() > 0);
+    }
+
+    private static boolean hasThreshold(Property<?, ?> property, Syncer<?, ?> syncer) {
+        Sync sync = property.getAnnotation(Sync.class);
+        Class<?> raw = property.getRawType();
+        return sync != null && sync.threshold() > 0
+                && raw.isPrimitive() && raw != boolean.class && raw != char.class
+                && (specializedSyncerType(property, syncer) != null || syncer.getCompanionType() == raw);
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || Primitives.isWrapperType(type) || type == String.class || type.isEnum();
+    }
+
+    private boolean isAccessible(Member member) {
+        Class<?> owner = member.getDeclaringClass();
+        if (Modifier.isStatic(member.getModifiers()) || owner.isInterface()) {
+            return false;
+        }
+        return isAccessible(owner.getModifiers(), owner) && isAccessible(member.getModifiers(), owner);
+    }
+
+    private boolean isAccessible(int modifiers, Class<?> owner) {
+        if (Modifier.isPublic(modifiers)) {
+            return true;
+        } else if (Modifier.isPrivate(modifiers)) {
+            return false;
+        } else {
+            // package-private or protected, the companion is not a subclass so it needs to be in the same runtime package
+            return inTargetPackage && owner.getClassLoader() == clazz.getClassLoader()
+                    && Reflection.getPackageName(owner).equals(Reflection.getPackageName(clazz));
+        }
+    }
+
     private boolean isIEEP() {
         return IExtendedEntityProperties.class.isAssignableFrom(clazz);
     }
@@ -116,13 +250,20 @@ public final class BytecodeEmittingCompanionGenerator {
             String descMH = Type.getDescriptor(MethodHandle.class);
 
             cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, getPropertyID(property, SYNCER), descSyncer, null, null);
-            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, getPropertyID(property, GETTER), descMH, null, null);
-            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, getPropertyID(property, SETTER), descMH, null, null);
+            if (!directGetters.containsKey(property)) {
+                cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, getPropertyID(property, GETTER), descMH, null, null);
+            }
+            if (!directSetters.containsKey(property)) {
+                cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, getPropertyID(property, SETTER), descMH, null, null);
+            }
 
-            Class<?> companionType = syncer.getCompanionType();
+            Class<?> companionType = specializedSyncerType(property, syncer) != null ? property.getRawType() : syncer.getCompanionType();
             if (companionType != null) {
                 cw.visitField(ACC_PRIVATE, getPropertyID(property, COMPANION), Type.getDescriptor(companionType), null, null);
             }
+            if (isRateLimited(property)) {
+                cw.visitField(ACC_PRIVATE, getPropertyID(property, LAST_SENT), INT_TYPE.getDescriptor(), null, null);
+            }
         }
     }
 
@@ -170,6 +311,23 @@ public final class BytecodeEmittingCompanionGenerator {
                 Property<?, ?> property = entry.getKey();
                 Syncer<?, ?> syncer = entry.getValue();
 
+                Class<?> specialized = specializedSyncerType(property, syncer);
+                if (specialized != null) {
+                    Type propertyType = Type.getType(property.getRawType());
+                    String typeName = primitiveName(property.getRawType());
+
+                    prepareSetValue(gen, property);
+                    gen.getStatic(myType, getPropertyID(property, SYNCER), syncerType);
+                    gen.checkCast(Type.getType(specialized));
+                    loadValue(gen, property);
+                    gen.loadArg(inStreamArg);
+                    gen.invokeInterface(Type.getType(specialized), new Method("read" + typeName, propertyType, new Type[] { propertyType, mcDataInType }));
+                    doSetValue(gen, property);
+
+                    gen.goTo(end);
+                    return;
+                }
+
                 boolean hasCompanion = syncer.getCompanionType() != null;
                 Type companionType = hasCompanion ? Type.getType(syncer.getCompanionType()) : null;
 
@@ -214,6 +372,19 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     private void loadValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Member getter = directGetters.get(property);
+        if (getter != null) {
+            Type owner = Type.getType(getter.getDeclaringClass());
+            gen.loadArg(0);
+            gen.checkCast(owner);
+            if (getter instanceof Field) {
+                gen.getField(owner, getter.getName(), Type.getType(((Field) getter).getType()));
+            } else {
+                gen.invokeVirtual(owner, Method.getMethod((java.lang.reflect.Method) getter));
+            }
+            return;
+        }
+
         Type myType = Type.getObjectType(className);
         Type mhType = Type.getType(MethodHandle.class);
         Type propertyType = Type.getType(property.getRawType());
@@ -225,6 +396,13 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     private void prepareSetValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Member setter = directSetters.get(property);
+        if (setter != null) {
+            gen.loadArg(0);
+            gen.checkCast(Type.getType(setter.getDeclaringClass()));
+            return;
+        }
+
         Type myType = Type.getObjectType(className);
         Type mhType = Type.getType(MethodHandle.class);
 
@@ -233,6 +411,24 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     private void doSetValue(GeneratorAdapter gen, Property<?, ?> property) {
+        Member setter = directSetters.get(property);
+        if (setter != null) {
+            Type owner = Type.getType(setter.getDeclaringClass());
+            if (setter instanceof Field) {
+                gen.putField(owner, setter.getName(), Type.getType(((Field) setter).getType()));
+            } else {
+                Method method = Method.getMethod((java.lang.reflect.Method) setter);
+                gen.invokeVirtual(owner, method);
+                Type returnType = method.getReturnType();
+                if (returnType.getSize() == 2) {
+                    gen.pop2();
+                } else if (returnType.getSize() == 1) {
+                    gen.pop();
+                }
+            }
+            return;
+        }
+
         Type mhType = Type.getType(MethodHandle.class);
         Type propertyType = Type.getType(property.getRawType());
         Type objectType = Type.getType(Object.class);
@@ -314,6 +510,33 @@ public final class BytecodeEmittingCompanionGenerator {
         gen.storeLocal(outStreamID);
 
         Label next = null;
+        Label propertiesEnd = new Label();
+
+        int dirty = -1;
+        if (!dirtyBits.isEmpty()) {
+            dirty = gen.newLocal(LONG_TYPE);
+            gen.loadArg(objectArg);
+            gen.checkCast(valueHolderType);
+            gen.getField(valueHolderType, DirtyTrackingHook.DIRTY_FIELD, LONG_TYPE);
+            gen.storeLocal(dirty);
+
+            if (dirtyBits.size() == properties.size()) {
+                // nothing has been written to, no need to look at any property
+                gen.loadLocal(dirty);
+                gen.push(0L);
+                gen.ifCmp(LONG_TYPE, EQ, propertiesEnd);
+            }
+        }
+
+        int tick = -1;
+        for (Property<?, ?> property : properties.keySet()) {
+            if (isRateLimited(property)) {
+                tick = gen.newLocal(INT_TYPE);
+                gen.invokeStatic(syncHelpersType, getMethod("int currentTick()"));
+                gen.storeLocal(tick);
+                break;
+            }
+        }
 
         SyncType syncType = SyncHelpers.getSyncType(clazz);
 
@@ -327,23 +550,52 @@ public final class BytecodeEmittingCompanionGenerator {
             }
             next = new Label();
 
+            Long dirtyBit = dirtyBits.get(property);
+            if (dirtyBit != null) {
+                gen.loadLocal(dirty);
+                gen.push(dirtyBit);
+                gen.math(GeneratorAdapter.AND, LONG_TYPE);
+                gen.push(0L);
+                gen.ifCmp(LONG_TYPE, EQ, next);
+            }
+
             boolean hasCompanion = syncer.getCompanionType() != null;
             Type companionType = hasCompanion ? Type.getType(syncer.getCompanionType()) : null;
 
-            gen.getStatic(myType, getPropertyID(property, SYNCER), syncerType);
-            loadValue(gen, property);
-            ASMUtils.convertTypes(gen, property.getRawType(), Object.class);
+            Class<?> specialized = specializedSyncerType(property, syncer);
+            Type propertyType = Type.getType(property.getRawType());
+            int value = -1;
 
-            if (hasCompanion) {
+            if (specialized != null) {
+                // compare the primitive value directly to the companion, no boxing and no call to equal
+                value = gen.newLocal(propertyType);
+                loadValue(gen, property);
+                gen.storeLocal(value);
+
+                gen.loadLocal(value);
                 gen.loadThis();
-                gen.getField(myType, getPropertyID(property, COMPANION), companionType);
-                ASMUtils.convertTypes(gen, syncer.getCompanionType(), Object.class);
+                gen.getField(myType, getPropertyID(property, COMPANION), propertyType);
+                makePrimitiveCompare(gen, propertyType, next);
             } else {
-                gen.push((String) null); // type doesnt matter
+                gen.getStatic(myType, getPropertyID(property, SYNCER), syncerType);
+                loadValue(gen, property);
+                ASMUtils.convertTypes(gen, property.getRawType(), Object.class);
+
+                if (hasCompanion) {
+                    gen.loadThis();
+                    gen.getField(myType, getPropertyID(property, COMPANION), companionType);
+                    ASMUtils.convertTypes(gen, syncer.getCompanionType(), Object.class);
+                } else {
+                    gen.push((String) null); // type doesnt matter
+                }
+
+                gen.invokeInterface(syncerType, getMethod("boolean equal(Object, Object)"));
+                gen.ifZCmp(NE, next);
             }
 
-            gen.invokeInterface(syncerType, getMethod("boolean equal(Object, Object)"));
-            gen.ifZCmp(NE, next);
+            if (isRateLimited(property)) {
+                makeRateLimit(gen, property, syncer, value, tick, next);
+            }
 
             Label nonNull = new Label();
             gen.loadLocal(outStreamID);
@@ -376,9 +628,22 @@ public final class BytecodeEmittingCompanionGenerator {
 
             gen.loadThis();
             gen.loadLocal(outStreamID);
-            gen.push(firstID + index);
+            gen.push(firstID + index++);
             gen.invokeVirtual(myType, writeIDMethod());
 
+            if (specialized != null) {
+                gen.getStatic(myType, getPropertyID(property, SYNCER), syncerType);
+                gen.checkCast(Type.getType(specialized));
+                gen.loadLocal(value);
+                gen.loadLocal(outStreamID);
+                gen.invokeInterface(Type.getType(specialized), new Method("write" + primitiveName(property.getRawType()), VOID_TYPE, new Type[] { propertyType, mcDataOutType }));
+
+                gen.loadThis();
+                gen.loadLocal(value);
+                gen.putField(myType, getPropertyID(property, COMPANION), propertyType);
+                continue;
+            }
+
             if (hasCompanion) {
                 gen.loadThis(); // for companion set
             }
@@ -406,6 +671,14 @@ public final class BytecodeEmittingCompanionGenerator {
         if (next != null) {
             gen.mark(next);
         }
+        gen.mark(propertiesEnd);
+        if (dirty != -1) {
+            gen.loadArg(objectArg);
+            gen.checkCast(valueHolderType);
+            gen.push(0L);
+            gen.putField(valueHolderType, DirtyTrackingHook.DIRTY_FIELD, LONG_TYPE);
+        }
+
         Label end = new Label();
         gen.loadArg(1);
         gen.ifZCmp(NE, end);
@@ -438,9 +711,8 @@ public final class BytecodeEmittingCompanionGenerator {
                 break;
             case ENTITY_PROPS:
                 gen.loadThis();
-                gen.getField(ieepCompType, "_sc$entity", entityType);
                 gen.loadLocal(outStreamID);
-                gen.invokeStatic(syncHelpersType, new Method("sendStream", VOID_TYPE, new Type[] { entityType, mcDataOutType }));
+                gen.invokeStatic(syncHelpersType, new Method("sendStream", VOID_TYPE, new Type[] { ieepCompType, mcDataOutType }));
                 break;
         }
 
@@ -450,6 +722,103 @@ public final class BytecodeEmittingCompanionGenerator {
         gen.endMethod();
     }
 
+    // the property has changed, jumps to skip if the update should be deferred, otherwise records the current tick
+    private void makeRateLimit(GeneratorAdapter gen, Property<?, ?> property, Syncer<?, ?> syncer, int value, int tick, Label skip) {
+        Type myType = Type.getObjectType(className);
+        Type propertyType = Type.getType(property.getRawType());
+        Sync sync = property.getAnnotation(Sync.class);
+        int interval = sync.interval();
+
+        Label send = new Label();
+        if (hasThreshold(property, syncer)) {
+            Label checkInterval = new Label();
+            if (value != -1) {
+                gen.loadLocal(value);
+            } else {
+                loadValue(gen, property);
+            }
+            gen.cast(propertyType, DOUBLE_TYPE);
+            gen.loadThis();
+            gen.getField(myType, getPropertyID(property, COMPANION), propertyType);
+            gen.cast(propertyType, DOUBLE_TYPE);
+            gen.push(sync.threshold());
+            gen.invokeStatic(Type.getType(SyncHelpers.class), getMethod("boolean isBelowThreshold(double, double, double)"));
+            gen.ifZCmp(EQ, checkInterval);
+
+            // small change, only send it if the property has not been sent for a while
+            gen.loadLocal(tick);
+            gen.loadThis();
+            gen.getField(myType, getPropertyID(property, LAST_SENT), INT_TYPE);
+            gen.math(GeneratorAdapter.SUB, INT_TYPE);
+            gen.push(Math.max(interval, SyncHelpers.THRESHOLD_DELAY));
+            gen.ifICmp(LT, skip);
+            gen.goTo(send);
+
+            gen.mark(checkInterval);
+        }
+        if (interval > 0) {
+            gen.loadLocal(tick);
+            gen.loadThis();
+            gen.getField(myType, getPropertyID(property, LAST_SENT), INT_TYPE);
+            gen.math(GeneratorAdapter.SUB, INT_TYPE);
+            gen.push(interval);
+            gen.ifICmp(LT, skip);
+        }
+        gen.mark(send);
+
+        gen.loadThis();
+        gen.loadLocal(tick);
+        gen.putField(myType, getPropertyID(property, LAST_SENT), INT_TYPE);
+    }
+
+    /**
+     * <p>The specialized Syncer interface (e.g. {@link de.take_weiland.mods.commons.sync.IntSyncer}) to use for the
+     * property or null if the property is not primitive or the Syncer does not implement it.</p>
+     */
+    @Nullable
+    private static Class<?> specializedSyncerType(Property<?, ?> property, Syncer<?, ?> syncer) {
+        Class<?> raw = property.getRawType();
+        if (raw.isPrimitive()) {
+            Class<?> specialized = SyncHelpers.primitiveSyncerType(raw);
+            return specialized.isInstance(syncer) ? specialized : null;
+        } else {
+            return null;
+        }
+    }
+
+    private static String primitiveName(Class<?> primitive) {
+        return StringUtils.capitalize(primitive.getName());
+    }
+
+    // jumps to ifEqual if the two values on the stack are equal
+    private static void makePrimitiveCompare(GeneratorAdapter gen, Type type, Label ifEqual) {
+        switch (type.getSort()) {
+            case Type.LONG:
+                gen.ifCmp(LONG_TYPE, EQ, ifEqual);
+                break;
+            case Type.FLOAT:
+                // compare the bits, so that NaN is equal to itself
+                int tmp = gen.newLocal(FLOAT_TYPE);
+                gen.storeLocal(tmp);
+                gen.invokeStatic(Type.getType(Float.class), getMethod("int floatToIntBits(float)"));
+                gen.loadLocal(tmp);
+                gen.invokeStatic(Type.getType(Float.class), getMethod("int floatToIntBits(float)"));
+                gen.ifICmp(EQ, ifEqual);
+                break;
+            case Type.DOUBLE:
+                tmp = gen.newLocal(DOUBLE_TYPE);
+                gen.storeLocal(tmp);
+                gen.invokeStatic(Type.getType(Double.class), getMethod("long doubleToLongBits(double)"));
+                gen.loadLocal(tmp);
+                gen.invokeStatic(Type.getType(Double.class), getMethod("long doubleToLongBits(double)"));
+                gen.ifCmp(LONG_TYPE, EQ, ifEqual);
+                break;
+            default:
+                gen.ifICmp(EQ, ifEqual);
+                break;
+        }
+    }
+
     private boolean needCallSuper() {
         return superClass != SyncCompanion.class && superClass != IEEPSyncCompanion.class;
     }
@@ -469,27 +838,36 @@ public final class BytecodeEmittingCompanionGenerator {
         gen.invokeStatic(Type.getType(BytecodeEmittingCompanionGenerator.class), getMethod("java.util.Iterator getStaticData()"));
         gen.storeLocal(iterator);
 
+        int data = gen.newLocal(objectArrType);
+
         for (Property<?, ?> property : properties.keySet()) {
             gen.loadLocal(iterator);
             gen.invokeInterface(iteratorType, getMethod("Object next()"));
             gen.checkCast(objectArrType);
+            gen.storeLocal(data);
 
-            gen.dup();
+            gen.loadLocal(data);
             gen.push(0);
             gen.arrayLoad(objectType);
             gen.checkCast(syncerType);
             gen.putStatic(myType, getPropertyID(property, SYNCER), syncerType);
 
-            gen.dup();
-            gen.push(1);
-            gen.arrayLoad(objectType);
-            gen.checkCast(methodHandleType);
-            gen.putStatic(myType, getPropertyID(property, GETTER), methodHandleType);
+            // MethodHandles are only needed for members that cannot be accessed directly
+            if (!directGetters.containsKey(property)) {
+                gen.loadLocal(data);
+                gen.push(1);
+                gen.arrayLoad(objectType);
+                gen.checkCast(methodHandleType);
+                gen.putStatic(myType, getPropertyID(property, GETTER), methodHandleType);
+            }
 
-            gen.push(2);
-            gen.arrayLoad(objectType);
-            gen.checkCast(methodHandleType);
-            gen.putStatic(myType, getPropertyID(property, SETTER), methodHandleType);
+            if (!directSetters.containsKey(property)) {
+                gen.loadLocal(data);
+                gen.push(2);
+                gen.arrayLoad(objectType);
+                gen.checkCast(methodHandleType);
+                gen.putStatic(myType, getPropertyID(property, SETTER), methodHandleType);
+            }
         }
 
         gen.returnValue();
@@ -516,7 +894,7 @@ public final class BytecodeEmittingCompanionGenerator {
             staticProperties = properties;
             try {
                 cw.visitEnd();
-                cls = SCReflection.defineDynamicClass(cw.toByteArray(), BytecodeEmittingCompanionGenerator.class);
+                cls = SCReflection.defineDynamicClass(cw.toByteArray(), inTargetPackage ? clazz : BytecodeEmittingCompanionGenerator.class);
             } finally{
                 staticProperties = null;
             }
@@ -526,8 +904,9 @@ public final class BytecodeEmittingCompanionGenerator {
     }
 
     // called from <clinit> in generated classes, see #finish()
+    // public because the generated classes are usually in a different package
     @SuppressWarnings("unused")
-    static Iterator<Object[]> getStaticData() throws NoSuchFieldException, IllegalAccessException {
+    public static Iterator<Object[]> getStaticData() throws NoSuchFieldException, IllegalAccessException {
         return FluentIterable.from(staticProperties.entrySet())
                 .transform(new Function<Map.Entry<Property<?,?>,Syncer<?,?>>, Object[]>() {
                     @Nullable
@@ -12,16 +12,20 @@ import java.util.logging.Logger;
  * @author diesieben07
  */
 @PacketDirection(PacketDirection.Dir.TO_CLIENT)
+@PacketPriority(PacketPriority.Level.LOW)
 public final class PacketSync extends ModPacket {
 
 	private static final Logger logger = SevenCommonsLoader.scLogger("SyncSystem");
 
 	@Override
     public void read(MCDataInput in, EntityPlayer player, Side side) throws IOException, ProtocolException {
-		SyncType type = in.readEnum(SyncType.class);
-        if (!type.doRead(player, in)) {
-            logger.warning("Received invalid object for syncing!");
-        }
+		// see SyncBatcher for the format
+		while (in.pos() < in.len()) {
+			SyncType type = in.readEnum(SyncType.class);
+			if (!type.doRead(player, in)) {
+				logger.warning("Received invalid object for syncing!");
+			}
+		}
 	}
 
 	@Override
@@ -0,0 +1,213 @@
+package de.take_weiland.mods.commons.internal.sync;
+
+import de.take_weiland.mods.commons.internal.SevenCommons;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.util.Entities;
+import de.take_weiland.mods.commons.util.SCReflector;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.ICrafting;
+import net.minecraft.server.management.PlayerInstance;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.WorldServer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Collects the updates of all synced objects during a server tick and sends them to every player in as few
+ * {@link PacketSync PacketSyncs} as possible at the end of the tick. The updates are flushed by
+ * {@link de.take_weiland.mods.commons.internal.PacketBatcher} right before it sends its own batches, so that they are
+ * still batched with the other packets of the tick.</p>
+ * <p>A PacketSync is a series of records, each starting with the {@link SyncType}:</p>
+ * <ul>
+ *     <li>{@code TILE_ENTITY}: chunk x and z (int), followed by an entry for every TileEntity in that chunk, consisting of the
+ *     VarInt length of the data, the x and z coordinates inside the chunk packed into one byte, the y coordinate
+ *     (unsigned byte) and the data. A length of 0 ends the record.</li>
+ *     <li>{@code ENTITY}: entity ID (int), VarInt length, data</li>
+ *     <li>{@code CONTAINER}: window ID (byte), VarInt length, data</li>
+ *     <li>{@code ENTITY_PROPS}: entity ID (int), VarInt properties ID, VarInt length, data</li>
+ * </ul>
+ * <p>The data of every object is written by its companion to a separate stream and has to be read with
+ * {@link de.take_weiland.mods.commons.net.MCDataInput#readSlice(int)}, so that NBT name references stay within it.</p>
+ * <p>Only accessed from the server thread.</p>
+ *
+ * @author diesieben07
+ */
+public final class SyncBatcher {
+
+    private static final int MAX_PACKET = 32000; // stay below the vanilla limit of 32767
+    private static final int PIECE_SIZE = 8192;
+
+    private static final Map<EntityPlayerMP, PlayerBatch> pending = new IdentityHashMap<>();
+
+    static void add(TileEntity te, MCDataOutput data) {
+        int chunkX = te.xCoord >> 4;
+        int chunkZ = te.zCoord >> 4;
+        PlayerInstance pi = ((WorldServer) te.worldObj).getPlayerManager().getOrCreateChunkWatcher(chunkX, chunkZ, false);
+        if (pi == null) {
+            return;
+        }
+        ChunkCoordIntPair coords = new ChunkCoordIntPair(chunkX, chunkZ);
+        List<EntityPlayerMP> players = SCReflector.instance.getPlayersInChunk(pi);
+        for (int i = 0, len = players.size(); i < len; i++) {
+            EntityPlayerMP player = players.get(i);
+            // same check as PlayerInstance#sendToAllPlayersWatchingChunk
+            if (!player.loadedChunks.contains(coords)) {
+                MCDataOutput out = batchFor(player).forChunk(chunkX, chunkZ).out;
+                out.writeVarInt(data.length());
+                out.writeByte((te.xCoord & 15) << 4 | (te.zCoord & 15));
+                out.writeByte(te.yCoord);
+                out.write(data.backingArray(), 0, data.length());
+            }
+        }
+    }
+
+    static void add(Entity entity, MCDataOutput data) {
+        for (EntityPlayerMP player : Entities.getTrackingPlayers(entity)) {
+            addEntity(player, entity, data);
+        }
+        if (entity instanceof EntityPlayerMP) {
+            addEntity((EntityPlayerMP) entity, entity, data);
+        }
+    }
+
+    private static void addEntity(EntityPlayerMP player, Entity entity, MCDataOutput data) {
+        MCDataOutput out = batchFor(player).misc().out;
+        out.writeEnum(SyncType.ENTITY);
+        out.writeInt(entity.entityId);
+        out.writeVarInt(data.length());
+        out.write(data.backingArray(), 0, data.length());
+    }
+
+    static void add(Container container, MCDataOutput data) {
+        // see Packets#sendToViewing
+        List<ICrafting> crafters = SCReflector.instance.getCrafters(container);
+        for (int i = 0, len = crafters.size(); i < len; ++i) {
+            ICrafting crafter = crafters.get(i);
+            if (crafter instanceof EntityPlayerMP) {
+                MCDataOutput out = batchFor((EntityPlayerMP) crafter).misc().out;
+                out.writeEnum(SyncType.CONTAINER);
+                out.writeByte(container.windowId);
+                out.writeVarInt(data.length());
+                out.write(data.backingArray(), 0, data.length());
+                break;
+            }
+        }
+    }
+
+    static void add(IEEPSyncCompanion companion, MCDataOutput data) {
+        Entity entity = companion._sc$entity;
+        for (EntityPlayerMP player : Entities.getTrackingPlayers(entity)) {
+            addProps(player, companion, data);
+        }
+        if (entity instanceof EntityPlayerMP) {
+            addProps((EntityPlayerMP) entity, companion, data);
+        }
+    }
+
+    private static void addProps(EntityPlayerMP player, IEEPSyncCompanion companion, MCDataOutput data) {
+        MCDataOutput out = batchFor(player).misc().out;
+        out.writeEnum(SyncType.ENTITY_PROPS);
+        out.writeInt(companion._sc$entity.entityId);
+        out.writeVarInt(companion._sc$id);
+        out.writeVarInt(data.length());
+        out.write(data.backingArray(), 0, data.length());
+    }
+
+    private static PlayerBatch batchFor(EntityPlayerMP player) {
+        PlayerBatch batch = pending.get(player);
+        if (batch == null) {
+            pending.put(player, batch = new PlayerBatch());
+        }
+        return batch;
+    }
+
+    /**
+     * <p>Send the updates collected during this tick.</p>
+     */
+    public static void flush() {
+        if (!pending.isEmpty()) {
+            for (Map.Entry<EntityPlayerMP, PlayerBatch> entry : pending.entrySet()) {
+                EntityPlayerMP player = entry.getKey();
+                if (!player.playerNetServerHandler.connectionClosed) {
+                    entry.getValue().send(player);
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    private SyncBatcher() { }
+
+    private static final class PlayerBatch {
+
+        // pieces are kept small, so that they can be packed into packets below the size limit
+        final List<Piece> pieces = new ArrayList<>();
+        final Map<Long, Piece> chunks = new HashMap<>();
+        Piece misc;
+
+        Piece forChunk(int chunkX, int chunkZ) {
+            Long key = ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ);
+            Piece piece = chunks.get(key);
+            if (piece == null || piece.isFull()) {
+                piece = new Piece(true);
+                piece.out.writeEnum(SyncType.TILE_ENTITY);
+                piece.out.writeInt(chunkX);
+                piece.out.writeInt(chunkZ);
+                chunks.put(key, piece);
+                pieces.add(piece);
+            }
+            return piece;
+        }
+
+        Piece misc() {
+            if (misc == null || misc.isFull()) {
+                misc = new Piece(false);
+                pieces.add(misc);
+            }
+            return misc;
+        }
+
+        void send(EntityPlayerMP player) {
+            MCDataOutput packet = null;
+            for (int i = 0, len = pieces.size(); i < len; i++) {
+                Piece piece = pieces.get(i);
+                if (piece.tileEntities) {
+                    piece.out.writeVarInt(0);
+                }
+                if (packet != null && packet.length() + piece.out.length() > MAX_PACKET) {
+                    SevenCommons.packets.makePacket(packet).sendTo(player);
+                    packet = null;
+                }
+                if (packet == null) {
+                    packet = SevenCommons.packets.createStream(SevenCommons.SYNC_PACKET_ID);
+                }
+                packet.write(piece.out.backingArray(), 0, piece.out.length());
+            }
+            if (packet != null) {
+                SevenCommons.packets.makePacket(packet).sendTo(player);
+            }
+        }
+    }
+
+    private static final class Piece {
+
+        final MCDataOutput out = Network.newPooledDataOutput(256);
+        final boolean tileEntities;
+
+        Piece(boolean tileEntities) {
+            this.tileEntities = tileEntities;
+        }
+
+        boolean isFull() {
+            return out.length() >= PIECE_SIZE;
+        }
+    }
+}
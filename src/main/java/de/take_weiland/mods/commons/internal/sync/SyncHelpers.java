@@ -1,9 +1,11 @@
 package de.take_weiland.mods.commons.internal.sync;
 
-import de.take_weiland.mods.commons.internal.SevenCommons;
 import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.sync.*;
 import net.minecraft.entity.Entity;
 import net.minecraft.inventory.Container;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.common.IExtendedEntityProperties;
 
@@ -12,49 +14,79 @@ import net.minecraftforge.common.IExtendedEntityProperties;
  */
 public final class SyncHelpers {
 
+    /**
+     * <p>Changes below the {@linkplain Sync#threshold() threshold} are sent at least this often.</p>
+     */
+    public static final int THRESHOLD_DELAY = 20;
+
+    // the header for the object is written by SyncBatcher
     public static MCDataOutput newOutStream(TileEntity te) {
-        MCDataOutput out = newStream(SyncType.TILE_ENTITY);
-        out.writeInt(te.xCoord);
-        out.writeByte(te.yCoord);
-        out.writeInt(te.zCoord);
-        return out;
+        return newStream();
     }
 
     public static MCDataOutput newOutStream(Entity entity) {
-        MCDataOutput out = newStream(SyncType.ENTITY);
-        out.writeInt(entity.entityId);
-        return out;
+        return newStream();
     }
 
     public static MCDataOutput newOutStream(Container container) {
-        MCDataOutput out = newStream(SyncType.CONTAINER);
-        out.writeByte(container.windowId);
-        return out;
+        return newStream();
     }
 
     public static MCDataOutput newOutStream(IEEPSyncCompanion companion) {
-        MCDataOutput out = newStream(SyncType.ENTITY_PROPS);
-        out.writeInt(companion._sc$entity.entityId);
-        out.writeVarInt(companion._sc$id);
-        return out;
+        return newStream();
     }
 
-    private static MCDataOutput newStream(SyncType syncType) {
-        MCDataOutput out = SevenCommons.packets.createStream(SevenCommons.SYNC_PACKET_ID);
-        out.writeEnum(syncType);
-        return out;
+    private static MCDataOutput newStream() {
+        return Network.newPooledDataOutput(32);
     }
 
     public static void sendStream(TileEntity te, MCDataOutput out) {
-        SevenCommons.packets.makePacket(out).sendToAllTracking(te);
+        SyncBatcher.add(te, out);
     }
 
     public static void sendStream(Entity entity, MCDataOutput out) {
-        SevenCommons.packets.makePacket(out).sendToAllAssociated(entity);
+        SyncBatcher.add(entity, out);
     }
 
     public static void sendStream(Container container, MCDataOutput out) {
-        SevenCommons.packets.makePacket(out).sendToViewing(container);
+        SyncBatcher.add(container, out);
+    }
+
+    public static void sendStream(IEEPSyncCompanion companion, MCDataOutput out) {
+        SyncBatcher.add(companion, out);
+    }
+
+    public static int currentTick() {
+        return MinecraftServer.getServer().getTickCounter();
+    }
+
+    public static boolean isBelowThreshold(double value, double last, double threshold) {
+        return Math.abs(value - last) <= Math.abs(last) * threshold;
+    }
+
+    /**
+     * <p>The specialized Syncer interface for the given primitive type, e.g. {@link IntSyncer} for {@code int}.</p>
+     */
+    public static Class<? extends Syncer> primitiveSyncerType(Class<?> primitive) {
+        if (primitive == boolean.class) {
+            return BooleanSyncer.class;
+        } else if (primitive == byte.class) {
+            return ByteSyncer.class;
+        } else if (primitive == short.class) {
+            return ShortSyncer.class;
+        } else if (primitive == char.class) {
+            return CharSyncer.class;
+        } else if (primitive == int.class) {
+            return IntSyncer.class;
+        } else if (primitive == long.class) {
+            return LongSyncer.class;
+        } else if (primitive == float.class) {
+            return FloatSyncer.class;
+        } else if (primitive == double.class) {
+            return DoubleSyncer.class;
+        } else {
+            throw new IllegalArgumentException("Not a primitive type " + primitive);
+        }
     }
 
     static SyncType getSyncType(Class<?> clazz) {
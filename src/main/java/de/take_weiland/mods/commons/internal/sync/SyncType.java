@@ -17,32 +17,25 @@ enum SyncType {
 	TILE_ENTITY {
         @Override
         public boolean doRead(EntityPlayer player, MCDataInput in) {
-            SyncedObjectProxy te = (SyncedObjectProxy) player.worldObj.getBlockTileEntity(in.readInt(), in.readUnsignedByte(), in.readInt());
-            if (te == null) {
-                return false;
+            int chunkX = in.readInt();
+            int chunkZ = in.readInt();
+            boolean valid = true;
+            int len;
+            while ((len = in.readVarInt()) != 0) {
+                int xz = in.readUnsignedByte();
+                int y = in.readUnsignedByte();
+                Object te = player.worldObj.getBlockTileEntity(chunkX << 4 | xz >> 4, y, chunkZ << 4 | xz & 15);
+                valid &= readData(te, len, in);
             }
-            SyncCompanion companion = te._sc$getCompanion();
-            if (companion == null) {
-                return false;
-            }
-            companion.read(te, in);
-            return true;
+            return valid;
         }
 
     },
 	ENTITY {
         @Override
         public boolean doRead(EntityPlayer player, MCDataInput in) {
-            SyncedObjectProxy entity = (SyncedObjectProxy) player.worldObj.getEntityByID(in.readInt());
-            if (entity == null) {
-                return false;
-            }
-            SyncCompanion companion = entity._sc$getCompanion();
-            if (companion == null) {
-                return false;
-            }
-            companion.read(entity, in);
-            return true;
+            Entity entity = player.worldObj.getEntityByID(in.readInt());
+            return readData(entity, in.readVarInt(), in);
         }
 
     },
@@ -50,12 +43,8 @@ enum SyncType {
         @Override
         public boolean doRead(EntityPlayer player, MCDataInput in) {
             Container container = player.openContainer;
-            SyncCompanion companion = ((SyncedObjectProxy) container)._sc$getCompanion();
-            if (container.windowId != in.readByte() || companion == null) {
-                return false;
-            }
-            companion.read(container, in);
-            return true;
+            boolean windowMatches = container.windowId == in.readByte();
+            return readData(windowMatches ? container : null, in.readVarInt(), in);
         }
 
     },
@@ -64,20 +53,37 @@ enum SyncType {
         public boolean doRead(EntityPlayer player, MCDataInput in) {
             int entityId = in.readInt();
             int propsId = in.readVarInt();
+            MCDataInput data = in.readSlice(in.readVarInt());
 
+            boolean valid = false;
             Entity entity = player.worldObj.getEntityByID(entityId);
-            if (entity == null) {
-                return false;
+            if (entity != null) {
+                List<IEEPSyncCompanion> props = ((EntityProxy) entity)._sc$getPropsCompanions();
+                if (props != null) {
+                    IEEPSyncCompanion companion = JavaUtils.get(props, propsId);
+                    if (companion != null) {
+                        companion.read(companion._sc$ieep, data);
+                        valid = true;
+                    }
+                }
             }
-            List<IEEPSyncCompanion> props = ((EntityProxy) entity)._sc$getPropsCompanions();
-            if (props == null) {
-                return false;
-            }
-            IEEPSyncCompanion companion = JavaUtils.get(props, propsId);
-            companion.read(companion._sc$ieep, in);
-            return true;
+            return valid;
         }
     };
 
+    /**
+     * <p>Read the header for the object and its data, see {@link SyncBatcher} for the format.</p>
+     * @return false if the object could not be found, its data is skipped in that case
+     */
     public abstract boolean doRead(EntityPlayer player, MCDataInput in);
+
+    static boolean readData(Object object, int len, MCDataInput in) {
+        // every object's data is written to its own stream, with its own NBT name dictionary
+        MCDataInput data = in.readSlice(len);
+        SyncCompanion companion = object == null ? null : ((SyncedObjectProxy) object)._sc$getCompanion();
+        if (companion != null) {
+            companion.read(object, data);
+        }
+        return companion != null;
+    }
 }
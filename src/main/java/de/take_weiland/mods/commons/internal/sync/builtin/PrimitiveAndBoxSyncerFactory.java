@@ -1,6 +1,7 @@
 package de.take_weiland.mods.commons.internal.sync.builtin;
 
 import com.google.common.primitives.Primitives;
+import de.take_weiland.mods.commons.internal.sync.SyncHelpers;
 import de.take_weiland.mods.commons.net.MCDataInput;
 import de.take_weiland.mods.commons.net.MCDataOutput;
 import de.take_weiland.mods.commons.reflect.SCReflection;
@@ -30,9 +31,18 @@ final class PrimitiveAndBoxSyncerFactory {
     }
 
     static <V> Syncer<V, V> makeSyncer(Class<V> clazz, boolean box) {
-        ClassWriter cw = newCW(clazz);
         Type boxed = Type.getType(Primitives.wrap(clazz));
         Type unboxed = Type.getType(Primitives.unwrap(clazz));
+        String typeName = StringUtils.capitalize(unboxed.getClassName());
+
+        ClassWriter cw;
+        if (box) {
+            cw = newCW(clazz);
+        } else {
+            Type specialized = Type.getType(SyncHelpers.primitiveSyncerType(clazz));
+            cw = newCW(clazz, specialized.getInternalName());
+            makeSpecializedMethods(cw, unboxed, typeName);
+        }
 
         Method method = getMethod("Object writeAndUpdate(Object, Object, de.take_weiland.mods.commons.net.MCDataOutput)");
         GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
@@ -42,7 +52,7 @@ final class PrimitiveAndBoxSyncerFactory {
         if (!box) {
             unbox(gen, boxed, unboxed);
         }
-        Method writeMethod = new Method("write" + StringUtils.capitalize(unboxed.getClassName()) + (box ? "Box" : ""), VOID_TYPE, new Type[] {box ? boxed : unboxed});
+        Method writeMethod = new Method("write" + typeName + (box ? "Box" : ""), VOID_TYPE, new Type[] {box ? boxed : writeType(unboxed)});
         gen.invokeInterface(Type.getType(MCDataOutput.class), writeMethod);
         gen.loadArg(0);
         gen.returnValue();
@@ -51,7 +61,7 @@ final class PrimitiveAndBoxSyncerFactory {
         method = getMethod("Object read(Object, Object, de.take_weiland.mods.commons.net.MCDataInput)");
         gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
         gen.loadArg(2);
-        Method readMethod = new Method("read" + StringUtils.capitalize(unboxed.getClassName()) + (box ? "Box" : ""), box ? boxed : unboxed, new Type[0]);
+        Method readMethod = new Method("read" + typeName + (box ? "Box" : ""), box ? boxed : unboxed, new Type[0]);
         gen.invokeInterface(Type.getType(MCDataInput.class), readMethod);
         if (!box) {
             box(gen, boxed, unboxed);
@@ -70,6 +80,39 @@ final class PrimitiveAndBoxSyncerFactory {
         }
     }
 
+    // the methods from IntSyncer, FloatSyncer, etc.
+    private static void makeSpecializedMethods(ClassWriter cw, Type unboxed, String typeName) {
+        Type outType = Type.getType(MCDataOutput.class);
+        Type inType = Type.getType(MCDataInput.class);
+
+        Method method = new Method("write" + typeName, VOID_TYPE, new Type[] { unboxed, outType });
+        GeneratorAdapter gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        gen.loadArg(1);
+        gen.loadArg(0);
+        gen.invokeInterface(outType, new Method("write" + typeName, VOID_TYPE, new Type[] { writeType(unboxed) }));
+        gen.returnValue();
+        gen.endMethod();
+
+        method = new Method("read" + typeName, unboxed, new Type[] { unboxed, inType });
+        gen = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        gen.loadArg(1);
+        gen.invokeInterface(inType, new Method("read" + typeName, unboxed, new Type[0]));
+        gen.returnValue();
+        gen.endMethod();
+    }
+
+    // DataOutput takes an int for byte, short and char
+    private static Type writeType(Type unboxed) {
+        switch (unboxed.getSort()) {
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.CHAR:
+                return Type.INT_TYPE;
+            default:
+                return unboxed;
+        }
+    }
+
     static void unbox(GeneratorAdapter gen, Type boxed, Type unboxed) {
         String unboxMethod = unboxed.getClassName() + "Value";
         gen.invokeVirtual(boxed, new Method(unboxMethod, unboxed, new Type[0]));
@@ -79,12 +122,12 @@ final class PrimitiveAndBoxSyncerFactory {
         gen.invokeStatic(boxed, new Method("valueOf", boxed, new Type[] { unboxed }));
     }
 
-    static ClassWriter newCW(Class<?> clazz) {
+    static ClassWriter newCW(Class<?> clazz, String... interfaces) {
         String className = SCReflection.nextDynamicClassName(PrimitiveAndBoxSyncerFactory.class.getPackage());
         String superName = Type.getInternalName(SyncerDefaultEquals.class);
 
         ClassWriter cw = new ClassWriter(COMPUTE_FRAMES);
-        cw.visit(V1_7, ACC_FINAL, className, null, superName, null);
+        cw.visit(V1_7, ACC_FINAL, className, null, superName, interfaces);
 
         GeneratorAdapter gen = new GeneratorAdapter(0, getMethod("void <init>()"), null, null, cw);
         gen.loadThis();
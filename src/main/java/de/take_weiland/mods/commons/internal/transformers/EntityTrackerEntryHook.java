@@ -0,0 +1,33 @@
+package de.take_weiland.mods.commons.internal.transformers;
+
+import de.take_weiland.mods.commons.internal.ASMHooks;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.*;
+import static org.objectweb.asm.Type.VOID_TYPE;
+
+/**
+ * <p>Stores every new EntityTrackerEntry in the tracked entity, see {@link de.take_weiland.mods.commons.internal.EntityProxy}.</p>
+ *
+ * @author diesieben07
+ */
+public final class EntityTrackerEntryHook extends MethodVisitor {
+
+    public EntityTrackerEntryHook(MethodVisitor mv) {
+        super(ASM4, mv);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+        if (opcode == RETURN) {
+            Type entryType = Type.getObjectType("net/minecraft/entity/EntityTrackerEntry");
+            String asmHooks = Type.getInternalName(ASMHooks.class);
+
+            super.visitVarInsn(ALOAD, 0);
+            super.visitMethodInsn(INVOKESTATIC, asmHooks, ASMHooks.ON_NEW_TRACKER_ENTRY, Type.getMethodDescriptor(VOID_TYPE, entryType));
+        }
+
+        super.visitInsn(opcode);
+    }
+}
@@ -0,0 +1,31 @@
+package de.take_weiland.mods.commons.internal.transformers;
+
+import de.take_weiland.mods.commons.internal.ASMHooks;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.*;
+import static org.objectweb.asm.Type.VOID_TYPE;
+
+/**
+ * <p>Clears the EntityTrackerEntry stored in an entity when it is removed from the EntityTracker.</p>
+ *
+ * @author diesieben07
+ */
+public final class EntityUntrackHook extends MethodVisitor {
+
+    public EntityUntrackHook(MethodVisitor mv) {
+        super(ASM4, mv);
+    }
+
+    @Override
+    public void visitCode() {
+        super.visitCode();
+
+        Type entityType = Type.getObjectType("net/minecraft/entity/Entity");
+        String asmHooks = Type.getInternalName(ASMHooks.class);
+
+        super.visitVarInsn(ALOAD, 1);
+        super.visitMethodInsn(INVOKESTATIC, asmHooks, ASMHooks.ON_STOP_TRACKING, Type.getMethodDescriptor(VOID_TYPE, entityType));
+    }
+}
@@ -0,0 +1,34 @@
+package de.take_weiland.mods.commons.internal.transformers;
+
+import de.take_weiland.mods.commons.internal.ASMHooks;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.*;
+import static org.objectweb.asm.Type.VOID_TYPE;
+
+/**
+ * <p>Notifies the player index when a player is teleported by the server, which includes logging in, respawning and
+ * changing dimension.</p>
+ *
+ * @author diesieben07
+ */
+public final class PlayerLocationHook extends MethodVisitor {
+
+    public PlayerLocationHook(MethodVisitor mv) {
+        super(ASM4, mv);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+        if (opcode == RETURN) {
+            Type netServerHandlerType = Type.getObjectType("net/minecraft/network/NetServerHandler");
+            String asmHooks = Type.getInternalName(ASMHooks.class);
+
+            super.visitVarInsn(ALOAD, 0);
+            super.visitMethodInsn(INVOKESTATIC, asmHooks, ASMHooks.ON_SET_PLAYER_LOCATION, Type.getMethodDescriptor(VOID_TYPE, netServerHandlerType));
+        }
+
+        super.visitInsn(opcode);
+    }
+}
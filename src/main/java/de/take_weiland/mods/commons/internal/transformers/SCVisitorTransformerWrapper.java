@@ -22,6 +22,12 @@ public final class SCVisitorTransformerWrapper extends VisitorBasedTransformer {
         addEntry(EntityTickHook.class, "net/minecraft/world/World");
         addEntry(ContainerTickHook.class, "net/minecraft/inventory/Container");
         addEntry(EntitySyncPropsHooks.class, "net/minecraft/entity/Entity");
+        addEntry(DirtyTrackingHook.class, new Predicate<String>() {
+            @Override
+            public boolean apply(String input) {
+                return !input.startsWith("net/minecraft");
+            }
+        }, DirtyTrackingHook.isApplicable);
 
         // @ToNbt hooks
         addEntry(EntityNBTHook.class, "net/minecraft/entity/Entity");
@@ -36,6 +42,10 @@ public final class SCVisitorTransformerWrapper extends VisitorBasedTransformer {
         addEntry(InitGuiHook.class, "net/minecraft/client/gui/GuiScreen", MCPNames.method(MCPNames.M_SET_WORLD_AND_RESOLUTION));
 
         addEntry(EntityTrackingHook.class, "net/minecraft/entity/EntityTrackerEntry", MCPNames.method(MCPNames.M_TRY_START_WATCHING_THIS));
+        addEntry(EntityTrackerEntryHook.class, "net/minecraft/entity/EntityTrackerEntry", "<init>");
+        addEntry(EntityUntrackHook.class, "net/minecraft/entity/EntityTracker", MCPNames.method(MCPNames.M_REMOVE_ENTITY_FROM_ALL_TRACKING_PLAYERS));
+
+        addEntry(PlayerLocationHook.class, "net/minecraft/network/NetServerHandler", MCPNames.method(MCPNames.M_SET_PLAYER_LOCATION));
 
         if (ModPacketCstrAdder.isNeeded) {
             addEntry(ModPacketCstrAdder.class, new Predicate<String>() {
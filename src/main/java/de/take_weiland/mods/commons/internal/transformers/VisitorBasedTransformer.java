@@ -54,6 +54,14 @@ public abstract class VisitorBasedTransformer implements IClassTransformer {
         addEntry0(visitor, nameMatcher);
     }
 
+    /**
+     * <p>Add a ClassVisitor that is only applied if both the class name and the class itself match. Use this for
+     * transformers that need to look at every class, but only transform few of them.</p>
+     */
+    public final void addEntry(Class<? extends ClassVisitor> visitor, Predicate<? super String> nameMatcher, Predicate<? super ClassReader> classMatcher) {
+        entries.add(new Entry(nameMatcher, classMatcher, makeCstr(visitor, ClassVisitor.class)));
+    }
+
     public final void addEntry(Class<? extends MethodVisitor> methodVisitor, String className, String methodName) {
         addEntry(methodVisitor, Predicates.equalTo(className), Predicates.equalTo(methodName));
     }
@@ -65,11 +73,11 @@ public abstract class VisitorBasedTransformer implements IClassTransformer {
     public final void addEntry(Class<? extends MethodVisitor> methodVisitor, Predicate<? super String> classMatcher, Predicate<? super String> methodMatcher) {
         MethodHandle mvCstr = makeCstr(methodVisitor, MethodVisitor.class);
         MethodHandle cvCstr = MethodHandles.insertArguments(SingleMethodTransformer.CONSTRUCTOR, 1, mvCstr, methodMatcher);
-        entries.add(new Entry(classMatcher, cvCstr));
+        entries.add(new Entry(classMatcher, Predicates.alwaysTrue(), cvCstr));
     }
 
     private void addEntry0(Class<? extends ClassVisitor> visitor, Predicate<? super String> predicate) {
-        entries.add(new Entry(predicate, makeCstr(visitor, ClassVisitor.class)));
+        entries.add(new Entry(predicate, Predicates.alwaysTrue(), makeCstr(visitor, ClassVisitor.class)));
     }
 
     private static <T> MethodHandle makeCstr(Class<? extends T> visitor, Class<T> clazz) {
@@ -94,8 +102,13 @@ public abstract class VisitorBasedTransformer implements IClassTransformer {
         ClassVisitor cv = null;
         for (Entry entry : entries) {
             if (entry.nameMatcher.apply(internalName)) {
-                if (cv == null) {
+                if (cr == null) {
                     cr = new ClassReader(bytes);
+                }
+                if (!entry.classMatcher.apply(cr)) {
+                    continue;
+                }
+                if (cv == null) {
                     cv = cw = new ClassInfoClassWriter(cr, COMPUTE_FRAMES);
                 }
                 cv = entry.newVisitor(cv);
@@ -112,10 +125,12 @@ public abstract class VisitorBasedTransformer implements IClassTransformer {
     private static final class Entry {
 
         final Predicate<? super String> nameMatcher;
+        final Predicate<? super ClassReader> classMatcher;
         final MethodHandle constructor;
 
-        Entry(Predicate<? super String> nameMatcher, MethodHandle constructor) {
+        Entry(Predicate<? super String> nameMatcher, Predicate<? super ClassReader> classMatcher, MethodHandle constructor) {
             this.nameMatcher = nameMatcher;
+            this.classMatcher = classMatcher;
             this.constructor = constructor;
         }
 
@@ -0,0 +1,232 @@
+package de.take_weiland.mods.commons.internal.transformers.sync;
+
+import com.google.common.base.Predicate;
+import de.take_weiland.mods.commons.nbt.ToNbt;
+import de.take_weiland.mods.commons.sync.DirtyTracking;
+import de.take_weiland.mods.commons.sync.Sync;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * <p>Instruments writes to private {@code @Sync} fields in classes annotated with {@link DirtyTracking}. Other fields
+ * can be written from outside the class, so they are not tracked. Neither are {@code @ToNbt} fields, which are loaded
+ * through MethodHandles.</p>
+ * <p>Every write to such a field sets a bit in the {@code long} field {@link #DIRTY_FIELD}, which is checked and cleared
+ * by the SyncCompanion. The bits are assigned to the fields in alphabetical order, see {@link #bitIndex(List, String)}.</p>
+ *
+ * @author diesieben07
+ */
+public final class DirtyTrackingHook extends ClassVisitor {
+
+    public static final String DIRTY_FIELD = "_sc$dirty";
+    public static final int MAX_FIELDS = 64;
+
+    private static final String SETTER_PREFIX = "_sc$dirty$set$";
+    private static final String ANNOTATION_DESC = Type.getDescriptor(DirtyTracking.class);
+    private static final String SYNC_DESC = Type.getDescriptor(Sync.class);
+    private static final String TO_NBT_DESC = Type.getDescriptor(ToNbt.class);
+
+    /**
+     * <p>Fast check if a class is annotated with {@code @DirtyTracking}, so that other classes are not transformed.</p>
+     */
+    public static final Predicate<ClassReader> isApplicable = new Predicate<ClassReader>() {
+        @Override
+        public boolean apply(ClassReader cr) {
+            AnnotationFinder finder = new AnnotationFinder();
+            cr.accept(finder, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return finder.found;
+        }
+    };
+
+    /**
+     * <p>The index of the bit in the dirty mask for the given field.</p>
+     * @param syncedFields the names of all tracked fields declared in the class, see {@link #isTracked(int, boolean)}
+     * @param field the field
+     * @return the index of the bit
+     */
+    public static int bitIndex(List<String> syncedFields, String field) {
+        List<String> sorted = new ArrayList<>(syncedFields);
+        Collections.sort(sorted);
+        return sorted.indexOf(field);
+    }
+
+    /**
+     * <p>Check if writes to a {@code @Sync} field are tracked. Only writes from inside the class can be seen, so the field
+     * must be private. {@code @ToNbt} fields are excluded, because they are loaded through MethodHandles.</p>
+     * @param access the access flags of the field
+     * @param toNbt true if the field is annotated with {@code @ToNbt}
+     * @return true if the field is tracked
+     */
+    public static boolean isTracked(int access, boolean toNbt) {
+        return (access & (ACC_STATIC | ACC_PRIVATE)) == ACC_PRIVATE && !toNbt;
+    }
+
+    private String className;
+    private boolean annotated;
+    private final Map<String, String> syncedFields = new HashMap<>();
+
+    public DirtyTrackingHook(ClassVisitor cv) {
+        super(ASM4, cv);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        className = name;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        if (desc.equals(ANNOTATION_DESC)) {
+            annotated = true;
+        }
+        return super.visitAnnotation(desc, visible);
+    }
+
+    @Override
+    public FieldVisitor visitField(final int access, final String name, final String desc, String signature, Object value) {
+        FieldVisitor fv = super.visitField(access, name, desc, signature, value);
+        if (!annotated) {
+            return fv;
+        }
+        return new FieldVisitor(ASM4, fv) {
+
+            private boolean synced;
+            private boolean toNbt;
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String annDesc, boolean visible) {
+                if (annDesc.equals(SYNC_DESC)) {
+                    synced = true;
+                } else if (annDesc.equals(TO_NBT_DESC)) {
+                    toNbt = true;
+                }
+                return super.visitAnnotation(annDesc, visible);
+            }
+
+            @Override
+            public void visitEnd() {
+                if (synced && isTracked(access, toNbt)) {
+                    syncedFields.put(name, desc);
+                }
+                super.visitEnd();
+            }
+        };
+    }
+
+    private boolean isActive() {
+        return annotated && !syncedFields.isEmpty() && syncedFields.size() <= MAX_FIELDS;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+        // all fields have been visited at this point
+        if (isActive()) {
+            return new FieldWriteTransformer(mv, name.equals("<init>"));
+        } else {
+            return mv;
+        }
+    }
+
+    @Override
+    public void visitEnd() {
+        if (isActive()) {
+            FieldVisitor fv = super.visitField(ACC_PUBLIC | ACC_TRANSIENT | ACC_SYNTHETIC, DIRTY_FIELD, Type.LONG_TYPE.getDescriptor(), null, null);
+            if (fv != null) {
+                fv.visitEnd();
+            }
+
+            List<String> fieldNames = new ArrayList<>(syncedFields.keySet());
+            for (Map.Entry<String, String> entry : syncedFields.entrySet()) {
+                makeSetter(entry.getKey(), entry.getValue(), bitIndex(fieldNames, entry.getKey()));
+            }
+        }
+        super.visitEnd();
+    }
+
+    private void makeSetter(String field, String fieldDesc, int bit) {
+        Type fieldType = Type.getType(fieldDesc);
+        MethodVisitor mv = super.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, SETTER_PREFIX + field, setterDesc(fieldDesc), null, null);
+        if (mv != null) {
+            mv.visitCode();
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(fieldType.getOpcode(ILOAD), 1);
+            mv.visitFieldInsn(PUTFIELD, className, field, fieldDesc);
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitInsn(DUP);
+            mv.visitFieldInsn(GETFIELD, className, DIRTY_FIELD, Type.LONG_TYPE.getDescriptor());
+            mv.visitLdcInsn(1L << bit);
+            mv.visitInsn(LOR);
+            mv.visitFieldInsn(PUTFIELD, className, DIRTY_FIELD, Type.LONG_TYPE.getDescriptor());
+
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+    }
+
+    private String setterDesc(String fieldDesc) {
+        return Type.getMethodDescriptor(Type.VOID_TYPE, Type.getObjectType(className), Type.getType(fieldDesc));
+    }
+
+    private final class FieldWriteTransformer extends MethodVisitor {
+
+        // in constructors "this" cannot be passed to the setter before the super constructor has been called
+        private boolean thisInitialized;
+
+        FieldWriteTransformer(MethodVisitor mv, boolean isConstructor) {
+            super(ASM4, mv);
+            thisInitialized = !isConstructor;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc) {
+            super.visitMethodInsn(opcode, owner, name, desc);
+            if (!thisInitialized && opcode == INVOKESPECIAL) {
+                thisInitialized = true;
+            }
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            if (thisInitialized && opcode == PUTFIELD && owner.equals(className) && syncedFields.containsKey(name)) {
+                // stack is the same as for PUTFIELD: instance, value
+                super.visitMethodInsn(INVOKESTATIC, className, SETTER_PREFIX + name, setterDesc(desc));
+            } else {
+                super.visitFieldInsn(opcode, owner, name, desc);
+            }
+        }
+    }
+
+    private static final class AnnotationFinder extends ClassVisitor {
+
+        boolean found;
+
+        AnnotationFinder() {
+            super(ASM4);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            if (desc.equals(ANNOTATION_DESC)) {
+                found = true;
+            }
+            return null;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import static org.objectweb.asm.Type.VOID_TYPE;
 public class EntitySyncPropsHooks extends ClassVisitor {
 
     public static final String FIELD_NAME = "_sc$syncprops";
+    public static final String TRACKER_ENTRY_FIELD = "_sc$trackerEntry";
     private static final String ADD_EXT_PROP_METHOD = "registerExtendedProperties";
 
     public EntitySyncPropsHooks(ClassVisitor cv) {
@@ -50,33 +51,37 @@ public class EntitySyncPropsHooks extends ClassVisitor {
     public void visitEnd() {
         super.visitEnd();
 
-        Type listType = Type.getType(List.class);
+        addProperty(FIELD_NAME, Type.getType(List.class), EntityProxy.GET_PROPERTIES, EntityProxy.SET_PROPERTIES);
+        addProperty(TRACKER_ENTRY_FIELD, Type.getObjectType("net/minecraft/entity/EntityTrackerEntry"), EntityProxy.GET_TRACKER_ENTRY, EntityProxy.SET_TRACKER_ENTRY);
+    }
+
+    private void addProperty(String field, Type type, String getter, String setter) {
         Type myType = Type.getObjectType("net/minecraft/entity/Entity");
 
-        FieldVisitor fv = super.visitField(ACC_PUBLIC, FIELD_NAME, listType.getDescriptor(), null, null);
+        FieldVisitor fv = super.visitField(ACC_PUBLIC, field, type.getDescriptor(), null, null);
         if (fv != null) {
             fv.visitEnd();
         }
 
-        MethodVisitor mv = super.visitMethod(ACC_PUBLIC | ACC_FINAL, EntityProxy.GET_PROPERTIES, Type.getMethodDescriptor(listType), null, null);
+        MethodVisitor mv = super.visitMethod(ACC_PUBLIC | ACC_FINAL, getter, Type.getMethodDescriptor(type), null, null);
         if (mv != null) {
             mv.visitCode();
 
             mv.visitVarInsn(ALOAD, 0);
-            mv.visitFieldInsn(GETFIELD, myType.getInternalName(), FIELD_NAME, listType.getDescriptor());
+            mv.visitFieldInsn(GETFIELD, myType.getInternalName(), field, type.getDescriptor());
             mv.visitInsn(ARETURN);
 
             mv.visitMaxs(0, 0);
             mv.visitEnd();
         }
 
-        mv = super.visitMethod(ACC_PUBLIC | ACC_FINAL, EntityProxy.SET_PROPERTIES, Type.getMethodDescriptor(VOID_TYPE, listType), null, null);
+        mv = super.visitMethod(ACC_PUBLIC | ACC_FINAL, setter, Type.getMethodDescriptor(VOID_TYPE, type), null, null);
         if (mv != null) {
             mv.visitCode();
 
             mv.visitVarInsn(ALOAD, 0);
             mv.visitVarInsn(ALOAD, 1);
-            mv.visitFieldInsn(PUTFIELD, myType.getInternalName(), FIELD_NAME, listType.getDescriptor());
+            mv.visitFieldInsn(PUTFIELD, myType.getInternalName(), field, type.getDescriptor());
             mv.visitInsn(RETURN);
 
             mv.visitMaxs(0, 0);
@@ -0,0 +1,1125 @@
+package de.take_weiland.mods.commons.net;
+
+import com.google.common.primitives.Ints;
+import de.take_weiland.mods.commons.nbt.NBT;
+import de.take_weiland.mods.commons.util.BlockPos;
+import de.take_weiland.mods.commons.util.JavaUtils;
+import de.take_weiland.mods.commons.util.SCReflector;
+import net.minecraft.block.Block;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.fluids.FluidStack;
+import org.apache.commons.lang3.ArrayUtils;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * <p>Base class for MCDataInput implementations. Implements all encoding logic on top of a few primitive read operations.</p>
+ *
+ * @author diesieben07
+ */
+@ParametersAreNonnullByDefault
+abstract class AbstractMCDataInput extends InputStream implements MCDataInput {
+
+	private List<String> nbtNames;
+
+	@Override
+	public InputStream asInputStream() {
+		return this;
+	}
+
+	@Override
+	public long skip(long n) {
+		return skipBytes(Ints.saturatedCast(n));
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void close() { }
+
+	// primitive IO, implemented by subclasses
+
+	/**
+	 * <p>Ensure that at least the given number of bytes can be read.</p>
+	 * @param bytes the number of bytes
+	 * @throws IllegalStateException if there are not enough bytes left
+	 */
+	abstract void checkAvailable(int bytes);
+
+	abstract byte readByteNBC();
+
+	abstract short readShortNBC();
+
+	abstract int readIntNBC();
+
+	abstract long readLongNBC();
+
+	abstract void readNBC(byte[] b, int off, int len);
+
+	/**
+	 * <p>Read the given number of bytes as Latin-1 characters.</p>
+	 * @param len the number of characters
+	 * @return a String
+	 */
+	abstract String readLatin1NBC(int len);
+
+	@Override
+	public abstract int read();
+
+	@Override
+	public abstract int available();
+
+	// bulk array reads, subclasses can override these with something more efficient than a loop
+
+	void readShortsNBC(short[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readShortNBC();
+		}
+	}
+
+	void readIntsNBC(int[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readIntNBC();
+		}
+	}
+
+	void readLongsNBC(long[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readLongNBC();
+		}
+	}
+
+	void readCharsNBC(char[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readCharNBC();
+		}
+	}
+
+	void readFloatsNBC(float[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readFloatNBC();
+		}
+	}
+
+	void readDoublesNBC(double[] arr, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			arr[i] = readDoubleNBC();
+		}
+	}
+
+	@Override
+	@Nonnull
+	public String readUTF() {
+		try {
+			return DataInputStream.readUTF(this);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public String readLine() {
+		StringBuilder sb = new StringBuilder();
+
+		int c;
+
+		loop:
+		while (true) {
+			switch (c = read()) {
+				case -1:
+				case '\n':
+					break loop;
+				case '\r':
+					// \r\n counts as one line break
+					int pos = pos();
+					if (read() != '\n') {
+						seek(pos);
+					}
+					break loop;
+				default:
+					sb.append((char) c);
+					break;
+			}
+		}
+
+		return c == -1 && sb.length() == 0 ? null : sb.toString();
+	}
+
+	// primitives
+
+	@Override
+	public boolean readBoolean() {
+		return readByte() != BufferConstants.BOOLEAN_FALSE;
+	}
+
+	@Override
+	public byte readByte() {
+		checkAvailable(1);
+		return readByteNBC();
+	}
+
+	@Override
+	public int readUnsignedByte() {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() {
+		checkAvailable(2);
+		return readShortNBC();
+	}
+
+	@Override
+	public int readUnsignedShort() {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() {
+		checkAvailable(2);
+		return readCharNBC();
+	}
+
+	final char readCharNBC() {
+		return (char) readShortNBC();
+	}
+
+	@Override
+	public int readInt() {
+		checkAvailable(4);
+		return readIntNBC();
+	}
+
+	@Override
+	public long readLong() {
+		checkAvailable(8);
+		return readLongNBC();
+	}
+
+	@Override
+	public float readFloat() {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	final float readFloatNBC() {
+		return Float.intBitsToFloat(readIntNBC());
+	}
+
+	@Override
+	public double readDouble() {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	final double readDoubleNBC() {
+		return Double.longBitsToDouble(readLongNBC());
+	}
+
+	@Override
+	public int readVarInt() {
+		int res = 0;
+		int read;
+		int step = 0;
+
+		do {
+			read = readByte();
+			res |= (read & BufferConstants.SEVEN_BITS) << step;
+			step += 7;
+		} while ((read & BufferConstants.BYTE_MSB) == 0);
+		return res;
+	}
+
+	private int readVarIntNBC() {
+		int res = 0;
+		int read;
+		int step = 0;
+
+		do {
+			if (step == 35) {
+				// the caller only checked for 5 bytes per VarInt
+				throw new IllegalStateException("VarInt too long");
+			}
+			read = readByteNBC();
+			res |= (read & BufferConstants.SEVEN_BITS) << step;
+			step += 7;
+		} while ((read & BufferConstants.BYTE_MSB) == 0);
+		return res;
+	}
+
+	@Override
+	public long readVarLong() {
+		long res = 0;
+		int read;
+		int step = 0;
+
+		do {
+			read = readByte();
+			res |= (long) (read & BufferConstants.SEVEN_BITS) << step;
+			step += 7;
+		} while ((read & BufferConstants.BYTE_MSB) == 0);
+		return res;
+	}
+
+	private long readVarLongNBC() {
+		long res = 0;
+		int read;
+		int step = 0;
+
+		do {
+			if (step == 70) {
+				throw new IllegalStateException("VarLong too long");
+			}
+			read = readByteNBC();
+			res |= (long) (read & BufferConstants.SEVEN_BITS) << step;
+			step += 7;
+		} while ((read & BufferConstants.BYTE_MSB) == 0);
+		return res;
+	}
+
+	@Override
+	public int readSignedVarInt() {
+		int n = readVarInt();
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	@Override
+	public long readSignedVarLong() {
+		long n = readVarLong();
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	@Override
+	public int[] readVarInts() {
+		return readVarInts(null);
+	}
+
+	@Override
+	public int[] readVarInts(@Nullable int[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			// every element takes at least one byte
+			checkAvailable(len);
+			if (arr == null || arr.length < len) {
+				arr = new int[len];
+			}
+			if (available() / 5 >= len) {
+				for (int i = 0; i < len; i++) {
+					arr[i] = readVarIntNBC();
+				}
+			} else {
+				// close to the end of the buffer, need to check every byte
+				for (int i = 0; i < len; i++) {
+					arr[i] = readVarInt();
+				}
+			}
+			return arr;
+		}
+	}
+
+	@Override
+	public long[] readVarLongs() {
+		return readVarLongs(null);
+	}
+
+	@Override
+	public long[] readVarLongs(@Nullable long[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len);
+			if (arr == null || arr.length < len) {
+				arr = new long[len];
+			}
+			if (available() / 10 >= len) {
+				for (int i = 0; i < len; i++) {
+					arr[i] = readVarLongNBC();
+				}
+			} else {
+				for (int i = 0; i < len; i++) {
+					arr[i] = readVarLong();
+				}
+			}
+			return arr;
+		}
+	}
+
+	// primitive boxes
+
+	@Override
+	public Boolean readBooleanBox() {
+		int b = readByte();
+		return b == BufferConstants.BOOLEAN_NULL ? null : b != BufferConstants.BOOLEAN_FALSE;
+	}
+
+	@Override
+	public Byte readByteBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readByte();
+		}
+	}
+
+	@Override
+	public Short readShortBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readShort();
+		}
+	}
+
+	@Override
+	public Character readCharBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readChar();
+		}
+	}
+
+	@Override
+	public Integer readIntBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readInt();
+		}
+	}
+
+	@Override
+	public Long readLongBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readLong();
+		}
+	}
+
+	@Override
+	public Float readFloatBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readFloat();
+		}
+	}
+
+	@Override
+	public Double readDoubleBox() {
+		if (readByte() == BufferConstants.BOX_NULL) {
+			return null;
+		} else {
+			return readDouble();
+		}
+	}
+
+	// array stuff
+
+	@Override
+	public void readFully(@NotNull byte[] b) {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(@NotNull byte[] b, int off, int len) {
+		checkPositionIndexes(off, off + len, b.length);
+		checkAvailable(len);
+		readNBC(b, off, len);
+	}
+
+	@Override
+	public boolean[] readBooleans() {
+		return readBooleans(null);
+	}
+
+	@Override
+	public boolean[] readBooleans(@Nullable boolean[] b) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(b);
+		} else {
+			if (b == null || b.length != len) {
+				b = new boolean[len];
+			}
+			checkAvailable(((len - 1) >> 3) + 1); // works for len > 0
+
+			int currentByte = 0;
+			for (int idx = 0; idx < len; idx++) {
+				int bit = (idx & 7); // idx % 8
+				if (bit == 0) {
+					currentByte = readUnsignedByte();
+				}
+				b[idx] = (currentByte & (1 << bit)) != 0;
+			}
+
+			return b;
+		}
+	}
+
+	@Override
+	public byte[] readBytes() {
+		return readBytes(null);
+	}
+
+	@Override
+	public byte[] readBytes(@Nullable byte[] b) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(b);
+		} else {
+			if (b == null || b.length != len) {
+				b = new byte[len];
+			}
+			checkAvailable(len);
+			readNBC(b, 0, len);
+			return b;
+		}
+	}
+
+	@Override
+	public short[] readShorts() {
+		return readShorts(null);
+	}
+
+	@Override
+	public short[] readShorts(@Nullable short[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len << 1);
+			if (arr == null || arr.length < len) {
+				arr = new short[len];
+			}
+			readShortsNBC(arr, 0, len);
+			return arr;
+		}
+	}
+
+	@Override
+	public int[] readInts() {
+		return readInts(null);
+	}
+
+	@Override
+	public int[] readInts(@Nullable int[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len << 2);
+			if (arr == null || arr.length < len) {
+				arr = new int[len];
+			}
+			readIntsNBC(arr, 0, len);
+			return arr;
+		}
+	}
+
+	@Override
+	public long[] readLongs() {
+		return readLongs(null);
+	}
+
+	@Override
+	public long[] readLongs(@Nullable long[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len << 3);
+			if (arr == null || arr.length < len) {
+				arr = new long[len];
+			}
+			readLongsNBC(arr, 0, len);
+			return arr;
+		}
+	}
+
+	@Override
+	public int[] readIntsDelta(@Nullable int[] arr) {
+		int header = readVarInt();
+		if (header < 0) {
+			return null;
+		}
+		int len = header >>> 1;
+		if ((header & BufferConstants.DELTA_PATCH) == BufferConstants.DELTA_FULL) {
+			checkAvailable(len << 2);
+			if (arr == null || arr.length != len) {
+				arr = new int[len];
+			}
+			readIntsNBC(arr, 0, len);
+		} else {
+			if (arr == null || arr.length != len) {
+				throw new IllegalStateException("Delta does not match the previous array");
+			}
+			int runs = readVarInt();
+			int runEnd = 0;
+			for (int r = 0; r < runs; r++) {
+				int start = runEnd + readVarInt();
+				int runLen = readVarInt();
+				runEnd = checkRun(start, runLen, len);
+				checkAvailable(runLen << 2);
+				readIntsNBC(arr, start, runLen);
+			}
+		}
+		return arr;
+	}
+
+	@Override
+	public long[] readLongsDelta(@Nullable long[] arr) {
+		int header = readVarInt();
+		if (header < 0) {
+			return null;
+		}
+		int len = header >>> 1;
+		if ((header & BufferConstants.DELTA_PATCH) == BufferConstants.DELTA_FULL) {
+			checkAvailable(len << 3);
+			if (arr == null || arr.length != len) {
+				arr = new long[len];
+			}
+			readLongsNBC(arr, 0, len);
+		} else {
+			if (arr == null || arr.length != len) {
+				throw new IllegalStateException("Delta does not match the previous array");
+			}
+			int runs = readVarInt();
+			int runEnd = 0;
+			for (int r = 0; r < runs; r++) {
+				int start = runEnd + readVarInt();
+				int runLen = readVarInt();
+				runEnd = checkRun(start, runLen, len);
+				checkAvailable(runLen << 3);
+				readLongsNBC(arr, start, runLen);
+			}
+		}
+		return arr;
+	}
+
+	private static int checkRun(int start, int runLen, int len) {
+		int end = start + runLen;
+		if (start < 0 || runLen < 0 || end < start || end > len) {
+			throw new IllegalStateException("Invalid delta run");
+		}
+		return end;
+	}
+
+	@Override
+	public char[] readChars() {
+		return readChars(null);
+	}
+
+	@Override
+	public char[] readChars(@Nullable char[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len << 1);
+			if (arr == null || arr.length < len) {
+				arr = new char[len];
+			}
+			readCharsNBC(arr, 0, len);
+			return arr;
+		}
+	}
+
+	@Override
+	public float[] readFloats() {
+		return readFloats(null);
+	}
+
+	@Override
+	public float[] readFloats(@Nullable float[] arr) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(arr);
+		} else {
+			checkAvailable(len << 2);
+			if (arr == null || arr.length < len) {
+				arr = new float[len];
+			}
+			readFloatsNBC(arr, 0, len);
+			return arr;
+		}
+	}
+
+	@Override
+	public double[] readDoubles() {
+		return readDoubles(null);
+	}
+
+
+
+	@Override
+	public double[] readDoubles(@Nullable double[] b) {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return ArrayUtils.nullToEmpty(b);
+		} else {
+			checkAvailable(len << 3);
+			if (b == null || b.length < len) {
+				b = new double[len];
+			}
+			readDoublesNBC(b, 0, len);
+			return b;
+		}
+	}
+
+	// misc stuff
+	@Override
+	public <E extends Enum<E>> E readEnum(Class<E> clazz) {
+		int e = readVarInt();
+		return e < 0 ? null : JavaUtils.byOrdinal(clazz, e);
+	}
+
+	@Override
+	public BitSet readBitSet() {
+		long[] words = readLongs();
+		if (words == null) {
+			return null;
+		} else {
+			return BitSet.valueOf(words);
+		}
+	}
+
+	@Override
+	public <E extends Enum<E>> EnumSet<E> readEnumSet(Class<E> enumClass) {
+		int readByte = readByte();
+		if (readByte == 0) {
+			return null;
+		} else {
+			E[] universe = JavaUtils.getEnumConstantsShared(enumClass);
+			EnumSet<E> set = EnumSet.noneOf(enumClass);
+
+			int numEnums = universe.length;
+			int numExtraBytes = numEnums >>> 3;
+			readByte >>= 1;
+			if (numExtraBytes == 0) {
+				for (int i = 0; i < numEnums; i++) {
+					if ((readByte & (1 << i)) != 0) {
+						set.add(universe[i]);
+					}
+				}
+			} else {
+				for (int i = 0; i < 7; i++) {
+					if ((readByte & (1 << i)) != 0) {
+						set.add(universe[i]);
+					}
+				}
+				numEnums -= 7;
+				for (int b = 0; b < numExtraBytes; b++) {
+					readByte = readByte();
+					int left = Math.min(8, numEnums);
+					for (int i = 0; i < left; i++) {
+						if ((readByte & (1 << i)) != 0) {
+							set.add(universe[7 + (b << 3) + i]);
+						}
+					}
+
+					numEnums -= 8;
+				}
+			}
+			return set;
+		}
+	}
+
+	@Override
+	public String readString() {
+		int len = readVarInt();
+		if (len < 0) {
+			return null;
+		} else if (len == 0) {
+			return "";
+		} else {
+			checkAvailable(len << 1);
+			char[] chars = new char[len];
+			readCharsNBC(chars, 0, len);
+			return SCReflector.instance.createStringShared(chars, true);
+		}
+	}
+
+	@Override
+	public String readCompactString() {
+		int header = readVarInt();
+		if (header == BufferConstants.COMPACT_STRING_NULL) {
+			return null;
+		}
+		int len = header >>> 1;
+		checkAvailable(len);
+		if ((header & BufferConstants.COMPACT_STRING_UTF8) == 0) {
+			return readLatin1NBC(len);
+		} else {
+			return decodeUTF8(len);
+		}
+	}
+
+	private String decodeUTF8(int len) {
+		char[] chars = new char[len];
+		int n = 0;
+		int left = len;
+		while (left > 0) {
+			int b = readByteNBC();
+			if (b >= 0) {
+				chars[n++] = (char) b;
+				left--;
+			} else if ((b & 0xE0) == 0xC0 && left >= 2) {
+				chars[n++] = (char) ((b & 0x1F) << 6 | readByteNBC() & 0x3F);
+				left -= 2;
+			} else if ((b & 0xF0) == 0xE0 && left >= 3) {
+				chars[n++] = (char) ((b & 0x0F) << 12 | (readByteNBC() & 0x3F) << 6 | readByteNBC() & 0x3F);
+				left -= 3;
+			} else {
+				throw new IllegalStateException("Malformed compact String");
+			}
+		}
+		return new String(chars, 0, n);
+	}
+
+	@Override
+	public ItemStack readItemStack() {
+		int id = readShort();
+		if (id < 0) {
+			return null;
+		} else {
+			int dmg = readShort();
+			int size = readByte();
+			ItemStack stack = new ItemStack(id, size, dmg);
+			stack.stackTagCompound = readNBT();
+			return stack;
+		}
+	}
+
+	@Override
+	public ItemStack readItemStackWithoutNBT() {
+		int id = readShort();
+		if (id < 0) {
+			return null;
+		} else {
+			int dmg = readShort();
+			int size = readByte();
+			skipNBT();
+			return new ItemStack(id, size, dmg);
+		}
+	}
+
+	@Override
+	public FluidStack readFluidStack() {
+		int id = readVarInt();
+		if (id < 0) {
+			return null;
+		} else {
+			return new FluidStack(id, readVarInt(), readNBT());
+		}
+	}
+
+	@Override
+	public UUID readUUID() {
+		long msb = readLong();
+		if (msb == BufferConstants.UUID_NULL_MSB) {
+			return null;
+		} else {
+			return new UUID(msb, readLong());
+		}
+	}
+
+	@Override
+	public NBTTagCompound readNBT() {
+		int id = readByte();
+		if (id == BufferConstants.NBT_NULL) {
+			return null;
+		} else {
+			int mode = BufferConstants.NBT_LEGACY_NAMES;
+			if (id == BufferConstants.NBT_COMPACT_NAMES || id == BufferConstants.NBT_DICTIONARY_NAMES) {
+				mode = id;
+				id = readByte();
+			}
+			return readTags(id, mode);
+		}
+	}
+
+	private NBTTagCompound readTags(int id, int mode) {
+		NBTTagCompound nbt = new NBTTagCompound();
+		Map<String, NBTBase> map = NBT.asMap(nbt);
+		try {
+			while (id != 0) {
+				String name;
+				switch (mode) {
+					case BufferConstants.NBT_LEGACY_NAMES:
+						name = readString();
+						break;
+					case BufferConstants.NBT_COMPACT_NAMES:
+						name = readCompactString();
+						break;
+					default:
+						name = readDictionaryName();
+						break;
+				}
+				NBTBase tag;
+				if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_COMPOUND_ID) {
+					tag = readTags(readByte(), mode).setName(name);
+				} else if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_LIST_ID) {
+					tag = readDictionaryList(name, mode);
+				} else {
+					tag = NBTBase.newTag((byte) id, name);
+					SCReflector.instance.load(tag, this, 1);
+				}
+
+				map.put(tag.getName(), tag);
+				id = readByte();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return nbt;
+	}
+
+	private NBTBase readDictionaryList(String name, int mode) throws IOException {
+		int type = readByte();
+		if (type == BufferConstants.NBT_COMPOUND_ID) {
+			int len = readInt();
+			if (len < 0) {
+				throw new IllegalStateException("Invalid NBT list length " + len);
+			}
+			NBTTagList list = new NBTTagList(name);
+			for (int i = 0; i < len; i++) {
+				list.appendTag(readTags(readByte(), mode));
+			}
+			return list;
+		} else {
+			// only lists of compounds are written differently, let vanilla read the others including the type
+			seek(pos() - 1);
+			NBTBase list = NBTBase.newTag((byte) BufferConstants.NBT_LIST_ID, name);
+			SCReflector.instance.load(list, this, 1);
+			return list;
+		}
+	}
+
+	@Override
+	public void skipNBT() {
+		int id = readByte();
+		if (id != BufferConstants.NBT_NULL) {
+			int mode = BufferConstants.NBT_LEGACY_NAMES;
+			if (id == BufferConstants.NBT_COMPACT_NAMES || id == BufferConstants.NBT_DICTIONARY_NAMES) {
+				mode = id;
+				id = readByte();
+			}
+			skipTags(id, mode);
+		}
+	}
+
+	private void skipTags(int id, int mode) {
+		while (id != 0) {
+			switch (mode) {
+				case BufferConstants.NBT_LEGACY_NAMES:
+					skipFully(readVarInt(), 2);
+					break;
+				case BufferConstants.NBT_COMPACT_NAMES:
+					skipFully(readVarInt() >>> 1);
+					break;
+				default:
+					// names need to be recorded for later references
+					readDictionaryName();
+					break;
+			}
+			if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_COMPOUND_ID) {
+				skipTags(readByte(), mode);
+			} else if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_LIST_ID) {
+				skipList(true);
+			} else {
+				skipVanillaTag(id);
+			}
+			id = readByte();
+		}
+	}
+
+	/**
+	 * <p>Skip the payload of a list tag.</p>
+	 * @param dictionary true if lists of compounds are written with dictionary names
+	 */
+	private void skipList(boolean dictionary) {
+		int type = readByte();
+		int len = readInt();
+		int fixedSize = vanillaTagSize(type);
+		if (fixedSize >= 0) {
+			skipFully(len, fixedSize);
+		} else if (dictionary && type == BufferConstants.NBT_COMPOUND_ID) {
+			for (int i = 0; i < len; i++) {
+				skipTags(readByte(), BufferConstants.NBT_DICTIONARY_NAMES);
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				skipVanillaTag(type);
+			}
+		}
+	}
+
+	/**
+	 * <p>Skip the payload of a tag, as written by {@link net.minecraft.nbt.NBTBase#write(java.io.DataOutput)}.</p>
+	 */
+	private void skipVanillaTag(int id) {
+		switch (id) {
+			case 1: // byte
+				skipFully(1);
+				break;
+			case 2: // short
+				skipFully(2);
+				break;
+			case 3: // int
+			case 5: // float
+				skipFully(4);
+				break;
+			case 4: // long
+			case 6: // double
+				skipFully(8);
+				break;
+			case 7: // byte[]
+				skipFully(readInt());
+				break;
+			case 8: // String
+				skipFully(readUnsignedShort());
+				break;
+			case BufferConstants.NBT_LIST_ID:
+				skipList(false);
+				break;
+			case BufferConstants.NBT_COMPOUND_ID:
+				int child;
+				while ((child = readByte()) != 0) {
+					skipFully(readUnsignedShort()); // name
+					skipVanillaTag(child);
+				}
+				break;
+			case 11: // int[]
+				skipFully(readInt(), 4);
+				break;
+			default:
+				throw new IllegalStateException("Invalid NBT tag ID " + id);
+		}
+	}
+
+	private static int vanillaTagSize(int id) {
+		switch (id) {
+			case 0: // empty list
+				return 0;
+			case 1:
+				return 1;
+			case 2:
+				return 2;
+			case 3:
+			case 5:
+				return 4;
+			case 4:
+			case 6:
+				return 8;
+			default:
+				return -1;
+		}
+	}
+
+	private void skipFully(int n) {
+		if (n < 0) {
+			throw new IllegalStateException("Invalid length " + n);
+		}
+		checkAvailable(n);
+		skipBytes(n);
+	}
+
+	/**
+	 * <p>Skip {@code count} elements of {@code size} bytes each, without overflowing for large counts.</p>
+	 */
+	private void skipFully(int count, int size) {
+		if (count < 0) {
+			throw new IllegalStateException("Invalid length " + count);
+		}
+		if (size != 0 && count > available() / size) {
+			throw new IllegalStateException("Read past end of buffer");
+		}
+		skipBytes(count * size);
+	}
+
+	private String readDictionaryName() {
+		if (nbtNames == null) {
+			nbtNames = new ArrayList<>();
+		}
+		int ref = readVarInt();
+		if (ref == BufferConstants.NBT_NAME_INLINE) {
+			String name = readCompactString();
+			nbtNames.add(name);
+			return name;
+		} else if (ref < 0 || ref > nbtNames.size()) {
+			throw new IllegalStateException("Invalid NBT name reference");
+		} else {
+			return nbtNames.get(ref - 1);
+		}
+	}
+
+	@Override
+	public Item readItem() {
+		int id = readVarInt();
+		try {
+			return id == BufferConstants.ITEM_NULL_ID ? null : Item.itemsList[id];
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalStateException("Invalid ItemID " + id);
+		}
+	}
+
+	@Override
+	public Block readBlock() {
+		int id = readVarInt();
+		try {
+			return id == BufferConstants.BLOCK_NULL_ID ? null : Block.blocksList[id];
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalStateException("Invalid BlockID " + id);
+		}
+	}
+
+	@Override
+	public BlockPos readCoords() {
+//		return BlockPos.streamSerializer().read(this);
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,1090 @@
+package de.take_weiland.mods.commons.net;
+
+import de.take_weiland.mods.commons.nbt.NBT;
+import de.take_weiland.mods.commons.util.BlockPos;
+import de.take_weiland.mods.commons.util.JavaUtils;
+import de.take_weiland.mods.commons.util.SCReflector;
+import net.minecraft.block.Block;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.fluids.FluidStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * <p>Base class for MCDataOutput implementations. Implements all encoding logic on top of a few primitive write operations.</p>
+ *
+ * @author diesieben07
+ */
+abstract class AbstractMCDataOutput extends OutputStream implements MCDataOutput {
+
+	// write tag names in NBT in the compact encoding, only peers with this version understand it
+	private static final boolean COMPACT_NBT = Boolean.getBoolean("sevencommons.net.compactNBT");
+	// send repeated tag names in NBT as a reference to their first occurrence in the same stream, implies COMPACT_NBT
+	private static final boolean NBT_DICTIONARY = Boolean.getBoolean("sevencommons.net.nbtDictionary");
+
+	static final AtomicLong nbtNameBytesSaved = new AtomicLong();
+
+	private boolean locked = false;
+	private char[] charBuf;
+	private Map<String, NBTName> nbtNames;
+
+	@Override
+	public void lock() {
+		locked = true;
+	}
+
+	@Override
+	public boolean isLocked() {
+		return locked;
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return this;
+	}
+
+	final void ensureWritable(int bytesToWrite) {
+		if (locked) {
+			throw new IllegalStateException("Output locked!");
+		}
+		ensureCapacity(bytesToWrite);
+	}
+
+	// primitive IO, implemented by subclasses
+
+	/**
+	 * <p>Make room for at least the given number of bytes.</p>
+	 * @param bytesToWrite the number of bytes
+	 */
+	abstract void ensureCapacity(int bytesToWrite);
+
+	abstract void writeByteNBC(int b);
+
+	abstract void writeShortNBC(int s);
+
+	abstract void writeIntNBC(int i);
+
+	abstract void writeLongNBC(long l);
+
+	abstract void writeNBC(byte[] b, int off, int len);
+
+	/**
+	 * <p>Write the first {@code len} characters of the given String as Latin-1.</p>
+	 * @param s the String
+	 * @param len the number of characters
+	 */
+	abstract void writeLatin1NBC(String s, int len);
+
+	/**
+	 * <p>Write {@code n} zero bytes.</p>
+	 * @param n the number of bytes
+	 */
+	abstract void writeNullsNBC(int n);
+
+	// bulk array writes, subclasses can override these with something more efficient than a loop
+
+	void writeShortsNBC(short[] shorts, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeShortNBC(shorts[off + i]);
+		}
+	}
+
+	void writeIntsNBC(int[] ints, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeIntNBC(ints[off + i]);
+		}
+	}
+
+	void writeLongsNBC(long[] longs, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeLongNBC(longs[off + i]);
+		}
+	}
+
+	void writeCharsNBC(char[] chars, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeCharNBC(chars[off + i]);
+		}
+	}
+
+	void writeFloatsNBC(float[] floats, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeFloatNBC(floats[off + i]);
+		}
+	}
+
+	void writeDoublesNBC(double[] doubles, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			writeDoubleNBC(doubles[off + i]);
+		}
+	}
+
+	@Override
+	public void writeNulls(int n) {
+		ensureWritable(n);
+		writeNullsNBC(n);
+	}
+
+	@Override
+	public void write(int b) {
+		writeByte(b);
+	}
+
+	@Override
+	public void write(@NotNull byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(@NotNull byte[] b, int off, int len) {
+		ensureWritable(len);
+		writeNBC(b, off, len);
+	}
+
+	@Override
+	public void flush() { }
+
+	@Override
+	public void close() { }
+
+	@Override
+	public void writeBoolean(boolean v) {
+		write(v ? BufferConstants.BOOLEAN_TRUE : BufferConstants.BOOLEAN_FALSE);
+	}
+
+	@Override
+	public void writeBooleanBox(Boolean b) {
+		writeByte(b == null ? BufferConstants.BOOLEAN_NULL : (b ? BufferConstants.BOOLEAN_TRUE : BufferConstants.BOOLEAN_FALSE));
+	}
+
+	@Override
+	public void writeByte(int b) {
+		ensureWritable(1);
+		writeByteNBC(b);
+	}
+
+	@Override
+	public void writeByteBox(Byte b) {
+		if (b == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(2);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeByteNBC(b);
+		}
+	}
+
+	@Override
+	public void writeShort(int s) {
+		ensureWritable(2);
+		writeShortNBC(s);
+	}
+
+	@Override
+	public void writeShortBox(Short s) {
+		if (s == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(3);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeShortNBC(s);
+		}
+	}
+
+	@Override
+	public void writeChar(int c) {
+		writeShort(c);
+	}
+
+	private void writeCharNBC(int c) {
+		writeShortNBC(c);
+	}
+
+	@Override
+	public void writeCharBox(Character c) {
+		if (c == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(3);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeCharNBC(c);
+		}
+	}
+
+	@Override
+	public void writeInt(int i) {
+		ensureWritable(4);
+		writeIntNBC(i);
+	}
+
+	@Override
+	public void writeIntBox(Integer i) {
+		if (i == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(5);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeIntNBC(i);
+		}
+	}
+
+	@Override
+	public void writeLong(long v) {
+		ensureWritable(8);
+		writeLongNBC(v);
+	}
+
+	@Override
+	public void writeLongBox(Long l) {
+		if (l == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(9);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeLongNBC(l);
+		}
+	}
+
+	@Override
+	public void writeFloat(float v) {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	private void writeFloatNBC(float f) {
+		writeIntNBC(Float.floatToIntBits(f));
+	}
+	@Override
+	public void writeFloatBox(Float f) {
+		if (f == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(5);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeFloatNBC(f);
+		}
+	}
+
+	@Override
+	public void writeDouble(double v) {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	private void writeDoubleNBC(double v) {
+		writeLongNBC(Double.doubleToLongBits(v));
+	}
+
+	@Override
+	public void writeDoubleBox(Double d) {
+		if (d == null) {
+			writeByte(BufferConstants.BOX_NULL);
+		} else {
+			ensureWritable(9);
+			writeByteNBC(BufferConstants.BOX_NONNULL);
+			writeDoubleNBC(d);
+		}
+	}
+
+	@Override
+	public void writeChars(@NotNull String s) {
+		int len = s.length();
+		ensureWritable(len << 1);
+		for (int i = 0; i < len; ++i) {
+			writeShortNBC(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeUTF(@NotNull String s) {
+		char c;
+		int i;
+		int utfLen = 0;
+		int strLen = s.length();
+		for (i = 0; i < strLen; i++) {
+			c = s.charAt(i);
+			if (c >= 0x0001 && c <= 0x007f) {
+				utfLen++;
+			} else if (c >= 0x800) {
+				utfLen += 3;
+			} else {
+				utfLen += 2;
+			}
+		}
+		if (utfLen > 65535) {
+			throw new IllegalStateException(new UTFDataFormatException("Encoded String too long. " + utfLen + " > 65535"));
+		}
+		writeShort(utfLen);
+		ensureWritable(utfLen);
+
+		if (utfLen == strLen) {
+			for (i = 0; i < strLen; i++) {
+				writeByteNBC(s.charAt(i));
+			}
+		} else {
+			for (i = 0; i < strLen; i++) {
+				c = s.charAt(i);
+				if (c >= 0x0001 && c <= 0x007f) {
+					writeByteNBC(c);
+				} else if (c >= 0x800) {
+					writeByteNBC(0xE0 | ((c >> 12) & 0x0F));
+					writeByteNBC(0x80 | ((c >> 6) & 0x3F));
+					writeByteNBC(0x80 | (c & 0x3F));
+				} else {
+					writeByteNBC(0xC0 | ((c >> 6) & 0x1F));
+					writeByteNBC(0x80 | (c & 0x3F));
+				}
+			}
+		}
+	}
+
+	@Override
+	@Deprecated
+	public void writeBytes(@NotNull String s) {
+		int len = s.length();
+		ensureWritable(len);
+		for (int i = 0; i < len; i++) {
+			writeByteNBC(s.charAt(i));
+		}
+	}
+
+	private static int varIntLen(int i) {
+		return i < 0
+				? 5 // less than 0 always takes the full 32 bits (=5 bytes in VarInt)
+				: positiveVarIntLen(i);
+	}
+
+	private static int positiveVarIntLen(int i) {
+		// number of significant bits divided by 7, rounded up, see http://stackoverflow.com/a/7446742
+		return (38 - Integer.numberOfLeadingZeros(i | 1)) / 7;
+	}
+
+	@Override
+	public void writeVarInt(int i) {
+		ensureWritable(varIntLen(i));
+		writeVarIntNBC(i);
+	}
+
+	private void writePositiveVarInt(int i) {
+		ensureWritable(positiveVarIntLen(i));
+		writeVarIntNBC(i);
+	}
+
+	private void writeNegativeVarInt(int i) {
+		ensureWritable(5);
+		writeVarIntNBC(i);
+	}
+
+	private void writeVarIntNBC(int i) {
+		while ((i & ~BufferConstants.SEVEN_BITS) != 0) {
+			writeByteNBC(i & BufferConstants.SEVEN_BITS);
+			i >>>= 7;
+		}
+		writeByteNBC(i | (BufferConstants.BYTE_MSB));
+	}
+
+	private static int varLongLen(long l) {
+		// same as positiveVarIntLen, negative numbers end up with the full 10 bytes
+		return (70 - Long.numberOfLeadingZeros(l | 1)) / 7;
+	}
+
+	@Override
+	public void writeVarLong(long l) {
+		ensureWritable(varLongLen(l));
+		writeVarLongNBC(l);
+	}
+
+	private void writeVarLongNBC(long l) {
+		while ((l & ~BufferConstants.SEVEN_BITS) != 0) {
+			writeByteNBC((int) l & BufferConstants.SEVEN_BITS);
+			l >>>= 7;
+		}
+		writeByteNBC((int) l | BufferConstants.BYTE_MSB);
+	}
+
+	@Override
+	public void writeSignedVarInt(int i) {
+		writePositiveVarInt(zigZag(i));
+	}
+
+	@Override
+	public void writeSignedVarLong(long l) {
+		writeVarLong(zigZag(l));
+	}
+
+	private static int zigZag(int i) {
+		return (i << 1) ^ (i >> 31);
+	}
+
+	private static long zigZag(long l) {
+		return (l << 1) ^ (l >> 63);
+	}
+
+	@Override
+	public void writeVarInts(int[] ints) {
+		if (ints == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeVarInts0(ints, 0, ints.length);
+		}
+	}
+
+	@Override
+	public void writeVarInts(int[] ints, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, ints.length);
+		writeVarInts0(ints, off, len);
+	}
+
+	private void writeVarInts0(int[] ints, int off, int len) {
+		int end = off + len;
+		int bytes = positiveVarIntLen(len);
+		for (int i = off; i < end; i++) {
+			bytes += positiveVarIntLen(ints[i]);
+		}
+		ensureWritable(bytes);
+		writeVarIntNBC(len);
+		for (int i = off; i < end; i++) {
+			writeVarIntNBC(ints[i]);
+		}
+	}
+
+	@Override
+	public void writeVarLongs(long[] longs) {
+		if (longs == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeVarLongs0(longs, 0, longs.length);
+		}
+	}
+
+	@Override
+	public void writeVarLongs(long[] longs, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, longs.length);
+		writeVarLongs0(longs, off, len);
+	}
+
+	private void writeVarLongs0(long[] longs, int off, int len) {
+		int end = off + len;
+		int bytes = positiveVarIntLen(len);
+		for (int i = off; i < end; i++) {
+			bytes += varLongLen(longs[i]);
+		}
+		ensureWritable(bytes);
+		writeVarIntNBC(len);
+		for (int i = off; i < end; i++) {
+			writeVarLongNBC(longs[i]);
+		}
+	}
+
+	@Override
+	public void writeString(String s) {
+		int len = s.length();
+		ensureWritable(positiveVarIntLen(len) + len << 1);
+
+		writeVarIntNBC(len);
+		for (int i = 0; i < len; i++) {
+			writeShortNBC(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeCompactString(String s) {
+		if (s == null) {
+			writePositiveVarInt(BufferConstants.COMPACT_STRING_NULL);
+			return;
+		}
+		int len = s.length();
+		char[] chars = charBuf(len);
+		s.getChars(0, len, chars, 0);
+
+		boolean latin1 = true;
+		int utfLen = 0;
+		for (int i = 0; i < len; i++) {
+			char c = chars[i];
+			if (c < 0x80) {
+				utfLen++;
+			} else {
+				latin1 &= c <= 0xFF;
+				utfLen += c < 0x800 ? 2 : 3;
+			}
+		}
+
+		if (latin1) {
+			int header = len << 1;
+			ensureWritable(positiveVarIntLen(header) + len);
+			writeVarIntNBC(header);
+			writeLatin1NBC(s, len);
+		} else {
+			int header = utfLen << 1 | BufferConstants.COMPACT_STRING_UTF8;
+			ensureWritable(positiveVarIntLen(header) + utfLen);
+			writeVarIntNBC(header);
+
+			// surrogates are encoded individually, like DataOutput#writeUTF does
+			for (int i = 0; i < len; i++) {
+				char c = chars[i];
+				if (c < 0x80) {
+					writeByteNBC(c);
+				} else if (c < 0x800) {
+					writeByteNBC(0xC0 | c >> 6);
+					writeByteNBC(0x80 | c & 0x3F);
+				} else {
+					writeByteNBC(0xE0 | c >> 12);
+					writeByteNBC(0x80 | c >> 6 & 0x3F);
+					writeByteNBC(0x80 | c & 0x3F);
+				}
+			}
+		}
+	}
+
+	private char[] charBuf(int len) {
+		char[] chars = charBuf;
+		if (chars == null || chars.length < len) {
+			chars = charBuf = new char[Math.max(len, 32)];
+		}
+		return chars;
+	}
+
+	@Override
+	public void writeItemStack(ItemStack stack) {
+		if (stack == null) {
+			writeShort(-1);
+		} else {
+			ensureWritable(6); // 2 +2 + 1 + 1 (NBT needs at least 1 byte)
+			writeShortNBC(stack.itemID);
+			writeShortNBC(stack.getItemDamage());
+			writeByteNBC(stack.stackSize);
+			writeNBT(stack.stackTagCompound);
+		}
+	}
+
+	@Override
+	public void writeFluidStack(FluidStack stack) {
+		if (stack == null) {
+			writeVarInt(-1);
+		} else {
+			ensureWritable(varIntLen(stack.fluidID)
+					+ varIntLen(stack.amount) // technically amount is always >= 0, but we can't be sure
+					+ 1 /* NBT needs at least 1 byte*/ );
+
+			writeVarIntNBC(stack.fluidID);
+			writeVarIntNBC(stack.amount);
+			writeNBT(stack.tag);
+		}
+	}
+
+	@Override
+	public void writeNBT(NBTTagCompound nbt) {
+		int mode;
+		if (NBT_DICTIONARY) {
+			mode = BufferConstants.NBT_DICTIONARY_NAMES;
+		} else if (COMPACT_NBT) {
+			mode = BufferConstants.NBT_COMPACT_NAMES;
+		} else {
+			mode = BufferConstants.NBT_LEGACY_NAMES;
+		}
+		writeNBT(nbt, mode);
+	}
+
+	final void writeNBT(NBTTagCompound nbt, int mode) {
+		if (nbt == null) {
+			writeByte(BufferConstants.NBT_NULL);
+		} else {
+			if (mode != BufferConstants.NBT_LEGACY_NAMES) {
+				writeByte(mode);
+			}
+			writeTags(nbt, mode);
+		}
+	}
+
+	private void writeTags(NBTTagCompound nbt, int mode) {
+		try {
+			for (NBTBase tag : NBT.asMap(nbt).values()) {
+				int id = tag.getId();
+				writeByte(id);
+				switch (mode) {
+					case BufferConstants.NBT_LEGACY_NAMES:
+						writeString(tag.getName());
+						break;
+					case BufferConstants.NBT_COMPACT_NAMES:
+						writeCompactString(tag.getName());
+						break;
+					default:
+						writeDictionaryName(tag.getName());
+						break;
+				}
+				// nested compounds use the dictionary as well, other tags have their names written by vanilla code
+				if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_COMPOUND_ID) {
+					writeTags((NBTTagCompound) tag, mode);
+				} else if (mode == BufferConstants.NBT_DICTIONARY_NAMES && id == BufferConstants.NBT_LIST_ID && isCompoundList((NBTTagList) tag)) {
+					writeCompoundList(NBT.<NBTTagCompound>asList((NBTTagList) tag), mode);
+				} else {
+					SCReflector.instance.write(tag, this);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		writeByte(0);
+	}
+
+	private static boolean isCompoundList(NBTTagList list) {
+		// vanilla takes the element type from the first element
+		return list.tagCount() != 0 && list.tagAt(0).getId() == BufferConstants.NBT_COMPOUND_ID;
+	}
+
+	private void writeCompoundList(List<NBTTagCompound> list, int mode) {
+		// same header as vanilla, but the elements are written like nested compounds
+		writeByte(BufferConstants.NBT_COMPOUND_ID);
+		int len = list.size();
+		writeInt(len);
+		for (int i = 0; i < len; i++) {
+			writeTags(list.get(i), mode);
+		}
+	}
+
+	private void writeDictionaryName(String name) {
+		if (nbtNames == null) {
+			nbtNames = new HashMap<>();
+		}
+		NBTName known = nbtNames.get(name);
+		if (known == null) {
+			int start = length();
+			writePositiveVarInt(BufferConstants.NBT_NAME_INLINE);
+			writeCompactString(name);
+			nbtNames.put(name, new NBTName(nbtNames.size() + 1, length() - start));
+		} else {
+			int start = length();
+			writePositiveVarInt(known.ref);
+			nbtNameBytesSaved.addAndGet(known.inlineLen - (length() - start));
+		}
+	}
+
+	private static final class NBTName {
+
+		final int ref;
+		final int inlineLen;
+
+		NBTName(int ref, int inlineLen) {
+			this.ref = ref;
+			this.inlineLen = inlineLen;
+		}
+	}
+
+	@Override
+	public void writeItem(Item item) {
+		writePositiveVarInt(item == null ? BufferConstants.ITEM_NULL_ID : item.itemID);
+	}
+
+	@Override
+	public void writeBlock(Block block) {
+		writePositiveVarInt(block == null ? BufferConstants.BLOCK_NULL_ID : block.blockID);
+	}
+
+	@Override
+	public void writeCoords(int x, int y, int z) {
+		BlockPos.toByteStream(this, x, y, z);
+	}
+
+	@Override
+	public void writeUUID(UUID uuid) {
+		if (uuid == null) {
+			writeLong(BufferConstants.UUID_NULL_MSB);
+		} else {
+			ensureWritable(16);
+			writeLongNBC(uuid.getMostSignificantBits());
+			writeLongNBC(uuid.getLeastSignificantBits());
+		}
+	}
+
+	@Override
+	public <E extends Enum<E>> void writeEnum(E e) {
+		if (e != null) {
+			writePositiveVarInt(e.ordinal());
+		} else {
+			writeNegativeVarInt(-1);
+		}
+	}
+
+	@Override
+	public void writeBitSet(BitSet bitSet) {
+		if (bitSet == null) {
+			writeLongs(null);
+		} else {
+			writeLongs(bitSet.toLongArray());
+		}
+	}
+
+	@Override
+	public <E extends Enum<E>> void writeEnumSet(EnumSet<E> enumSet) {
+		if (enumSet == null) {
+			writeByte(0);
+		} else {
+			int numEnums = JavaUtils.getEnumConstantsShared(JavaUtils.getType(enumSet)).length;
+
+			// the lowest bit of the first byte is always set, so that an empty set can be told apart from null
+			if (numEnums <= 7) {
+				int b = 1;
+				for (E e : enumSet) {
+					b |= 2 << e.ordinal(); // actually: 1 << (ordinal + 1)
+				}
+				writeByte(b);
+			} else {
+				byte[] bytes = new byte[1 + (numEnums >>> 3)];
+				bytes[0] = 1;
+				for (E e : enumSet) {
+					int ord = e.ordinal() + 1;
+					if (ord < 8) {
+						bytes[0] |= 1 << ord;
+					} else {
+						ord -= 8; // bytes after the first start at ordinal 7
+						bytes[1 + (ord >>> 3)] |= 1 << (ord & 7);
+					}
+				}
+				write(bytes);
+			}
+		}
+	}
+
+	@Override
+	public void writeBooleans(boolean[] booleans) {
+		if (booleans == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeBooleans0(booleans, 0, booleans.length);
+		}
+	}
+
+	@Override
+	public void writeBooleans(boolean[] booleans, int off, int len) {
+		checkPositionIndexes(off, off + len, booleans.length);
+		writeBooleans0(booleans, off, len);
+	}
+
+	private void writeBooleans0(boolean[] booleans, int off, int len) {
+		int bytesNeeded = (len + 7) >>> 3; // division by 8 and round up
+		ensureWritable(bytesNeeded + positiveVarIntLen(len));
+		writeVarIntNBC(len);
+
+		int currentByte = 0;
+		for (int idx = 0; idx < len; idx++) {
+			int bit = idx & 7;
+			currentByte |= (booleans[off + idx] ? 1 << bit : 0);
+
+			if (bit == 7) {
+				writeByteNBC(currentByte);
+				currentByte = 0;
+			}
+		}
+		if ((len & 7) != 0) {
+			writeByteNBC(currentByte);
+		}
+	}
+
+	@Override
+	public void writeBytes(byte[] bytes) {
+		if (bytes == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeBytes0(bytes, 0, bytes.length);
+		}
+	}
+
+	@Override
+	public void writeBytes(byte[] bytes, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, bytes.length);
+
+		writeBytes0(bytes, off, len);
+	}
+
+	private void writeBytes0(byte[] bytes, int off, int len) {
+		ensureWritable(len + positiveVarIntLen(len));
+		writeVarIntNBC(len);
+		writeNBC(bytes, off, len);
+	}
+
+	@Override
+	public void writeShorts(short[] shorts) {
+		if (shorts == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeShorts0(shorts, 0, shorts.length);
+		}
+	}
+
+	@Override
+	public void writeShorts(short[] shorts, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, shorts.length);
+		writeShorts0(shorts, off, len);
+	}
+
+	private void writeShorts0(short[] shorts, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 1));
+		writeVarIntNBC(len);
+		writeShortsNBC(shorts, off, len);
+	}
+
+	@Override
+	public void writeInts(int[] ints) {
+		if (ints == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeInts0(ints, 0, ints.length);
+		}
+	}
+
+	@Override
+	public void writeInts(int[] ints, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, ints.length);
+		writeInts0(ints, off, len);
+	}
+
+	private void writeInts0(int[] ints, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 2));
+		writeVarIntNBC(len);
+		writeIntsNBC(ints, off, len);
+	}
+
+	@Override
+	public void writeLongs(long[] longs) {
+		if (longs == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeLongs0(longs, 0, longs.length);
+		}
+	}
+
+	@Override
+	public void writeLongs(long[] longs, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, longs.length);
+		writeLongs0(longs, off, len);
+	}
+
+	private void writeLongs0(long[] longs, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 3));
+		writeVarIntNBC(len);
+		writeLongsNBC(longs, off, len);
+	}
+
+	@Override
+	public void writeIntsDelta(int[] ints, int[] previous) {
+		if (ints == null) {
+			writeNegativeVarInt(-1);
+			return;
+		}
+		int len = ints.length;
+		int fullSize = positiveVarIntLen(len << 1) + (len << 2);
+		if (previous == null || previous.length != len) {
+			writeIntsFull(ints, fullSize);
+			return;
+		}
+
+		// first pass to find the size of the patch
+		int runs = 0;
+		int patchSize = 0;
+		int runEnd = 0;
+		int i = 0;
+		while ((i = nextChange(ints, previous, i)) != len) {
+			int start = i;
+			i = nextMatch(ints, previous, i);
+			patchSize += positiveVarIntLen(start - runEnd) + positiveVarIntLen(i - start) + ((i - start) << 2);
+			runEnd = i;
+			runs++;
+		}
+		patchSize += positiveVarIntLen(len << 1 | BufferConstants.DELTA_PATCH) + positiveVarIntLen(runs);
+		if (patchSize >= fullSize) {
+			writeIntsFull(ints, fullSize);
+			return;
+		}
+
+		ensureWritable(patchSize);
+		writeVarIntNBC(len << 1 | BufferConstants.DELTA_PATCH);
+		writeVarIntNBC(runs);
+		runEnd = 0;
+		i = 0;
+		while ((i = nextChange(ints, previous, i)) != len) {
+			int start = i;
+			i = nextMatch(ints, previous, i);
+			writeVarIntNBC(start - runEnd);
+			writeVarIntNBC(i - start);
+			writeIntsNBC(ints, start, i - start);
+			runEnd = i;
+		}
+	}
+
+	private void writeIntsFull(int[] ints, int size) {
+		ensureWritable(size);
+		writeVarIntNBC(ints.length << 1 | BufferConstants.DELTA_FULL);
+		writeIntsNBC(ints, 0, ints.length);
+	}
+
+	private static int nextChange(int[] a, int[] b, int i) {
+		int len = a.length;
+		while (i < len && a[i] == b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int nextMatch(int[] a, int[] b, int i) {
+		int len = a.length;
+		while (i < len && a[i] != b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	@Override
+	public void writeLongsDelta(long[] longs, long[] previous) {
+		if (longs == null) {
+			writeNegativeVarInt(-1);
+			return;
+		}
+		int len = longs.length;
+		int fullSize = positiveVarIntLen(len << 1) + (len << 3);
+		if (previous == null || previous.length != len) {
+			writeLongsFull(longs, fullSize);
+			return;
+		}
+
+		int runs = 0;
+		int patchSize = 0;
+		int runEnd = 0;
+		int i = 0;
+		while ((i = nextChange(longs, previous, i)) != len) {
+			int start = i;
+			i = nextMatch(longs, previous, i);
+			patchSize += positiveVarIntLen(start - runEnd) + positiveVarIntLen(i - start) + ((i - start) << 3);
+			runEnd = i;
+			runs++;
+		}
+		patchSize += positiveVarIntLen(len << 1 | BufferConstants.DELTA_PATCH) + positiveVarIntLen(runs);
+		if (patchSize >= fullSize) {
+			writeLongsFull(longs, fullSize);
+			return;
+		}
+
+		ensureWritable(patchSize);
+		writeVarIntNBC(len << 1 | BufferConstants.DELTA_PATCH);
+		writeVarIntNBC(runs);
+		runEnd = 0;
+		i = 0;
+		while ((i = nextChange(longs, previous, i)) != len) {
+			int start = i;
+			i = nextMatch(longs, previous, i);
+			writeVarIntNBC(start - runEnd);
+			writeVarIntNBC(i - start);
+			writeLongsNBC(longs, start, i - start);
+			runEnd = i;
+		}
+	}
+
+	private void writeLongsFull(long[] longs, int size) {
+		ensureWritable(size);
+		writeVarIntNBC(longs.length << 1 | BufferConstants.DELTA_FULL);
+		writeLongsNBC(longs, 0, longs.length);
+	}
+
+	private static int nextChange(long[] a, long[] b, int i) {
+		int len = a.length;
+		while (i < len && a[i] == b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int nextMatch(long[] a, long[] b, int i) {
+		int len = a.length;
+		while (i < len && a[i] != b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	@Override
+	public void writeChars(char[] chars) {
+		if (chars == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeChars0(chars, 0, chars.length);
+		}
+	}
+
+	@Override
+	public void writeChars(char[] chars, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, chars.length);
+		writeChars0(chars, off, len);
+	}
+
+	private void writeChars0(char[] chars, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 1));
+		writeVarIntNBC(len);
+		writeCharsNBC(chars, off, len);
+	}
+
+	@Override
+	public void writeFloats(float[] floats) {
+		if (floats == null) {
+			writeNegativeVarInt(-1);
+		} else {
+			writeFloats0(floats, 0, floats.length);
+		}
+	}
+
+	@Override
+	public void writeFloats(float[] floats, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, floats.length);
+		writeFloats0(floats, off, len);
+	}
+
+	private void writeFloats0(float[] floats, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 2));
+		writeVarIntNBC(len);
+		writeFloatsNBC(floats, off, len);
+	}
+
+	@Override
+	public void writeDoubles(double[] doubles) {
+		if (doubles == null) {
+			writeVarInt(-1);
+		} else {
+			writeDoubles0(doubles, 0, doubles.length);
+		}
+	}
+
+	@Override
+	public void writeDoubles(double[] doubles, int off, int len) {
+		checkArgument(len >= 0, "len must be >= 0");
+		checkPositionIndexes(off, off + len, doubles.length);
+		writeDoubles0(doubles, off, len);
+	}
+
+	private void writeDoubles0(double[] doubles, int off, int len) {
+		ensureWritable(positiveVarIntLen(len) + (len << 3));
+		writeVarIntNBC(len);
+		writeDoublesNBC(doubles, off, len);
+	}
+
+}
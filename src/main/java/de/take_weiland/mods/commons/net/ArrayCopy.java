@@ -0,0 +1,200 @@
+package de.take_weiland.mods.commons.net;
+
+import de.take_weiland.mods.commons.internal.SevenCommons;
+import de.take_weiland.mods.commons.util.JavaUtils;
+import sun.misc.Unsafe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Bulk copies between primitive arrays and little endian byte arrays.</p>
+ * <p>If {@code sun.misc.Unsafe} is available and the platform is little endian, the memory is copied directly.
+ * Otherwise little endian ByteBuffer views are used.</p>
+ *
+ * @author diesieben07
+ */
+abstract class ArrayCopy {
+
+	static final ArrayCopy instance;
+
+	static {
+		ArrayCopy c = null;
+		if (JavaUtils.hasUnsafe() && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+			try {
+				c = (ArrayCopy) Class.forName("de.take_weiland.mods.commons.net.ArrayCopy$UnsafeCopy").newInstance();
+			} catch (Throwable t) {
+				SevenCommons.LOGGER.info("Failed to initialize Unsafe array copies. Falling back to ByteBuffer views");
+			}
+		}
+		instance = c == null ? new BufferViewCopy() : c;
+	}
+
+	abstract void copy(short[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(int[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(long[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(char[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(float[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(double[] src, int srcOff, byte[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, short[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, int[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, long[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, char[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, float[] dst, int dstOff, int len);
+
+	abstract void copy(byte[] src, int srcOff, double[] dst, int dstOff, int len);
+
+	static final class BufferViewCopy extends ArrayCopy {
+
+		private static ByteBuffer wrap(byte[] arr, int off, int len) {
+			return ByteBuffer.wrap(arr, off, len).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		@Override
+		void copy(short[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 1).asShortBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(int[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 2).asIntBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(long[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 3).asLongBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(char[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 1).asCharBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(float[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 2).asFloatBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(double[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			wrap(dst, dstOff, len << 3).asDoubleBuffer().put(src, srcOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, short[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 1).asShortBuffer().get(dst, dstOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, int[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 2).asIntBuffer().get(dst, dstOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, long[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 3).asLongBuffer().get(dst, dstOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, char[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 1).asCharBuffer().get(dst, dstOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, float[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 2).asFloatBuffer().get(dst, dstOff, len);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, double[] dst, int dstOff, int len) {
+			wrap(src, srcOff, len << 3).asDoubleBuffer().get(dst, dstOff, len);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	static final class UnsafeCopy extends ArrayCopy {
+
+		private static final Unsafe unsafe = JavaUtils.getUnsafe();
+
+		private static final long BYTE_BASE = unsafe.arrayBaseOffset(byte[].class);
+		private static final long SHORT_BASE = unsafe.arrayBaseOffset(short[].class);
+		private static final long INT_BASE = unsafe.arrayBaseOffset(int[].class);
+		private static final long LONG_BASE = unsafe.arrayBaseOffset(long[].class);
+		private static final long CHAR_BASE = unsafe.arrayBaseOffset(char[].class);
+		private static final long FLOAT_BASE = unsafe.arrayBaseOffset(float[].class);
+		private static final long DOUBLE_BASE = unsafe.arrayBaseOffset(double[].class);
+
+		// callers have already checked the bounds of both arrays
+
+		@Override
+		void copy(short[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, SHORT_BASE + ((long) srcOff << 1), dst, BYTE_BASE + dstOff, (long) len << 1);
+		}
+
+		@Override
+		void copy(int[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, INT_BASE + ((long) srcOff << 2), dst, BYTE_BASE + dstOff, (long) len << 2);
+		}
+
+		@Override
+		void copy(long[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, LONG_BASE + ((long) srcOff << 3), dst, BYTE_BASE + dstOff, (long) len << 3);
+		}
+
+		@Override
+		void copy(char[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, CHAR_BASE + ((long) srcOff << 1), dst, BYTE_BASE + dstOff, (long) len << 1);
+		}
+
+		@Override
+		void copy(float[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, FLOAT_BASE + ((long) srcOff << 2), dst, BYTE_BASE + dstOff, (long) len << 2);
+		}
+
+		@Override
+		void copy(double[] src, int srcOff, byte[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, DOUBLE_BASE + ((long) srcOff << 3), dst, BYTE_BASE + dstOff, (long) len << 3);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, short[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, SHORT_BASE + ((long) dstOff << 1), (long) len << 1);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, int[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, INT_BASE + ((long) dstOff << 2), (long) len << 2);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, long[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, LONG_BASE + ((long) dstOff << 3), (long) len << 3);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, char[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, CHAR_BASE + ((long) dstOff << 1), (long) len << 1);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, float[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, FLOAT_BASE + ((long) dstOff << 2), (long) len << 2);
+		}
+
+		@Override
+		void copy(byte[] src, int srcOff, double[] dst, int dstOff, int len) {
+			unsafe.copyMemory(src, BYTE_BASE + srcOff, dst, DOUBLE_BASE + ((long) dstOff << 3), (long) len << 3);
+		}
+	}
+
+}
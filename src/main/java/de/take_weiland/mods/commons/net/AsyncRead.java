@@ -0,0 +1,23 @@
+package de.take_weiland.mods.commons.net;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <p>Read a {@link de.take_weiland.mods.commons.net.ModPacket} on a separate decoder thread instead of the main thread.</p>
+ * <p>When a packet with this annotation is received, {@link ModPacket#read(MCDataInput, net.minecraft.entity.player.EntityPlayer, cpw.mods.fml.relauncher.Side) read}
+ * is called on a decoder thread, {@link ModPacket#execute(net.minecraft.entity.player.EntityPlayer, cpw.mods.fml.relauncher.Side) execute}
+ * is then called on the main thread during the next tick. Use this for packets with large payloads that are expensive
+ * to decode. The {@code read} method must not access the World or any other state owned by the main thread.</p>
+ * <p>Packets received from one connection are always executed in the order they were received, regardless of whether
+ * they have this annotation.</p>
+ *
+ * @author diesieben07
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface AsyncRead {
+}
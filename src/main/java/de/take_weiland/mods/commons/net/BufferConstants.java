@@ -16,6 +16,17 @@ final class BufferConstants {
 	static final int BOX_NULL = 0;
 	static final int BOX_NONNULL = 1;
 	static final long UUID_NULL_MSB = 0xF000;
+	static final int COMPACT_STRING_NULL = 1; // UTF-8 flag with length 0, an empty String is always written as Latin-1
+	static final int COMPACT_STRING_UTF8 = 1;
+	static final int NBT_NULL = -1;
+	static final int NBT_COMPACT_NAMES = -2;
+	static final int NBT_DICTIONARY_NAMES = -3;
+	static final int NBT_LEGACY_NAMES = 0; // not written, the absence of a marker means legacy names
+	static final int NBT_LIST_ID = 9;
+	static final int NBT_COMPOUND_ID = 10;
+	static final int NBT_NAME_INLINE = 0;
+	static final int DELTA_FULL = 0;
+	static final int DELTA_PATCH = 1;
 
 	private BufferConstants() { }
 }
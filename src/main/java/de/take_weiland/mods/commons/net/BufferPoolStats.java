@@ -0,0 +1,36 @@
+package de.take_weiland.mods.commons.net;
+
+/**
+ * <p>Statistics about the pool backing {@link Network#newPooledDataOutput(int)}.</p>
+ * <p>All values are cumulative since startup.</p>
+ *
+ * @author diesieben07
+ */
+public interface BufferPoolStats {
+
+	/**
+	 * <p>The number of times a buffer could be taken from the pool.</p>
+	 * @return the number of hits
+	 */
+	long hits();
+
+	/**
+	 * <p>The number of times a new buffer had to be allocated.</p>
+	 * @return the number of misses
+	 */
+	long misses();
+
+	/**
+	 * <p>The number of buffers that have been returned to the pool.</p>
+	 * @return the number of recycled buffers
+	 */
+	long recycled();
+
+	/**
+	 * <p>The number of streams that were discarded without ever being locked (i.e. turned into a packet).</p>
+	 * <p>Enable {@code -Dsevencommons.net.pooledBuffers.trackLeaks=true} to log where such streams were created.</p>
+	 * @return the number of leaked buffers
+	 */
+	long leaked();
+
+}
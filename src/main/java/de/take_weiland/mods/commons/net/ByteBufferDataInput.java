@@ -0,0 +1,191 @@
+package de.take_weiland.mods.commons.net;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * <p>MCDataInput that reads directly from a (heap or direct) ByteBuffer.</p>
+ *
+ * @author diesieben07
+ */
+@ParametersAreNonnullByDefault
+final class ByteBufferDataInput extends AbstractMCDataInput {
+
+	private final ByteBuffer buf;
+	private int markedPos = BufferConstants.NO_MARK;
+
+	ByteBufferDataInput(ByteBuffer buf) {
+		// slice so that the position and byte order of the given buffer are left alone
+		this.buf = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public int pos() {
+		return buf.position();
+	}
+
+	@Override
+	public int len() {
+		return buf.limit();
+	}
+
+	@Override
+	public int available() {
+		return buf.remaining();
+	}
+
+	@Override
+	public void seek(int pos) {
+		if (pos < 0) {
+			throw new IllegalArgumentException("pos must be >= 0");
+		} else if (pos > buf.limit()) {
+			throw new IndexOutOfBoundsException("pos must be < length");
+		} else {
+			buf.position(pos);
+		}
+	}
+
+	@Override
+	public int skipBytes(int n) {
+		if (n <= 0) {
+			return 0;
+		}
+		int avail = buf.remaining();
+		if (n > avail) n = avail;
+		buf.position(buf.position() + n);
+		return n;
+	}
+
+	@Override
+	public MCDataInput readSlice(int len) {
+		if (len < 0) {
+			throw new IllegalArgumentException("len must be >= 0");
+		}
+		checkAvailable(len);
+		ByteBuffer slice = buf.duplicate();
+		slice.limit(slice.position() + len);
+		buf.position(buf.position() + len);
+		return new ByteBufferDataInput(slice);
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		markedPos = buf.position();
+	}
+
+	@Override
+	public void reset() {
+		buf.position(markedPos == BufferConstants.NO_MARK ? 0 : markedPos);
+	}
+
+	// actual IO
+
+	@Override
+	void checkAvailable(int bytes) {
+		if (buf.remaining() < bytes) {
+			throw new IllegalStateException("Read past end of buffer");
+		}
+	}
+
+	@Override
+	public int read() {
+		return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		checkPositionIndexes(off, off + len, b.length);
+		int avail = buf.remaining();
+		if (avail == 0) {
+			return -1;
+		}
+		int actualLen = Math.min(len, avail);
+		buf.get(b, off, actualLen);
+		return actualLen;
+	}
+
+	@Override
+	public int read(byte[] b) {
+		return read(b, 0, b.length);
+	}
+
+	@Override
+	byte readByteNBC() {
+		return buf.get();
+	}
+
+	@Override
+	short readShortNBC() {
+		return buf.getShort();
+	}
+
+	@Override
+	int readIntNBC() {
+		return buf.getInt();
+	}
+
+	@Override
+	long readLongNBC() {
+		return buf.getLong();
+	}
+
+	@Override
+	void readNBC(byte[] b, int off, int len) {
+		buf.get(b, off, len);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	String readLatin1NBC(int len) {
+		if (buf.hasArray()) {
+			int pos = buf.position();
+			String s = new String(buf.array(), 0, buf.arrayOffset() + pos, len);
+			buf.position(pos + len);
+			return s;
+		} else {
+			byte[] bytes = new byte[len];
+			buf.get(bytes);
+			return new String(bytes, 0, 0, len);
+		}
+	}
+
+	@Override
+	void readShortsNBC(short[] arr, int off, int len) {
+		buf.asShortBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 1));
+	}
+
+	@Override
+	void readIntsNBC(int[] arr, int off, int len) {
+		buf.asIntBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 2));
+	}
+
+	@Override
+	void readLongsNBC(long[] arr, int off, int len) {
+		buf.asLongBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 3));
+	}
+
+	@Override
+	void readCharsNBC(char[] arr, int off, int len) {
+		buf.asCharBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 1));
+	}
+
+	@Override
+	void readFloatsNBC(float[] arr, int off, int len) {
+		buf.asFloatBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 2));
+	}
+
+	@Override
+	void readDoublesNBC(double[] arr, int off, int len) {
+		buf.asDoubleBuffer().get(arr, off, len);
+		buf.position(buf.position() + (len << 3));
+	}
+
+}
@@ -0,0 +1,188 @@
+package de.take_weiland.mods.commons.net;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>MCDataOutput that writes directly into a (heap or direct) ByteBuffer.</p>
+ * <p>If the buffer runs out of space, a new buffer of the same kind is allocated.</p>
+ *
+ * @author diesieben07
+ */
+final class ByteBufferDataOutput extends AbstractMCDataOutput {
+
+	private ByteBuffer buf;
+
+	ByteBufferDataOutput(ByteBuffer buf) {
+		// slice so that the position and byte order of the given buffer are left alone
+		this.buf = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public int length() {
+		return buf.position();
+	}
+
+	@Override
+	public byte[] backingArray() {
+		if (buf.hasArray() && buf.arrayOffset() == 0) {
+			return buf.array();
+		} else {
+			throw new UnsupportedOperationException("Buffer has no accessible backing array");
+		}
+	}
+
+	@Override
+	public byte[] toByteArray() {
+		byte[] arr = new byte[buf.position()];
+		written().get(arr);
+		return arr;
+	}
+
+	@Override
+	public void writeTo(OutputStream stream) throws IOException {
+		if (buf.hasArray()) {
+			stream.write(buf.array(), buf.arrayOffset(), buf.position());
+		} else {
+			stream.write(toByteArray());
+		}
+	}
+
+	@Override
+	public void writeTo(DataOutput out) throws IOException {
+		if (buf.hasArray()) {
+			out.write(buf.array(), buf.arrayOffset(), buf.position());
+		} else {
+			out.write(toByteArray());
+		}
+	}
+
+	@Override
+	public void writeTo(ByteBuffer buf) {
+		buf.put(written());
+	}
+
+	@Override
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		ByteBuffer written = written();
+		while (written.hasRemaining()) {
+			channel.write(written);
+		}
+	}
+
+	private ByteBuffer written() {
+		ByteBuffer dup = buf.duplicate();
+		dup.flip();
+		return dup;
+	}
+
+	@Override
+	void ensureCapacity(int bytesToWrite) {
+		if (buf.remaining() < bytesToWrite) {
+			grow(buf.position() + bytesToWrite);
+		}
+	}
+
+	private void grow(int minCapacity) {
+		int newCapacity = buf.capacity() << 1;
+		if (newCapacity - minCapacity < 0)
+			newCapacity = minCapacity;
+		if (newCapacity < 0) {
+			if (minCapacity < 0)
+				throw new OutOfMemoryError();
+			newCapacity = Integer.MAX_VALUE;
+		}
+		ByteBuffer newBuf = buf.isDirect() ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+		newBuf.order(ByteOrder.LITTLE_ENDIAN);
+		newBuf.put(written());
+		buf = newBuf;
+	}
+
+	@Override
+	void writeNullsNBC(int n) {
+		// the buffer might contain garbage
+		for (int i = 0; i < n; i++) {
+			buf.put((byte) 0);
+		}
+	}
+
+	@Override
+	void writeByteNBC(int b) {
+		buf.put((byte) b);
+	}
+
+	@Override
+	void writeShortNBC(int s) {
+		buf.putShort((short) s);
+	}
+
+	@Override
+	void writeIntNBC(int i) {
+		buf.putInt(i);
+	}
+
+	@Override
+	void writeLongNBC(long l) {
+		buf.putLong(l);
+	}
+
+	@Override
+	void writeNBC(byte[] b, int off, int len) {
+		buf.put(b, off, len);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	void writeLatin1NBC(String s, int len) {
+		if (buf.hasArray()) {
+			int pos = buf.position();
+			s.getBytes(0, len, buf.array(), buf.arrayOffset() + pos);
+			buf.position(pos + len);
+		} else {
+			for (int i = 0; i < len; i++) {
+				buf.put((byte) s.charAt(i));
+			}
+		}
+	}
+
+	@Override
+	void writeShortsNBC(short[] arr, int off, int len) {
+		buf.asShortBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 1));
+	}
+
+	@Override
+	void writeIntsNBC(int[] arr, int off, int len) {
+		buf.asIntBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 2));
+	}
+
+	@Override
+	void writeLongsNBC(long[] arr, int off, int len) {
+		buf.asLongBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 3));
+	}
+
+	@Override
+	void writeCharsNBC(char[] arr, int off, int len) {
+		buf.asCharBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 1));
+	}
+
+	@Override
+	void writeFloatsNBC(float[] arr, int off, int len) {
+		buf.asFloatBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 2));
+	}
+
+	@Override
+	void writeDoublesNBC(double[] arr, int off, int len) {
+		buf.asDoubleBuffer().put(arr, off, len);
+		buf.position(buf.position() + (len << 3));
+	}
+
+}
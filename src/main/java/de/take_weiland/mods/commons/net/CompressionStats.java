@@ -0,0 +1,55 @@
+package de.take_weiland.mods.commons.net;
+
+/**
+ * <p>Statistics about the compression of outbound packets.</p>
+ * <p>Compression is enabled with {@code -Dsevencommons.net.compressThreshold=<bytes>}. All values are cumulative since
+ * startup.</p>
+ *
+ * @author diesieben07
+ */
+public interface CompressionStats {
+
+	/**
+	 * <p>The number of packets that were at least as large as the threshold.</p>
+	 * @return the number of candidates
+	 */
+	long candidates();
+
+	/**
+	 * <p>The number of packets that were sent compressed. Candidates that did not shrink are sent uncompressed.</p>
+	 * <p>The hit ratio is {@code compressed() / (double) candidates()}.</p>
+	 * @return the number of compressed packets
+	 */
+	long compressed();
+
+	/**
+	 * <p>The total size of all compressed packets before compression.</p>
+	 * @return the number of bytes
+	 */
+	long bytesIn();
+
+	/**
+	 * <p>The total size of all compressed packets after compression.</p>
+	 * @return the number of bytes
+	 */
+	long bytesOut();
+
+	/**
+	 * <p>The time spent compressing packets, including candidates that did not shrink.</p>
+	 * @return the time in nanoseconds
+	 */
+	long deflateNanos();
+
+	/**
+	 * <p>The number of compressed packets that have been received.</p>
+	 * @return the number of inflated packets
+	 */
+	long inflated();
+
+	/**
+	 * <p>The time spent decompressing received packets.</p>
+	 * @return the time in nanoseconds
+	 */
+	long inflateNanos();
+
+}
@@ -60,6 +60,15 @@ public interface MCDataInput extends ByteArrayDataInput {
 	 */
 	InputStream asInputStream();
 
+	/**
+	 * <p>Create a stream that reads the next {@code len} bytes of this stream and skip those bytes in this stream.</p>
+	 * <p>The new stream is independent of this stream, e.g. the NBT name dictionary (see {@link #readNBT()}) starts out
+	 * empty. Use this to read data written to a separate {@link MCDataOutput} that has been embedded in this stream.</p>
+	 * @param len the number of bytes
+	 * @return a new stream
+	 */
+	MCDataInput readSlice(int len);
+
 	/**
 	 * <p>Read a VarInt from the buffer.</p>
 	 * @see MCDataOutput#writeVarInt(int)
@@ -67,6 +76,61 @@ public interface MCDataInput extends ByteArrayDataInput {
 	 */
 	int readVarInt();
 
+	/**
+	 * <p>Read a VarLong from the buffer.</p>
+	 * @see MCDataOutput#writeVarLong(long)
+	 * @return a long
+	 */
+	long readVarLong();
+
+	/**
+	 * <p>Read a ZigZag encoded VarInt from the buffer.</p>
+	 * @see MCDataOutput#writeSignedVarInt(int)
+	 * @return an int
+	 */
+	int readSignedVarInt();
+
+	/**
+	 * <p>Read a ZigZag encoded VarLong from the buffer.</p>
+	 * @see MCDataOutput#writeSignedVarLong(long)
+	 * @return a long
+	 */
+	long readSignedVarLong();
+
+	/**
+	 * <p>Read a packed array of ints from the stream.</p>
+	 * <p>This method first reads a VarInt {@code length} from the buffer. If the VarInt is -1, null is returned. Otherwise
+	 * {@code length} ints are read as if by the {@link #readVarInt()} method.</p>
+	 * @see MCDataOutput#writeVarInts(int[])
+	 * @return an int array or null
+	 */
+	int[] readVarInts();
+
+	/**
+	 * <p>Read a packed array of ints from the stream.</p>
+	 * <p>This method acts similar to {@link #readVarInts()}, but uses the given buffer if possible.</p>
+	 * @param buf an existing array to use
+	 * @return an int array or null
+	 */
+	int[] readVarInts(@Nullable int[] buf);
+
+	/**
+	 * <p>Read a packed array of longs from the stream.</p>
+	 * <p>This method first reads a VarInt {@code length} from the buffer. If the VarInt is -1, null is returned. Otherwise
+	 * {@code length} longs are read as if by the {@link #readVarLong()} method.</p>
+	 * @see MCDataOutput#writeVarLongs(long[])
+	 * @return a long array or null
+	 */
+	long[] readVarLongs();
+
+	/**
+	 * <p>Read a packed array of longs from the stream.</p>
+	 * <p>This method acts similar to {@link #readVarLongs()}, but uses the given buffer if possible.</p>
+	 * @param buf an existing array to use
+	 * @return a long array or null
+	 */
+	long[] readVarLongs(@Nullable long[] buf);
+
 	/**
 	 * <p>Read a String from the buffer.</p>
 	 * <p>This method first reads a VarInt specifying the length of the String. If the length is -1, null is returned.
@@ -75,6 +139,12 @@ public interface MCDataInput extends ByteArrayDataInput {
 	 */
 	String readString();
 
+	/**
+	 * <p>Read a String from the buffer that was written using {@link MCDataOutput#writeCompactString(String)}.</p>
+	 * @return a String or null
+	 */
+	String readCompactString();
+
 	/**
 	 * <p>Read an ItemStack from the buffer.</p>
 	 * <p>This method first reads a short, specifying the ItemID of the ItemStack. If the ItemID is -1, null is returned.
@@ -84,6 +154,13 @@ public interface MCDataInput extends ByteArrayDataInput {
 	 */
 	ItemStack readItemStack();
 
+	/**
+	 * <p>Read an ItemStack from the buffer, but skip the NBTTagCompound associated with it (see {@link #skipNBT()}).</p>
+	 * <p>Use this if only the item, damage value and stack size are needed.</p>
+	 * @return an ItemStack without NBT data or null
+	 */
+	ItemStack readItemStackWithoutNBT();
+
 	/**
 	 * <p>Read a FluidStack from the buffer.</p>
 	 * <p>This method first reads a VarInt, specifying the FluidID of the FluidStack. If the FluidID is -1, null is returned.
@@ -96,13 +173,23 @@ public interface MCDataInput extends ByteArrayDataInput {
 	/**
 	 * <p>Read an NBTTagCompound from the buffer.</p>
 	 * <p>This method first reads a byte, specifying the type of the next tag ({@link net.minecraft.nbt.NBTBase#getId()}).
-	 * If the first ID is -1, null is returned. If the ID is 0, the method returns the NBTTagCompound. Otherwise a String
-	 * is read as if by the {@link #readString()} method and then tag's data is read, via the
+	 * If the first ID is -1, null is returned. If the first ID is -2, the tag names are in the compact encoding and the
+	 * actual first ID is read. If the ID is 0, the method returns the NBTTagCompound. Otherwise a String is read
+	 * as if by the {@link #readCompactString()} method (or the {@link #readString()} method if the compact marker was
+	 * not present, or as a name reference if the marker was -3, see {@link MCDataOutput#writeNBT(NBTTagCompound)})
+	 * and then tag's data is read, via the
 	 * {@link net.minecraft.nbt.NBTBase#load(java.io.DataInput, int)} method.</p>
 	 * @return an NBTTagCompound or null
 	 */
 	NBTTagCompound readNBT();
 
+	/**
+	 * <p>Skip an NBTTagCompound in the buffer, without creating any tags.</p>
+	 * <p>The data must have been written using {@link MCDataOutput#writeNBT(NBTTagCompound)}. Tag names that are part
+	 * of the name dictionary are still recorded, so that any following NBT data can be read.</p>
+	 */
+	void skipNBT();
+
 	/**
 	 * <p>Read an Item reference from the buffer.</p>
 	 * <p>This method reads a VarInt from the buffer. If the value is equal to {@code 32001}, null is returned.
@@ -294,6 +381,25 @@ public interface MCDataInput extends ByteArrayDataInput {
 	 */
 	long[] readLongs(@Nullable long[] buf);
 
+	/**
+	 * <p>Read an int array written by the {@link MCDataOutput#writeIntsDelta(int[], int[])} method.</p>
+	 * <p>If the data is a patch, the changed elements are written into the given array, which must be the previous
+	 * state of the array. Otherwise the given array is reused if it has the correct length.</p>
+	 * @param buf the previous state of the array
+	 * @return the updated array or null
+	 * @throws java.lang.IllegalStateException if the data is a patch and the given array does not have the correct length
+	 */
+	int[] readIntsDelta(@Nullable int[] buf);
+
+	/**
+	 * <p>Read a long array written by the {@link MCDataOutput#writeLongsDelta(long[], long[])} method.</p>
+	 * <p>This method acts similar to {@link #readIntsDelta(int[])}.</p>
+	 * @param buf the previous state of the array
+	 * @return the updated array or null
+	 * @throws java.lang.IllegalStateException if the data is a patch and the given array does not have the correct length
+	 */
+	long[] readLongsDelta(@Nullable long[] buf);
+
 	/**
 	 * <p>Read an array of chars from the stream.</p>
 	 * <p>This method first reads a VarInt {@code length} from the buffer. If the VarInt is -1, null is returned. Otherwise
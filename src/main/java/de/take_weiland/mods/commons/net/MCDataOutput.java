@@ -39,6 +39,17 @@ public interface MCDataOutput extends ByteArrayDataOutput {
 	 */
 	void writeString(String s);
 
+	/**
+	 * <p>Write the given String to this stream in a compact encoding.</p>
+	 * <p>This method first writes a VarInt header. If the String is null, the header is 1. If every character
+	 * of the String is in the Latin-1 range ({@code <= 0xFF}), the header is the length of the String shifted left by one
+	 * and every character is written as a single byte. Otherwise the header is the number of bytes needed to encode the
+	 * String in UTF-8 shifted left by one with the lowest bit set, followed by the UTF-8 bytes. Like in
+	 * {@link #writeUTF(String)}, surrogate characters are encoded individually.</p>
+	 * @param s the String to write, may be null
+	 */
+	void writeCompactString(String s);
+
 	/**
 	 * <p>Write the given ItemStack to this stream.</p>
 	 * <p>If the ItemStack is null, this method writes a short -1, otherwise it writes the data of the ItemStack in
@@ -75,6 +86,15 @@ public interface MCDataOutput extends ByteArrayDataOutput {
 	 *     <li>The name of the tag, as if by the {@link #writeString(String)} method</li>
 	 *     <li>The data of the tag, via the {@link net.minecraft.nbt.NBTBase#write(java.io.DataOutput)} method</li>
 	 * </ol>
+	 * <p>Readers always accept the following, more compact encodings, but older versions of SevenCommons do not. They
+	 * must therefore be enabled explicitly, on servers only if all clients are up to date.</p>
+	 * <p>If the system property {@code sevencommons.net.compactNBT} is set, the tags are preceded by a byte -2 and the
+	 * names are written as if by the {@link #writeCompactString(String)} method.</p>
+	 * <p>If the system property {@code sevencommons.net.nbtDictionary} is set, the marker is a byte -3 instead. In that
+	 * case every name is written as a VarInt reference: 0 means the name follows inline as if by the
+	 * {@link #writeCompactString(String)} method, any other value n refers to the n-th name written inline to this stream
+	 * before. Nested compounds are written in the same way instead of via {@code NBTBase#write}. So are the elements
+	 * of lists of compounds, after the element type (byte) and the number of elements (int).</p>
 	 *
 	 * @param nbt the NBTTagCompound to write, may be null
 	 */
@@ -147,6 +167,63 @@ public interface MCDataOutput extends ByteArrayDataOutput {
 	 */
 	void writeVarInt(int i);
 
+	/**
+	 * <p>Write a VarLong to the stream.</p>
+	 * <p>The long is written in the same manner as the {@link #writeVarInt(int)} method, taking up to 10 bytes.</p>
+	 * @param l the long to write
+	 */
+	void writeVarLong(long l);
+
+	/**
+	 * <p>Write a signed VarInt to the stream.</p>
+	 * <p>The int is first ZigZag encoded ({@code (i << 1) ^ (i >> 31)}), so that numbers with a small absolute value
+	 * take up few bytes, and then written as if by the {@link #writeVarInt(int)} method.</p>
+	 * @param i the int to write
+	 */
+	void writeSignedVarInt(int i);
+
+	/**
+	 * <p>Write a signed VarLong to the stream.</p>
+	 * <p>The long is first ZigZag encoded ({@code (l << 1) ^ (l >> 63)}) and then written as if by the
+	 * {@link #writeVarLong(long)} method.</p>
+	 * @param l the long to write
+	 */
+	void writeSignedVarLong(long l);
+
+	/**
+	 * <p>Write the given int array to the stream in packed form.</p>
+	 * <p>If the array is null, this method writes a VarInt -1. Otherwise this method first writes the length of the array
+	 * as a VarInt and then each int as if by the {@link #writeVarInt(int)} method.</p>
+	 * @param ints the array to write
+	 */
+	void writeVarInts(int[] ints);
+
+	/**
+	 * <p>Write the specified portion of the given int array to the stream in packed form.</p>
+	 * <p>This method writes the ints in the same manner as the {@link #writeVarInts(int[])} method.</p>
+	 * @param ints the array to write
+	 * @param off the offset of the first element to write
+	 * @param len the number of elements to write
+	 */
+	void writeVarInts(int[] ints, int off, int len);
+
+	/**
+	 * <p>Write the given long array to the stream in packed form.</p>
+	 * <p>If the array is null, this method writes a VarInt -1. Otherwise this method first writes the length of the array
+	 * as a VarInt and then each long as if by the {@link #writeVarLong(long)} method.</p>
+	 * @param longs the array to write
+	 */
+	void writeVarLongs(long[] longs);
+
+	/**
+	 * <p>Write the specified portion of the given long array to the stream in packed form.</p>
+	 * <p>This method writes the longs in the same manner as the {@link #writeVarLongs(long[])} method.</p>
+	 * @param longs the array to write
+	 * @param off the offset of the first element to write
+	 * @param len the number of elements to write
+	 */
+	void writeVarLongs(long[] longs, int off, int len);
+
 	/**
 	 * <p>Write the given boolean array to the stream.</p>
 	 * <p>Ìf the array is null, this method writes a VarInt -1. Otherwise this method first writes the length of the array
@@ -234,6 +311,29 @@ public interface MCDataOutput extends ByteArrayDataOutput {
 	 */
 	void writeLongs(long[] longs, int off, int len);
 
+	/**
+	 * <p>Write the given int array to the stream, encoded as the difference to a previous state of the array.</p>
+	 * <p>If the array is null, this method writes a VarInt -1. Otherwise a VarInt header {@code length << 1 | patch}
+	 * is written. If {@code previous} is null, has a different length or the patch would not be smaller, {@code patch}
+	 * is 0 and the ints follow as if by the {@link #writeInt(int)} method. Otherwise {@code patch} is 1 and a VarInt
+	 * number of runs follows. Each run of changed elements is written as a VarInt distance from the end of the
+	 * previous run, a VarInt length and the changed ints.</p>
+	 * <p>This method does not modify {@code previous}, the caller must keep the snapshot up to date.</p>
+	 * @param ints the array to write
+	 * @param previous the state of the array the reader already knows, may be null
+	 * @see MCDataInput#readIntsDelta(int[])
+	 */
+	void writeIntsDelta(int[] ints, int[] previous);
+
+	/**
+	 * <p>Write the given long array to the stream, encoded as the difference to a previous state of the array.</p>
+	 * <p>This method writes the longs in the same manner as the {@link #writeIntsDelta(int[], int[])} method.</p>
+	 * @param longs the array to write
+	 * @param previous the state of the array the reader already knows, may be null
+	 * @see MCDataInput#readLongsDelta(long[])
+	 */
+	void writeLongsDelta(long[] longs, long[] previous);
+
 	/**
 	 * <p>Write the given char array to the stream.</p>
 	 * <p>If the array is null, this method writes a VarInt -1. Otherwise this method first writes the length of the array
@@ -375,6 +475,8 @@ public interface MCDataOutput extends ByteArrayDataOutput {
 	 * <p>Return the array backing this stream. Any modification in the returned array will be reflected in the contents
 	 * of this stream, as long as the buffer does not grow.</p>
 	 * @return the array backing this buffer
+	 * @throws UnsupportedOperationException if this stream is not backed by an accessible array, see
+	 * {@link Network#newDataOutput(java.nio.ByteBuffer)}
 	 */
 	@Unsafe
 	byte[] backingArray();
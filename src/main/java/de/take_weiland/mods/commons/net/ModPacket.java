@@ -22,6 +22,11 @@ import java.io.IOException;
  * </pre></code></p>
  * <p>Add the {@link de.take_weiland.mods.commons.net.PacketDirection} annotation to your packet class to specify a valid
  * direction this packet can be send.</p>
+ * <p>Add the {@link de.take_weiland.mods.commons.net.AsyncRead} annotation to read the packet on a separate thread.</p>
+ * <p>Add the {@link de.take_weiland.mods.commons.net.PacketPriority} annotation to specify how urgent this packet is if
+ * the outbound bandwidth is limited.</p>
+ * <p>A packet must either override {@link #write(MCDataOutput)} and {@link #read(MCDataInput, EntityPlayer, Side)} or
+ * declare at least one {@link de.take_weiland.mods.commons.net.PacketField}, otherwise registering it fails.</p>
  */
 public abstract class ModPacket implements SimplePacket {
 
@@ -29,20 +34,26 @@ public abstract class ModPacket implements SimplePacket {
 	 * <p>Write your packet data to the stream. A stream containing the same data will be passed to
 	 * {@link #read(MCDataInput, EntityPlayer, Side)} when the
 	 * packet is received.</p>
+	 * <p>The default implementation writes all fields annotated with {@link de.take_weiland.mods.commons.net.PacketField}.</p>
 	 * @param out the stream
 	 */
-	public abstract void write(MCDataOutput out);
+	public void write(MCDataOutput out) {
+		FMLPacketHandlerImpl.codecFor(this).write(this, out);
+	}
 
 	/**
 	 * <p>Read your packet data from the stream. The stream contains the data written in {@link #write(MCDataOutput)}.</p>
 	 * <p>On the server, the player is the player sending the packet, on the client it is the client player (receiving the packet).</p>
+	 * <p>The default implementation reads all fields annotated with {@link de.take_weiland.mods.commons.net.PacketField}.</p>
 	 * @param in the stream
 	 * @param player the context player
 	 * @param side the logical side receiving the packet
 	 * @throws IOException if an IOException occurs while reading the data
 	 * @throws ProtocolException if the data received violates the protocol
 	 */
-	public abstract void read(MCDataInput in, EntityPlayer player, Side side) throws IOException, ProtocolException;
+	public void read(MCDataInput in, EntityPlayer player, Side side) throws IOException, ProtocolException {
+		FMLPacketHandlerImpl.codecFor(this).read(this, in);
+	}
 
 	/**
 	 * <p>Execute this packet's action. This method is called when the packet is received, after the data has been read
@@ -56,10 +67,41 @@ public abstract class ModPacket implements SimplePacket {
 	/**
 	 * <p>An estimate of the size of this packet's data in bytes. Used to pre-size the byte buffer that this packet is
 	 * written to.</p>
+	 * <p>If this method is not overridden, the buffer size is instead learned from the sizes of previously sent packets
+	 * of the same class.</p>
+	 * <p>If the packet is written using {@link de.take_weiland.mods.commons.net.PacketField} fields, the default
+	 * implementation returns the exact size.</p>
 	 * @return an estimated size
 	 */
     public int expectedSize() {
-		return 32;
+		return FMLPacketHandlerImpl.expectedSize(this);
+	}
+
+	/**
+	 * <p>A key identifying the state this packet transfers, used when the outbound bandwidth is limited (see
+	 * {@link de.take_weiland.mods.commons.net.PacketPriority}).</p>
+	 * <p>If this packet is still waiting to be sent when a packet of the same class with an equal key is sent to the
+	 * same player, this packet is replaced by the newer one. Therefore only return a key if this packet always contains the
+	 * complete state for that key, not just the changes since the previous packet.</p>
+	 * <p>The default implementation returns null, which means that this packet is never replaced.</p>
+	 * @return a key or null
+	 */
+	public Object collapseKey() {
+		return null;
+	}
+
+	/**
+	 * <p>Create a copy of this packet to be handed over to the receiver directly, if sender and receiver are in the same
+	 * JVM (e.g. in singleplayer). In that case neither {@link #write(MCDataOutput)} nor
+	 * {@link #read(MCDataInput, EntityPlayer, Side)} are called, the returned packet is executed directly instead.</p>
+	 * <p>The copy must not share mutable state with this packet, because it is executed on the receiving thread. If this
+	 * packet is immutable, this method may return {@code this}. This method is called on the sending thread, before the
+	 * packet is queued.</p>
+	 * <p>The default implementation returns null, which means that the packet is always written and read.</p>
+	 * @return a copy of this packet or null
+	 */
+	public ModPacket copyForLocal() {
+		return null;
 	}
 
 	// private implementation
@@ -77,13 +119,17 @@ public abstract class ModPacket implements SimplePacket {
 
 	@Override
 	public final SimplePacket sendToServer() {
+		if (FMLPacketHandlerImpl.sendLocalToServer(this)) {
+			return this;
+		}
 		Packets.sendToServer(build());
 		return this;
 	}
 
 	@Override
 	public final SimplePacket sendTo(EntityPlayer player) {
-		Packets.sendTo(build(), player);
+		Packet local = FMLPacketHandlerImpl.localPacketFor(this, player);
+		Packets.sendTo(local != null ? local : build(), player);
 		return this;
 	}
 
@@ -3,7 +3,10 @@ package de.take_weiland.mods.commons.net;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.ModContainer;
 import cpw.mods.fml.common.network.NetworkRegistry;
+import de.take_weiland.mods.commons.internal.BufferPool;
 import de.take_weiland.mods.commons.internal.FMLPacketHandlerImpl;
+import de.take_weiland.mods.commons.internal.PacketCompression;
+import de.take_weiland.mods.commons.internal.PacketMetrics;
 import de.take_weiland.mods.commons.internal.SevenCommons;
 import de.take_weiland.mods.commons.internal.SevenCommonsLoader;
 import de.take_weiland.mods.commons.util.SCReflector;
@@ -13,6 +16,9 @@ import net.minecraft.network.NetServerHandler;
 import net.minecraft.network.packet.NetHandler;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -109,6 +115,17 @@ public final class Network {
 		return new MCDataInputImpl(buf, off, len);
 	}
 
+	/**
+	 * <p>Create a new MCDataInputStream that reads directly from the given ByteBuffer, which may be a heap or direct buffer.</p>
+	 * <p>The stream reads the bytes between the buffer's current position and its limit. The buffer's position, limit and
+	 * byte order are not modified, but changes to the buffer's content will be visible to the stream.</p>
+	 * @param buf the buffer to read from
+	 * @return an MCDataInputStream
+	 */
+	public static MCDataInput newDataInput(ByteBuffer buf) {
+		return new ByteBufferDataInput(checkNotNull(buf, "buf"));
+	}
+
 	/**
 	 * <p>Create a new MCDataOutputStream with a default initial capacity.</p>
 	 * @return an MCDataOutputStream
@@ -128,6 +145,99 @@ public final class Network {
 		return new MCDataOutputImpl(initialCap);
 	}
 
+	/**
+	 * <p>Create a new MCDataOutputStream that writes directly into the given ByteBuffer, which may be a heap or direct buffer.</p>
+	 * <p>Data is written starting at the buffer's current position. The buffer's position, limit and byte order are not
+	 * modified. If the data written exceeds the space between the buffer's position and its limit, a new buffer of the same kind
+	 * is allocated and all further data is written to that buffer instead. Use {@link MCDataOutput#writeTo(ByteBuffer)} or
+	 * {@link MCDataOutput#writeTo(java.nio.channels.WritableByteChannel)} to obtain the data in that case.</p>
+	 * @param buf the buffer to write to
+	 * @return an MCDataOutputStream
+	 */
+	public static MCDataOutput newDataOutput(ByteBuffer buf) {
+		checkArgument(!checkNotNull(buf, "buf").isReadOnly(), "buf must not be read-only");
+		return new ByteBufferDataOutput(buf);
+	}
+
+	/**
+	 * <p>Create a new MCDataOutputStream with at least the given initial capacity, whose backing array is taken from a
+	 * shared pool.</p>
+	 * <p>The backing array is returned to the pool once the stream (and thus any packet created from it) is garbage collected.
+	 * Therefore the array obtained from {@link MCDataOutput#backingArray()} must not be retained beyond the lifetime of the stream.</p>
+	 * <p>If buffer pooling is disabled (see {@code -Dsevencommons.net.pooledBuffers}) or the requested capacity is too large
+	 * to be pooled, this method behaves like {@link #newDataOutput(int)}.</p>
+	 * @param initialCapacity the minimum initial capacity for the backing byte array
+	 * @return an MCDataOutputStream
+	 */
+	public static MCDataOutput newPooledDataOutput(int initialCapacity) {
+		checkArgument(initialCapacity >= 0, "initialCapacity must be >= 0");
+		BufferPool.Buffer buffer = BufferPool.ENABLED ? BufferPool.acquire(initialCapacity) : null;
+		return buffer == null ? new MCDataOutputImpl(initialCapacity) : new MCDataOutputImpl(buffer);
+	}
+
+	/**
+	 * <p>Get statistics about the pool used by {@link #newPooledDataOutput(int)}.</p>
+	 * @return the BufferPoolStats
+	 */
+	public static BufferPoolStats getBufferPoolStats() {
+		return BufferPool.stats();
+	}
+
+	/**
+	 * <p>Get statistics about the encoded sizes of all registered {@link ModPacket} classes.</p>
+	 * <p>Packet classes that do not override {@link ModPacket#expectedSize()} learn their initial buffer size from the
+	 * sizes of previously sent packets.</p>
+	 * @return a snapshot of all registered packet classes
+	 */
+	public static Collection<? extends PacketSizeStats> getPacketSizeStats() {
+		return FMLPacketHandlerImpl.getPacketSizeStats();
+	}
+
+	/**
+	 * <p>Get the number of bytes saved by sending repeated NBT tag names as references instead of inline.</p>
+	 * <p>Referencing tag names is enabled with {@code -Dsevencommons.net.nbtDictionary=true}.</p>
+	 * @return the number of bytes saved since startup
+	 */
+	public static long getNBTNameBytesSaved() {
+		return AbstractMCDataOutput.nbtNameBytesSaved.get();
+	}
+
+	/**
+	 * <p>Get statistics about the compression of large packets.</p>
+	 * <p>Compression is enabled with {@code -Dsevencommons.net.compressThreshold=<bytes>}, packets of at least that
+	 * size are deflated if that makes them smaller.</p>
+	 * @return the CompressionStats
+	 */
+	public static CompressionStats getCompressionStats() {
+		return PacketCompression.stats();
+	}
+
+	/**
+	 * <p>Check if traffic metrics are enabled. They are enabled with {@code -Dsevencommons.net.metrics=true}.</p>
+	 * @return true if traffic metrics are enabled
+	 */
+	public static boolean isTrafficMetricsEnabled() {
+		return PacketMetrics.ENABLED;
+	}
+
+	/**
+	 * <p>Get a snapshot of the traffic of every packet channel.</p>
+	 * <p>If traffic metrics are disabled, all values are 0.</p>
+	 * @return an immutable snapshot
+	 */
+	public static List<TrafficStats> getChannelTraffic() {
+		return PacketMetrics.channelSnapshot();
+	}
+
+	/**
+	 * <p>Get a snapshot of the traffic of every registered {@link ModPacket} class.</p>
+	 * <p>If traffic metrics are disabled, all values are 0.</p>
+	 * @return an immutable snapshot
+	 */
+	public static List<TrafficStats> getPacketTraffic() {
+		return PacketMetrics.packetSnapshot();
+	}
+
 	static final Logger logger = SevenCommonsLoader.scLogger("Packet System");
 
 	private Network() { }
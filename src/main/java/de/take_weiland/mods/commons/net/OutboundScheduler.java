@@ -0,0 +1,206 @@
+package de.take_weiland.mods.commons.net;
+
+import de.take_weiland.mods.commons.internal.PacketBatcher;
+import de.take_weiland.mods.commons.internal.Packet250Fake;
+import de.take_weiland.mods.commons.internal.Packet250FakeNoMP;
+import de.take_weiland.mods.commons.util.Scheduler;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetServerHandler;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * <p>Limits the number of bytes sent to every player per tick, see {@link PacketPriority}.</p>
+ * <p>The budget is enabled with {@code -Dsevencommons.net.bytesPerTick=<bytes>}. Packets that do not fit into the budget
+ * are queued per player and priority and released at the start of the following ticks. If a player has not been sent
+ * anything in the current tick, the next packet is always sent, even if it is larger than the budget.
+ * Queued packets with an equal {@link ModPacket#collapseKey() collapse key} are replaced by newer ones.</p>
+ * <p>At most {@code -Dsevencommons.net.maxQueuedPackets=<count>} (default 256) packets are queued per player and priority.
+ * Sync packets cannot be collapsed, since every one of them only contains the changes since the previous one. Instead,
+ * if a queue is full, its oldest packet is sent immediately, even if that exceeds the budget.</p>
+ * <p>Only accessed from the server thread.</p>
+ *
+ * @author diesieben07
+ */
+final class OutboundScheduler {
+
+	static final int BUDGET = Integer.getInteger("sevencommons.net.bytesPerTick", -1);
+	static final boolean ENABLED = BUDGET > 0;
+	static final int MAX_QUEUED = Math.max(1, Integer.getInteger("sevencommons.net.maxQueuedPackets", 256));
+
+	private static final Map<NetServerHandler, PlayerQueue> queues = new IdentityHashMap<>();
+	private static boolean flushScheduled;
+
+	/**
+	 * <p>Offer the packet to the scheduler. If this method returns false, the packet must be sent immediately.</p>
+	 * @param packet the packet
+	 * @param player the player
+	 * @return true if the packet has been queued
+	 */
+	static boolean offer(Packet packet, EntityPlayerMP player) {
+		if (!PacketBatcher.isServerThread()) {
+			return false;
+		}
+		NetServerHandler nsh = player.playerNetServerHandler;
+		PlayerQueue queue = queues.get(nsh);
+		if (queue == null) {
+			queues.put(nsh, queue = new PlayerQueue());
+			scheduleFlush();
+		}
+		return queue.offer(packet, player, currentTick());
+	}
+
+	private static void scheduleFlush() {
+		if (!flushScheduled) {
+			flushScheduled = true;
+			Scheduler.server().execute(flushTask);
+		}
+	}
+
+	private static final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			flushScheduled = false;
+			int tick = currentTick();
+			Iterator<Map.Entry<NetServerHandler, PlayerQueue>> it = queues.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<NetServerHandler, PlayerQueue> entry = it.next();
+				NetServerHandler nsh = entry.getKey();
+				PlayerQueue queue = entry.getValue();
+				if (nsh.connectionClosed) {
+					it.remove();
+				} else if (!queue.flush(nsh, tick) && queue.tick != tick) {
+					// nothing waiting and nothing sent in this tick, the budget is full again
+					it.remove();
+				}
+			}
+			if (!queues.isEmpty()) {
+				scheduleFlush();
+			}
+		}
+	};
+
+	private static int currentTick() {
+		return MinecraftServer.getServer().getTickCounter();
+	}
+
+	private static PacketPriority.Level priorityOf(Packet packet) {
+		if (packet instanceof Packet250Fake) {
+			return ((Packet250Fake) packet).priority();
+		} else if (packet instanceof Packet250FakeNoMP) {
+			return ((Packet250FakeNoMP) packet).priority();
+		} else {
+			return PacketPriority.Level.NORMAL;
+		}
+	}
+
+	private static final class PlayerQueue {
+
+		final Queue<Entry> normal = new ArrayDeque<>();
+		final Queue<Entry> low = new ArrayDeque<>();
+		int tick;
+		int sent;
+
+		boolean offer(Packet packet, EntityPlayerMP player, int tick) {
+			PacketPriority.Level priority = priorityOf(packet);
+			int size = packet.getPacketSize() + 1; // packet ID
+			switch (priority) {
+				case HIGH:
+					consume(tick, size, true);
+					return false;
+				case NORMAL:
+					if (normal.isEmpty() && consume(tick, size, false)) {
+						return false;
+					}
+					enqueue(normal, packet, size, player, tick);
+					return true;
+				default:
+					if (normal.isEmpty() && low.isEmpty() && consume(tick, size, false)) {
+						return false;
+					}
+					enqueue(low, packet, size, player, tick);
+					return true;
+			}
+		}
+
+		/**
+		 * @return true if packets are still waiting
+		 */
+		boolean flush(NetServerHandler nsh, int tick) {
+			if (flush(normal, nsh, tick)) {
+				flush(low, nsh, tick);
+			}
+			return !normal.isEmpty() || !low.isEmpty();
+		}
+
+		private boolean flush(Queue<Entry> queue, NetServerHandler nsh, int tick) {
+			Entry entry;
+			while ((entry = queue.peek()) != null) {
+				if (!consume(tick, entry.size, false)) {
+					return false;
+				}
+				queue.remove();
+				Packets.deliver(entry.packet, nsh.playerEntity);
+			}
+			return true;
+		}
+
+		private boolean consume(int tick, int size, boolean force) {
+			if (this.tick != tick) {
+				this.tick = tick;
+				sent = 0;
+			}
+			// always let at least one packet through per tick
+			if (!force && sent != 0 && sent + size > BUDGET) {
+				return false;
+			}
+			sent += size;
+			return true;
+		}
+
+		private void enqueue(Queue<Entry> queue, Packet packet, int size, EntityPlayerMP player, int tick) {
+			if (packet instanceof Packet250Fake) {
+				ModPacket modPacket = ((Packet250Fake) packet).modPacket();
+				Object key = modPacket.collapseKey();
+				if (key != null) {
+					for (Entry entry : queue) {
+						if (entry.packet instanceof Packet250Fake) {
+							ModPacket queued = ((Packet250Fake) entry.packet).modPacket();
+							if (queued.getClass() == modPacket.getClass() && key.equals(queued.collapseKey())) {
+								entry.packet = packet;
+								entry.size = size;
+								return;
+							}
+						}
+					}
+				}
+			}
+			if (queue.size() >= MAX_QUEUED) {
+				// bound the memory held per player, sending the oldest packet keeps the order of the queue
+				Entry oldest = queue.remove();
+				consume(tick, oldest.size, true);
+				Packets.deliver(oldest.packet, player);
+			}
+			queue.add(new Entry(packet, size));
+		}
+	}
+
+	private static final class Entry {
+
+		Packet packet;
+		int size;
+
+		Entry(Packet packet, int size) {
+			this.packet = packet;
+			this.size = size;
+		}
+	}
+
+	private OutboundScheduler() { }
+}
@@ -0,0 +1,32 @@
+package de.take_weiland.mods.commons.net;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <p>Mark a field of a {@link de.take_weiland.mods.commons.net.ModPacket} to be written and read automatically.</p>
+ * <p>If the packet class does not override {@link ModPacket#write(MCDataOutput)} and
+ * {@link ModPacket#read(MCDataInput, net.minecraft.entity.player.EntityPlayer, cpw.mods.fml.relauncher.Side)}, a codec
+ * is generated for all annotated fields of the class and its superclasses. Boolean fields are packed into a bit set,
+ * all other fields are written directly without boxing. Since the codec knows the exact encoded size of the packet,
+ * {@link ModPacket#expectedSize()} does not need to be overridden.</p>
+ * <p>Supported field types are all primitive types, {@code String} and enums. Fields must not be static or final and
+ * String fields must not be null.</p>
+ *
+ * @author diesieben07
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface PacketField {
+
+	/**
+	 * <p>Write an {@code int} or {@code long} field as a VarInt. This saves space if the value is usually small and
+	 * positive, but negative values take more space than with a fixed size encoding.</p>
+	 * @return true to use a VarInt
+	 */
+	boolean varInt() default false;
+
+}
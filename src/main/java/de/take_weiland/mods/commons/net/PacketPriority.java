@@ -0,0 +1,44 @@
+package de.take_weiland.mods.commons.net;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <p>Specify the priority of a {@link de.take_weiland.mods.commons.net.ModPacket} when the outbound bandwidth of a player
+ * is limited.</p>
+ * <p>A limit is set with {@code -Dsevencommons.net.bytesPerTick=<bytes>}. Packets sent to a player using {@link Packets}
+ * from the server thread are then counted against that budget. Once the budget for the current tick is used up, packets
+ * are queued and sent in the following ticks. Packets of a lower priority are only sent once no packets of a higher priority
+ * are waiting.</p>
+ * <p>The default value is {@link Level#NORMAL}.</p>
+ *
+ * @author diesieben07
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface PacketPriority {
+
+	Level value();
+
+	enum Level {
+		/**
+		 * <p>The packet is always sent immediately, but still counts against the budget. Use this for packets that
+		 * are a direct response to the player's input.</p>
+		 */
+		HIGH,
+		/**
+		 * <p>The packet is sent immediately if the budget allows it. This is the default value.</p>
+		 */
+		NORMAL,
+		/**
+		 * <p>The packet is sent once no {@link #NORMAL} packets are waiting and the budget allows it. Used for
+		 * synchronizing {@link de.take_weiland.mods.commons.sync.Sync @Sync} fields.</p>
+		 */
+		LOW
+
+	}
+
+}
@@ -0,0 +1,43 @@
+package de.take_weiland.mods.commons.net;
+
+/**
+ * <p>Statistics about the encoded size of a {@link de.take_weiland.mods.commons.net.ModPacket} class.</p>
+ * <p>Obtain instances using {@link Network#getPacketSizeStats()}.</p>
+ *
+ * @author diesieben07
+ */
+public interface PacketSizeStats {
+
+	/**
+	 * <p>The packet class these stats apply to.</p>
+	 * @return the packet class
+	 */
+	Class<? extends ModPacket> packetClass();
+
+	/**
+	 * <p>Whether the initial buffer size for this packet class is learned from previous packets. This is the case if
+	 * the packet class does not override {@link ModPacket#expectedSize()}.</p>
+	 * @return true if the size is learned
+	 */
+	boolean isAdaptive();
+
+	/**
+	 * <p>The buffer size currently used for new packets of this class, including the packet ID.</p>
+	 * <p>Only meaningful if this packet class is {@linkplain #isAdaptive() adaptive}.</p>
+	 * @return the current initial buffer size
+	 */
+	int learnedSize();
+
+	/**
+	 * <p>The number of packets of this class that have been encoded.</p>
+	 * @return the number of packets
+	 */
+	long packets();
+
+	/**
+	 * <p>The number of packets of this class whose initial buffer was too small and had to be grown.</p>
+	 * @return the number of grow events
+	 */
+	long growEvents();
+
+}
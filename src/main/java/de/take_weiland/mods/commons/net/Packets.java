@@ -1,9 +1,15 @@
 package de.take_weiland.mods.commons.net;
 
+import de.take_weiland.mods.commons.internal.EntityProxy;
+import de.take_weiland.mods.commons.internal.PacketBatcher;
+import de.take_weiland.mods.commons.internal.PacketFrames;
+import de.take_weiland.mods.commons.internal.PlayerGrid;
 import de.take_weiland.mods.commons.internal.SevenCommons;
+import de.take_weiland.mods.commons.util.Entities;
 import de.take_weiland.mods.commons.util.Players;
 import de.take_weiland.mods.commons.util.SCReflector;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityTrackerEntry;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.Container;
@@ -11,15 +17,23 @@ import net.minecraft.inventory.ICrafting;
 import net.minecraft.network.packet.Packet;
 import net.minecraft.server.management.PlayerInstance;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * <p>Utility class for sending Packets around.</p>
+ * <p>If {@code -Dsevencommons.net.coalescePackets=true} is set, small packets created by a {@link PacketHandler} and
+ * sent to players from the server thread are collected and sent as one packet per player at the end of the tick.</p>
+ * <p>If {@code -Dsevencommons.net.bytesPerTick=<bytes>} is set, packets sent to players from the server thread are
+ * subject to a per-player bandwidth budget, see {@link PacketPriority}.</p>
+ * <p>Packets created by a {@link PacketHandler} that are sent to multiple players are serialized once and then written
+ * to every connection as a whole.</p>
  */
 @ParametersAreNonnullByDefault
 public final class Packets {
@@ -38,7 +52,7 @@ public final class Packets {
 	 * @param player the player
 	 */
 	public static void sendTo(Packet packet, EntityPlayer player) {
-		checkNotClient(player).playerNetServerHandler.sendPacketToPlayer(packet);
+		sendTo0(packet, checkNotClient(player));
 	}
 
 	/**
@@ -47,8 +61,9 @@ public final class Packets {
 	 * @param players the players
 	 */
 	public static void sendTo(Packet packet, Iterable<? extends EntityPlayer> players) {
+		PacketFrames.prepare(packet);
 		for (EntityPlayer player : players) {
-			checkNotClient(player).playerNetServerHandler.sendPacketToPlayer(packet);
+			sendTo0(packet, checkNotClient(player));
 		}
 	}
 
@@ -58,8 +73,11 @@ public final class Packets {
 	 * @param players the players
 	 */
 	public static void sendTo(Packet packet, EntityPlayer... players) {
+		if (players.length > 1) {
+			PacketFrames.prepare(packet);
+		}
 		for (EntityPlayer player : players) {
-			checkNotClient(player).playerNetServerHandler.sendPacketToPlayer(packet);
+			sendTo0(packet, checkNotClient(player));
 		}
 	}
 
@@ -82,8 +100,23 @@ public final class Packets {
 
 	@SuppressWarnings("ForLoopReplaceableByForEach")
 	private static void sendToList(Packet packet, List<EntityPlayerMP> players) {
+		if (players.size() > 1) {
+			PacketFrames.prepare(packet);
+		}
 		for (int i = 0, len = players.size(); i < len; i++) {
-			players.get(i).playerNetServerHandler.sendPacketToPlayer(packet);
+			sendTo0(packet, players.get(i));
+		}
+	}
+
+	private static void sendTo0(Packet packet, EntityPlayerMP player) {
+		if (!OutboundScheduler.ENABLED || !OutboundScheduler.offer(packet, player)) {
+			deliver(packet, player);
+		}
+	}
+
+	static void deliver(Packet packet, EntityPlayerMP player) {
+		if (!PacketBatcher.offer(packet, player)) {
+			player.playerNetServerHandler.sendPacketToPlayer(packet);
 		}
 	}
 
@@ -93,7 +126,19 @@ public final class Packets {
 	 * @param entity the entity
 	 */
 	public static void sendToAllTracking(Packet packet, Entity entity) {
-		checkNotClient(entity.worldObj).getEntityTracker().sendPacketToAllPlayersTrackingEntity(entity, packet);
+		PacketFrames.prepare(packet);
+		if (PacketBatcher.ENABLED || OutboundScheduler.ENABLED) {
+			checkNotClient(entity.worldObj);
+			for (EntityPlayerMP player : Entities.getTrackingPlayers(entity)) {
+				sendTo0(packet, player);
+			}
+		} else {
+			checkNotClient(entity.worldObj);
+			EntityTrackerEntry entry = ((EntityProxy) entity)._sc$getTrackerEntry();
+			if (entry != null) {
+				entry.sendPacketToAllTrackingPlayers(packet);
+			}
+		}
 	}
 
 	/**
@@ -102,7 +147,19 @@ public final class Packets {
 	 * @param entity the entity
 	 */
 	public static void sendToAllAssociated(Packet packet, Entity entity) {
-		checkNotClient(entity.worldObj).getEntityTracker().sendPacketToAllAssociatedPlayers(entity, packet);
+		PacketFrames.prepare(packet);
+		if (PacketBatcher.ENABLED || OutboundScheduler.ENABLED) {
+			sendToAllTracking(packet, entity);
+			if (entity instanceof EntityPlayerMP) {
+				sendTo0(packet, (EntityPlayerMP) entity);
+			}
+		} else {
+			checkNotClient(entity.worldObj);
+			EntityTrackerEntry entry = ((EntityProxy) entity)._sc$getTrackerEntry();
+			if (entry != null) {
+				entry.sendPacketToAllAssociatedPlayers(packet);
+			}
+		}
 	}
 
 	/**
@@ -124,7 +181,21 @@ public final class Packets {
 	public static void sendToAllTrackingChunk(Packet packet, World world, int chunkX, int chunkZ) {
 		PlayerInstance pi = checkNotClient(world).getPlayerManager().getOrCreateChunkWatcher(chunkX, chunkZ, false);
 		if (pi != null) {
-			pi.sendToAllPlayersWatchingChunk(packet);
+			// also used by PlayerInstance#sendToAllPlayersWatchingChunk
+			PacketFrames.prepare(packet);
+			if (PacketBatcher.ENABLED || OutboundScheduler.ENABLED) {
+				ChunkCoordIntPair coords = new ChunkCoordIntPair(chunkX, chunkZ);
+				List<EntityPlayerMP> players = SCReflector.instance.getPlayersInChunk(pi);
+				for (int i = 0, len = players.size(); i < len; i++) {
+					EntityPlayerMP player = players.get(i);
+					// same check as PlayerInstance#sendToAllPlayersWatchingChunk
+					if (!player.loadedChunks.contains(coords)) {
+						sendTo0(packet, player);
+					}
+				}
+			} else {
+				pi.sendToAllPlayersWatchingChunk(packet);
+			}
 		}
 	}
 
@@ -147,7 +218,7 @@ public final class Packets {
 		for (int i = 0, len = crafters.size(); i < len; ++i) {
 			ICrafting crafter = crafters.get(i);
 			if (crafter instanceof EntityPlayerMP) {
-				((EntityPlayerMP) crafter).playerNetServerHandler.sendPacketToPlayer(packet);
+				sendTo0(packet, (EntityPlayerMP) crafter);
 				break;
 			}
 		}
@@ -163,19 +234,37 @@ public final class Packets {
 	 * @param radius the radius
 	 */
 	public static void sendToAllNear(Packet packet, World world, double x, double y, double z, double radius) {
-		List<EntityPlayerMP> players = Players.allIn(checkNotClient(world));
-		radius *= radius;
-
-		//noinspection ForLoopReplaceableByForEach
-		for (int i = 0, len = players.size(); i < len; ++i) {
-			EntityPlayerMP player = players.get(i);
-			double dx = x - player.posX;
-			double dy = y - player.posY;
-			double dz = z - player.posZ;
-			if (dx * dx + dy * dy + dz * dz < radius) {
-				player.playerNetServerHandler.sendPacketToPlayer(packet);
+		sendToList(packet, playersWithin(world, x, y, z, radius));
+	}
+
+	/**
+	 * <p>Get all players within the given radius around the given coordinates.</p>
+	 * <p>When called from the server thread, only players in the chunks around the coordinates are checked. Otherwise
+	 * all players in the world are checked.</p>
+	 * @param world the world
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @param radius the radius
+	 * @return a new List containing the players
+	 */
+	public static List<EntityPlayerMP> playersWithin(World world, double x, double y, double z, double radius) {
+		WorldServer server = checkNotClient(world);
+		List<EntityPlayerMP> result = new ArrayList<>();
+		if (PlayerGrid.isAvailable()) {
+			PlayerGrid.playersWithin(server, x, y, z, radius, result);
+		} else {
+			double radiusSq = radius * radius;
+			for (EntityPlayerMP player : Players.allIn(server)) {
+				double dx = x - player.posX;
+				double dy = y - player.posY;
+				double dz = z - player.posZ;
+				if (dx * dx + dy * dy + dz * dz < radiusSq) {
+					result.add(player);
+				}
 			}
 		}
+		return result;
 	}
 
 	/**
@@ -0,0 +1,62 @@
+package de.take_weiland.mods.commons.net;
+
+/**
+ * <p>Network traffic of a packet channel or a {@link de.take_weiland.mods.commons.net.ModPacket} class.</p>
+ * <p>Traffic metrics are enabled with {@code -Dsevencommons.net.metrics=true}. Obtain snapshots using
+ * {@link Network#getChannelTraffic()} and {@link Network#getPacketTraffic()}. All values are cumulative since startup.</p>
+ * <p>For channels, bytes are counted as they are sent over the network (after compression). For packet classes, bytes
+ * are the encoded size of the packet before compression. Packets handled locally (e.g. in singleplayer) are not counted.</p>
+ *
+ * @author diesieben07
+ */
+public interface TrafficStats {
+
+	/**
+	 * <p>The channel name or the name of the packet class.</p>
+	 * @return the name
+	 */
+	String name();
+
+	/**
+	 * <p>The number of packets received.</p>
+	 * @return the number of packets
+	 */
+	long packetsIn();
+
+	/**
+	 * <p>The number of packets sent. A packet sent to multiple players is counted once for every player.</p>
+	 * @return the number of packets
+	 */
+	long packetsOut();
+
+	/**
+	 * <p>The number of bytes received.</p>
+	 * @return the number of bytes
+	 */
+	long bytesIn();
+
+	/**
+	 * <p>The number of bytes sent.</p>
+	 * @return the number of bytes
+	 */
+	long bytesOut();
+
+	/**
+	 * <p>The time spent encoding packets, including compression.</p>
+	 * @return the time in nanoseconds
+	 */
+	long encodeNanos();
+
+	/**
+	 * <p>The time spent decoding packets, excluding decompression.</p>
+	 * @return the time in nanoseconds
+	 */
+	long decodeNanos();
+
+	/**
+	 * <p>The number of exceptions thrown while reading or executing received packets.</p>
+	 * @return the number of exceptions
+	 */
+	long exceptions();
+
+}
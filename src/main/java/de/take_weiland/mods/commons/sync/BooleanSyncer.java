@@ -0,0 +1,28 @@
+package de.take_weiland.mods.commons.sync;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+
+/**
+ * <p>The {@code boolean} specialization of {@link Syncer}, see there for how the primitive specializations are used.</p>
+ *
+ * @author diesieben07
+ */
+public interface BooleanSyncer extends Syncer<Boolean, Boolean> {
+
+    /**
+     * <p>Write the changed value to the MCDataOutput.</p>
+     * @param value the value
+     * @param out the MCDataOutput
+     */
+    void writeBoolean(boolean value, MCDataOutput out);
+
+    /**
+     * <p>Read a new value from the MCDataInput.</p>
+     * @param value the current value
+     * @param in the MCDataInput
+     * @return the new value
+     */
+    boolean readBoolean(boolean value, MCDataInput in);
+
+}
@@ -0,0 +1,28 @@
+package de.take_weiland.mods.commons.sync;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+
+/**
+ * <p>The {@code char} specialization of {@link Syncer}.</p>
+ *
+ * @author diesieben07
+ */
+public interface CharSyncer extends Syncer<Character, Character> {
+
+    /**
+     * <p>Write the changed value to the MCDataOutput.</p>
+     * @param value the value
+     * @param out the MCDataOutput
+     */
+    void writeChar(char value, MCDataOutput out);
+
+    /**
+     * <p>Read a new value from the MCDataInput.</p>
+     * @param value the current value
+     * @param in the MCDataInput
+     * @return the new value
+     */
+    char readChar(char value, MCDataInput in);
+
+}
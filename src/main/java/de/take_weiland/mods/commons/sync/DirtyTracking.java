@@ -0,0 +1,25 @@
+package de.take_weiland.mods.commons.sync;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>When present on a class with {@linkplain de.take_weiland.mods.commons.sync.Sync synced} fields, writes to those fields
+ * are tracked instead of comparing every field to its last synced value every tick. If none of the fields have been
+ * written to since the last check, the object is skipped entirely.</p>
+ * <p>Only private fields are tracked, since only writes from code inside the class itself (including accessors
+ * generated for nested classes) can be seen. Non-private fields, fields with a mutable type (e.g. {@code FluidTank} or
+ * {@code ItemStack}) and synced getters are still compared every tick. Classes with more than 64 private synced fields
+ * are not tracked.</p>
+ * <p>Writes through reflection or MethodHandles are not seen either. Fields that are also annotated with
+ * {@link de.take_weiland.mods.commons.nbt.ToNbt} are therefore always compared, so that values loaded from NBT are
+ * synced. If a tracked field is written in any other way from outside the class, the new value is not sent until the
+ * class itself writes to that field again.</p>
+ * @author diesieben07
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DirtyTracking {
+}
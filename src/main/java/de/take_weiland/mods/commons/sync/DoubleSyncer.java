@@ -0,0 +1,30 @@
+package de.take_weiland.mods.commons.sync;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+
+/**
+ * <p>The {@code double} specialization of {@link Syncer}. Values are compared by their bits, like
+ * {@link Double#equals(Object)} does: {@code NaN} is equal to itself, but {@code 0.0} and {@code -0.0} are different
+ * values.</p>
+ *
+ * @author diesieben07
+ */
+public interface DoubleSyncer extends Syncer<Double, Double> {
+
+    /**
+     * <p>Write the changed value to the MCDataOutput.</p>
+     * @param value the value
+     * @param out the MCDataOutput
+     */
+    void writeDouble(double value, MCDataOutput out);
+
+    /**
+     * <p>Read a new value from the MCDataInput.</p>
+     * @param value the current value
+     * @param in the MCDataInput
+     * @return the new value
+     */
+    double readDouble(double value, MCDataInput in);
+
+}
@@ -0,0 +1,30 @@
+package de.take_weiland.mods.commons.sync;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+
+/**
+ * <p>The {@code float} specialization of {@link Syncer}. Values are compared by their bits, like
+ * {@link Float#equals(Object)} does: {@code NaN} is equal to itself, but {@code 0.0f} and {@code -0.0f} are different
+ * values.</p>
+ *
+ * @author diesieben07
+ */
+public interface FloatSyncer extends Syncer<Float, Float> {
+
+    /**
+     * <p>Write the changed value to the MCDataOutput.</p>
+     * @param value the value
+     * @param out the MCDataOutput
+     */
+    void writeFloat(float value, MCDataOutput out);
+
+    /**
+     * <p>Read a new value from the MCDataInput.</p>
+     * @param value the current value
+     * @param in the MCDataInput
+     * @return the new value
+     */
+    float readFloat(float value, MCDataInput in);
+
+}
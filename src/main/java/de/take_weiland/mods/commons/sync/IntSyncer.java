@@ -0,0 +1,29 @@
+package de.take_weiland.mods.commons.sync;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+
+/**
+ * <p>The {@code int} specialization of {@link Syncer}. If the value is usually small and positive, consider writing
+ * it with {@link MCDataOutput#writeVarInt(int)}.</p>
+ *
+ * @author diesieben07
+ */
+public interface IntSyncer extends Syncer<Integer, Integer> {
+
+    /**
+     * <p>Write the changed value to the MCDataOutput.</p>
+     * @param value the value
+     * @param out the MCDataOutput
+     */
+    void writeInt(int value, MCDataOutput out);
+
+    /**
+     * <p>Read a new value from the MCDataInput.</p>
+     * @param value the current value
+     * @param in the MCDataInput
+     * @return the new value
+     */
+    int readInt(int value, MCDataInput in);
+
+}
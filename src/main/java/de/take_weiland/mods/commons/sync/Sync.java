@@ -45,4 +45,21 @@ public @interface Sync {
 	 */
 	SerializationMethod.Method method() default SerializationMethod.Method.DEFAULT;
 
+	/**
+	 * <p>The minimum number of ticks between two updates of this property. If the property changes again before the interval
+	 * has passed, the update is deferred until it has. The latest value is always sent eventually.</p>
+	 * <p>Properties with an interval are not skipped by {@link DirtyTracking}.</p>
+	 * @return the interval in ticks
+	 */
+	int interval() default 0;
+
+	/**
+	 * <p>The relative change below which an update is deferred, e.g. {@code 0.01} to only send changes of more than 1%
+	 * immediately. Smaller changes are still sent, but only after the property has not been sent for
+	 * 20 ticks or {@link #interval()} ticks, whichever is longer.</p>
+	 * <p>Only numeric primitive properties support a threshold, it is ignored for all other types.</p>
+	 * @return the threshold
+	 */
+	double threshold() default 0;
+
 }
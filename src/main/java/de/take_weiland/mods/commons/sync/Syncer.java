@@ -6,6 +6,11 @@ import de.take_weiland.mods.commons.net.MCDataOutput;
 /**
  * <p>Support for syncing of a Type {@code V}.</p>
  * <p>An optional companion type may be specified to store additional data to enable syncing.</p>
+ * <p>A Syncer for a primitive wrapper type can additionally implement the matching primitive specialization, for
+ * example {@link IntSyncer} for {@code Integer}. For fields of the primitive type the companion is then always the value
+ * that was last synced. The generated code compares the field to it directly and only calls the primitive write and read
+ * methods of the specialization, so the value is never boxed. The methods of this interface are still used for fields
+ * of the wrapper type.</p>
  *
  * @author diesieben07
  */
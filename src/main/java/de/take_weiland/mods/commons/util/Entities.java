@@ -1,5 +1,6 @@
 package de.take_weiland.mods.commons.util;
 
+import de.take_weiland.mods.commons.internal.EntityProxy;
 import de.take_weiland.mods.commons.nbt.NBT;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityTrackerEntry;
@@ -8,7 +9,6 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.Direction;
 import net.minecraft.util.MathHelper;
-import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.ForgeDirection;
 
 import java.util.Collections;
@@ -79,7 +79,7 @@ public final class Entities {
 	@SuppressWarnings("unchecked")
 	public static Set<EntityPlayerMP> getTrackingPlayers(Entity entity) {
 		checkArgument(Sides.logical(entity).isServer(), "Cannot get tracking players on the client");
-		EntityTrackerEntry entry = (EntityTrackerEntry) SCReflector.instance.getTrackerMap(((WorldServer) entity.worldObj).getEntityTracker()).lookup(entity.entityId);
+		EntityTrackerEntry entry = ((EntityProxy) entity)._sc$getTrackerEntry();
 		return entry == null ? Collections.emptySet() : entry.trackingPlayers;
 	}
 
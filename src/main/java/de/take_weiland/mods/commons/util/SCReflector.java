@@ -15,7 +15,7 @@ import net.minecraft.client.gui.GuiScreen;
 import net.minecraft.client.renderer.EntityRenderer;
 import net.minecraft.client.renderer.texture.TextureManager;
 import net.minecraft.client.renderer.texture.TextureObject;
-import net.minecraft.entity.EntityTracker;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.Container;
 import net.minecraft.inventory.ICrafting;
 import net.minecraft.inventory.Slot;
@@ -25,7 +25,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.network.packet.Packet;
-import net.minecraft.util.IntHashMap;
+import net.minecraft.server.management.PlayerInstance;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.Timer;
 
@@ -78,9 +78,6 @@ public interface SCReflector {
 	@Getter(field = F_TIMER, srg = true)
 	Timer getTimer(Minecraft mc);
 
-	@Getter(field = F_TRACKED_ENTITY_IDS, srg = true)
-	IntHashMap getTrackerMap(EntityTracker tracker);
-
 	@SideOnly(Side.CLIENT)
 	@Getter(field = F_MAP_TEXTURE_OBJECTS, srg = true)
 	Map<ResourceLocation, TextureObject> getTexturesMap(TextureManager manager);
@@ -136,6 +133,9 @@ public interface SCReflector {
 	@Getter(field = F_CRAFTERS, srg = true)
 	List<ICrafting> getCrafters(Container container);
 
+	@Getter(field = F_PLAYERS_IN_CHUNK, srg = true)
+	List<EntityPlayerMP> getPlayersInChunk(PlayerInstance instance);
+
 	@Invoke(method = M_NBT_WRITE, srg = true)
 	void write(NBTBase nbt, DataOutput out) throws IOException;
 
@@ -0,0 +1,124 @@
+package de.take_weiland.mods.commons.internal;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author diesieben07
+ */
+public class ChunkGridTest {
+
+	private static Set<String> collect(ChunkGrid<String> grid, double x, double z, double radius) {
+		Set<String> result = new HashSet<>();
+		grid.collect(x, z, radius, result);
+		return result;
+	}
+
+	private static Set<String> setOf(String... elements) {
+		Set<String> set = new HashSet<>();
+		for (String element : elements) {
+			set.add(element);
+		}
+		return set;
+	}
+
+	@Test
+	public void testCollect() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		grid.put("a", 1, 1);
+		grid.put("b", 15, 15);
+		grid.put("c", 100, 100);
+
+		assertThat(grid.size(), is(equalTo(3)));
+		// same bucket, even though "b" is not within the radius
+		assertThat(collect(grid, 0, 0, 2), is(equalTo(setOf("a", "b"))));
+		assertThat(collect(grid, 100, 100, 2), is(equalTo(setOf("c"))));
+		assertThat(collect(grid, 50, 50, 2), is(equalTo(setOf())));
+		// more buckets in range than occupied buckets
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf("a", "b", "c"))));
+	}
+
+	@Test
+	public void testNegativeCoordinates() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		grid.put("a", -0.5, -0.5);
+
+		assertThat(collect(grid, -8, -8, 0), is(equalTo(setOf("a"))));
+		assertThat(collect(grid, 8, 8, 0), is(equalTo(setOf())));
+	}
+
+	@Test
+	public void testMove() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		grid.put("a", 1, 1);
+		grid.put("a", 2, 2);
+		grid.put("a", 40, 1);
+
+		assertThat(grid.size(), is(equalTo(1)));
+		assertThat(collect(grid, 0, 0, 2), is(equalTo(setOf())));
+		assertThat(collect(grid, 40, 0, 2), is(equalTo(setOf("a"))));
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf("a"))));
+	}
+
+	@Test
+	public void testRemove() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		grid.put("a", 1, 1);
+		grid.put("b", 2, 2);
+
+		assertTrue(grid.remove("a"));
+		assertFalse(grid.remove("a"));
+		assertFalse(grid.remove("c"));
+		assertThat(grid.size(), is(equalTo(1)));
+		assertThat(collect(grid, 0, 0, 2), is(equalTo(setOf("b"))));
+	}
+
+	@Test
+	public void testIdentity() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		String a = "a";
+		String otherA = new String("a");
+		grid.put(a, 1, 1);
+		grid.put(otherA, 40, 40);
+
+		assertThat(grid.size(), is(equalTo(2)));
+		assertFalse(grid.remove(new String("a")));
+	}
+
+	@Test
+	public void testSwapRemove() {
+		ChunkGrid<String> grid = new ChunkGrid<>();
+		grid.put("a", 0, 0);
+		grid.put("b", 100, 0);
+		grid.put("c", 200, 0);
+		grid.put("d", 300, 0);
+
+		// empties the first bucket, the last one takes its place
+		grid.remove("a");
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf("b", "c", "d"))));
+
+		// the moved bucket must still be removable
+		grid.remove("d");
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf("b", "c"))));
+		assertThat(collect(grid, 300, 0, 2), is(equalTo(setOf())));
+
+		grid.put("a", 0, 0);
+		grid.remove("b");
+		grid.remove("c");
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf("a"))));
+		assertThat(collect(grid, 0, 0, 2), is(equalTo(setOf("a"))));
+
+		grid.remove("a");
+		assertThat(grid.size(), is(equalTo(0)));
+		assertThat(collect(grid, 0, 0, 1000), is(equalTo(setOf())));
+	}
+
+}
@@ -0,0 +1,193 @@
+package de.take_weiland.mods.commons.internal;
+
+import cpw.mods.fml.relauncher.Side;
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.ModPacket;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.net.PacketField;
+import net.minecraft.entity.player.EntityPlayer;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author diesieben07
+ */
+public class PacketCodecTest {
+
+	enum Color {
+		RED, GREEN, BLUE
+	}
+
+	static class BooleanPacket extends ModPacket {
+
+		@PacketField boolean b0;
+		@PacketField boolean b1;
+		@PacketField boolean b2;
+		@PacketField boolean b3;
+		@PacketField boolean b4;
+		@PacketField boolean b5;
+		@PacketField boolean b6;
+		@PacketField boolean b7;
+		@PacketField boolean b8;
+		@PacketField boolean b9;
+		@PacketField int after;
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	static class VarIntPacket extends ModPacket {
+
+		@PacketField(varInt = true) int small;
+		@PacketField(varInt = true) int negative;
+		@PacketField(varInt = true) long big;
+		@PacketField long fixed;
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	static class EnumPacket extends ModPacket {
+
+		@PacketField Color color;
+		@PacketField Color nullColor;
+		@PacketField String name;
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	static class BasePacket extends ModPacket {
+
+		@PacketField int value;
+		@PacketField boolean flag;
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	static class SubPacket extends BasePacket {
+
+		// same name as the superclass field
+		@PacketField int value;
+		@PacketField boolean other;
+		@PacketField short s;
+		@PacketField char c;
+		@PacketField byte by;
+		@PacketField float f;
+		@PacketField double d;
+	}
+
+	static class NoFieldsPacket extends ModPacket {
+
+		int notAnnotated;
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	private static <T extends ModPacket> T roundTrip(T packet, T target) {
+		PacketCodec codec = PacketCodec.create(packet.getClass());
+		MCDataOutput out = Network.newDataOutput(16);
+		codec.write(packet, out);
+		assertThat(codec.size(packet), is(equalTo(out.length())));
+
+		MCDataInput in = Network.newDataInput(out.backingArray(), 0, out.length());
+		codec.read(target, in);
+		assertThat(in.pos(), is(equalTo(out.length())));
+		return target;
+	}
+
+	@Test
+	public void testManyBooleans() {
+		BooleanPacket packet = new BooleanPacket();
+		packet.b0 = true;
+		packet.b3 = true;
+		packet.b7 = true;
+		packet.b8 = true;
+		packet.after = 0xCAFEBABE;
+
+		BooleanPacket result = roundTrip(packet, new BooleanPacket());
+		assertThat(result.b0, is(equalTo(true)));
+		assertThat(result.b1, is(equalTo(false)));
+		assertThat(result.b2, is(equalTo(false)));
+		assertThat(result.b3, is(equalTo(true)));
+		assertThat(result.b4, is(equalTo(false)));
+		assertThat(result.b5, is(equalTo(false)));
+		assertThat(result.b6, is(equalTo(false)));
+		assertThat(result.b7, is(equalTo(true)));
+		assertThat(result.b8, is(equalTo(true)));
+		assertThat(result.b9, is(equalTo(false)));
+		assertThat(result.after, is(equalTo(0xCAFEBABE)));
+
+		// 10 booleans take two bytes
+		assertThat(PacketCodec.create(BooleanPacket.class).size(packet), is(equalTo(2 + 4)));
+	}
+
+	@Test
+	public void testVarInts() {
+		VarIntPacket packet = new VarIntPacket();
+		packet.small = 3;
+		packet.negative = -1;
+		packet.big = Long.MAX_VALUE;
+		packet.fixed = 5;
+
+		VarIntPacket result = roundTrip(packet, new VarIntPacket());
+		assertThat(result.small, is(equalTo(3)));
+		assertThat(result.negative, is(equalTo(-1)));
+		assertThat(result.big, is(equalTo(Long.MAX_VALUE)));
+		assertThat(result.fixed, is(equalTo(5L)));
+
+		assertThat(PacketCodec.create(VarIntPacket.class).size(packet), is(equalTo(1 + 5 + 9 + 8)));
+	}
+
+	@Test
+	public void testEnums() {
+		EnumPacket packet = new EnumPacket();
+		packet.color = Color.BLUE;
+		packet.name = "test";
+
+		EnumPacket target = new EnumPacket();
+		target.nullColor = Color.RED;
+		EnumPacket result = roundTrip(packet, target);
+		assertThat(result.color, is(equalTo(Color.BLUE)));
+		assertTrue(result.nullColor == null);
+		assertThat(result.name, is(equalTo("test")));
+	}
+
+	@Test
+	public void testInherited() {
+		SubPacket packet = new SubPacket();
+		((BasePacket) packet).value = 1;
+		packet.flag = true;
+		packet.value = 2;
+		packet.other = false;
+		packet.s = -2;
+		packet.c = 'x';
+		packet.by = 7;
+		packet.f = 1.5f;
+		packet.d = -0.25;
+
+		SubPacket result = roundTrip(packet, new SubPacket());
+		assertThat(((BasePacket) result).value, is(equalTo(1)));
+		assertThat(result.flag, is(equalTo(true)));
+		assertThat(result.value, is(equalTo(2)));
+		assertThat(result.other, is(equalTo(false)));
+		assertThat(result.s, is(equalTo((short) -2)));
+		assertThat(result.c, is(equalTo('x')));
+		assertThat(result.by, is(equalTo((byte) 7)));
+		assertThat(result.f, is(equalTo(1.5f)));
+		assertThat(result.d, is(equalTo(-0.25)));
+	}
+
+	@Test
+	public void testNoFields() {
+		assertTrue(PacketCodec.create(NoFieldsPacket.class) == PacketCodec.EMPTY);
+	}
+
+}
@@ -0,0 +1,109 @@
+package de.take_weiland.mods.commons.internal;
+
+import de.take_weiland.mods.commons.net.MCDataInput;
+import de.take_weiland.mods.commons.net.MCDataOutput;
+import de.take_weiland.mods.commons.net.Network;
+import de.take_weiland.mods.commons.net.ProtocolException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author diesieben07
+ */
+public class PacketCompressionTest {
+
+	private static byte[] payload(int len) {
+		byte[] data = new byte[len];
+		for (int i = 0; i < len; i++) {
+			data[i] = (byte) (i % 7);
+		}
+		return data;
+	}
+
+	private static byte[] compressed(byte[] data, int claimedLen) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(data);
+		deflater.finish();
+		byte[] buf = new byte[data.length + 64];
+		int n = deflater.deflate(buf);
+		deflater.end();
+
+		MCDataOutput out = Network.newDataOutput(n + 10);
+		out.writeVarInt(-1);
+		out.writeVarInt(claimedLen);
+		out.write(buf, 0, n);
+		return Arrays.copyOf(out.backingArray(), out.length());
+	}
+
+	private static byte[] readAll(MCDataInput in) {
+		byte[] result = new byte[in.len() - in.pos()];
+		in.readFully(result);
+		return result;
+	}
+
+	private static void assertRejected(byte[] packet, boolean serverbound) {
+		try {
+			PacketCompression.open(packet, 0, packet.length, serverbound);
+			fail("Packet was accepted");
+		} catch (ProtocolException e) {
+			assertTrue(e.getKickMessage() != null);
+		}
+	}
+
+	@Test
+	public void testUncompressed() throws ProtocolException {
+		MCDataOutput out = Network.newDataOutput(3);
+		out.writeVarInt(3);
+		out.writeByte(1);
+		out.writeByte(2);
+		byte[] data = Arrays.copyOf(out.backingArray(), out.length());
+		assertThat(readAll(PacketCompression.open(data, 0, data.length, true)), is(equalTo(data)));
+		assertThat(readAll(PacketCompression.open(data, 0, data.length, false)), is(equalTo(data)));
+	}
+
+	@Test
+	public void testInflateClientbound() throws ProtocolException {
+		byte[] data = payload(5000);
+		byte[] packet = compressed(data, data.length);
+		assertThat(readAll(PacketCompression.open(packet, 0, packet.length, false)), is(equalTo(data)));
+	}
+
+	@Test
+	public void testRejectServerboundWhenDisabled() {
+		assertFalse(PacketCompression.ENABLED);
+		byte[] data = payload(100);
+		assertRejected(compressed(data, data.length), true);
+	}
+
+	@Test
+	public void testRejectInvalidLength() {
+		byte[] data = payload(100);
+		assertRejected(compressed(data, -5), false);
+		assertRejected(compressed(data, 1 << 23), false);
+	}
+
+	@Test
+	public void testRejectTruncated() {
+		byte[] data = payload(100);
+		assertRejected(compressed(data, data.length + 1), false);
+	}
+
+	@Test
+	public void testRejectCorrupt() {
+		byte[] packet = compressed(payload(100), 100);
+		for (int i = 6; i < packet.length; i++) {
+			packet[i] = (byte) 0xFF;
+		}
+		assertRejected(packet, false);
+	}
+
+}
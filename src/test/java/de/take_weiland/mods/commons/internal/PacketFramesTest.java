@@ -0,0 +1,60 @@
+package de.take_weiland.mods.commons.internal;
+
+import net.minecraft.network.packet.Packet250CustomPayload;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author diesieben07
+ */
+public class PacketFramesTest {
+
+	private static byte[] vanillaFrame(String channel, byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new Packet250CustomPayload(channel, data).writePacketData(new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static void checkFrame(String channel, byte[] data) throws IOException {
+		assertThat(PacketFrames.encode(channel, data, data.length), is(equalTo(vanillaFrame(channel, data))));
+	}
+
+	@Test
+	public void testEncode() throws IOException {
+		checkFrame("SevenCommons", new byte[] { 0, 1, (byte) 0x80, (byte) 0xFF, 42 });
+	}
+
+	@Test
+	public void testEncodeEmptyPayload() throws IOException {
+		checkFrame("SevenCommons", new byte[0]);
+	}
+
+	@Test
+	public void testEncodeNonAsciiChannel() throws IOException {
+		checkFrame("Mod|\u00e4\u20ac", new byte[] { 1, 2, 3 });
+	}
+
+	@Test
+	public void testEncodeLargePayload() throws IOException {
+		byte[] data = new byte[20000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		checkFrame("SevenCommons", data);
+	}
+
+	@Test
+	public void testEncodePartOfArray() throws IOException {
+		byte[] data = { 5, 6, 7, 8, 9 };
+		assertThat(PacketFrames.encode("SevenCommons", data, 3), is(equalTo(vanillaFrame("SevenCommons", Arrays.copyOf(data, 3)))));
+	}
+
+}
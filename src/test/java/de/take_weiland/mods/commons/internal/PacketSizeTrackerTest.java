@@ -0,0 +1,108 @@
+package de.take_weiland.mods.commons.internal;
+
+import cpw.mods.fml.relauncher.Side;
+import de.take_weiland.mods.commons.net.ModPacket;
+import net.minecraft.entity.player.EntityPlayer;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author diesieben07
+ */
+public class PacketSizeTrackerTest {
+
+	static class LearnedPacket extends ModPacket {
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+	}
+
+	static class SizedPacket extends ModPacket {
+
+		@Override
+		public void execute(EntityPlayer player, Side side) { }
+
+		@Override
+		public int expectedSize() {
+			return 20;
+		}
+	}
+
+	@Test
+	public void testAdaptive() {
+		assertTrue(new PacketSizeTracker(LearnedPacket.class, false).isAdaptive());
+		assertFalse(new PacketSizeTracker(LearnedPacket.class, true).isAdaptive());
+		assertFalse(new PacketSizeTracker(SizedPacket.class, false).isAdaptive());
+	}
+
+	@Test
+	public void testExpectedSize() {
+		PacketSizeTracker tracker = new PacketSizeTracker(SizedPacket.class, false);
+		tracker.record(100, true);
+		assertThat(tracker.initialCapacity(new SizedPacket()), is(equalTo(21)));
+	}
+
+	@Test
+	public void testPercentile() {
+		PacketSizeTracker tracker = new PacketSizeTracker(LearnedPacket.class, false);
+		assertThat(tracker.learnedSize(), is(equalTo(33)));
+
+		for (int i = 1; i <= 32; i++) {
+			tracker.record(i * 10, false);
+		}
+		// 29th of 32 sorted samples
+		assertThat(tracker.learnedSize(), is(equalTo(290)));
+		assertThat(tracker.initialCapacity(new LearnedPacket()), is(equalTo(290)));
+	}
+
+	@Test
+	public void testMinSize() {
+		PacketSizeTracker tracker = new PacketSizeTracker(LearnedPacket.class, false);
+		tracker.record(1, false);
+		assertThat(tracker.learnedSize(), is(equalTo(8)));
+	}
+
+	@Test
+	public void testWindowRolls() {
+		PacketSizeTracker tracker = new PacketSizeTracker(LearnedPacket.class, false);
+		for (int i = 0; i < 32; i++) {
+			tracker.record(500, false);
+		}
+		for (int i = 0; i < 32; i++) {
+			tracker.record(50, false);
+		}
+		assertThat(tracker.learnedSize(), is(equalTo(50)));
+	}
+
+	@Test
+	public void testGrowRecomputes() {
+		PacketSizeTracker tracker = new PacketSizeTracker(LearnedPacket.class, false);
+		for (int i = 0; i < 32; i++) {
+			tracker.record(10, false);
+		}
+		for (int i = 0; i < 4; i++) {
+			tracker.record(100, false);
+		}
+		// once the window is full, the size is only recomputed every 8 packets
+		assertThat(tracker.learnedSize(), is(equalTo(10)));
+
+		tracker.record(100, true);
+		assertThat(tracker.learnedSize(), is(equalTo(100)));
+	}
+
+	@Test
+	public void testCounters() {
+		PacketSizeTracker tracker = new PacketSizeTracker(LearnedPacket.class, false);
+		tracker.record(10, false);
+		tracker.record(40, true);
+		tracker.record(40, false);
+		assertThat(tracker.packets(), is(equalTo(3L)));
+		assertThat(tracker.growEvents(), is(equalTo(1L)));
+	}
+
+}
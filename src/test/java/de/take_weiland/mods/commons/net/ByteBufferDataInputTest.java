@@ -0,0 +1,17 @@
+package de.take_weiland.mods.commons.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author diesieben07
+ */
+public class ByteBufferDataInputTest extends MCDataInputTest {
+
+	@Override
+	AbstractMCDataInput createStream(byte... buf) {
+		ByteBuffer direct = ByteBuffer.allocateDirect(buf.length);
+		direct.put(buf).flip();
+		return new ByteBufferDataInput(direct);
+	}
+
+}
@@ -0,0 +1,20 @@
+package de.take_weiland.mods.commons.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author diesieben07
+ */
+public class ByteBufferDataOutputTest extends MCDataOutputTest {
+
+	@Override
+	AbstractMCDataOutput newStream() {
+		return newStream(64);
+	}
+
+	@Override
+	AbstractMCDataOutput newStream(int cap) {
+		return new ByteBufferDataOutput(ByteBuffer.allocate(cap));
+	}
+
+}
@@ -4,9 +4,15 @@ import com.google.common.primitives.Chars;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import com.google.common.primitives.Shorts;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.EnumSet;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -17,7 +23,7 @@ import static org.junit.Assert.*;
  */
 public class MCDataInputTest {
 
-	MCDataInputImpl createStream(byte... buf) {
+	AbstractMCDataInput createStream(byte... buf) {
 		return new MCDataInputImpl(buf, 0, buf.length);
 	}
 
@@ -91,7 +97,7 @@ public class MCDataInputTest {
 
 	@Test
 	public void testByte() {
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b0011_0111,
 				(byte) 0b1010_0101,
 				(byte) 0b1111_0001);
@@ -193,7 +199,7 @@ public class MCDataInputTest {
 
 	@Test
 	public void testBooleans1Byte() {
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_0100,
 				(byte) 0b0000_1101
 		);
@@ -204,7 +210,7 @@ public class MCDataInputTest {
 
 	@Test
 	public void testBooleans2Byte() {
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_1110,
 				(byte) 0b11001101,
 				(byte) 0b00001010
@@ -219,7 +225,7 @@ public class MCDataInputTest {
 
 	@Test
 	public void testBooleansNull() {
-		MCDataInputImpl stream = minusOneStream();
+		AbstractMCDataInput stream = minusOneStream();
 
 		assertThat(stream.readBooleans(), is(nullValue()));
 	}
@@ -227,7 +233,7 @@ public class MCDataInputTest {
 	@Test
 	public void testBytes() {
 		byte[] expected = {(byte) 0b0101_1010, (byte) 0b1010_0101};
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_0010, // varInt: 2
 				(byte) 0b0101_1010,
 				(byte) 0b1010_0101
@@ -244,7 +250,7 @@ public class MCDataInputTest {
 	@Test
 	public void testShorts() {
 		short[] expected = {(short) 0xEA40, (short) 0x21F0};
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_0010, // varInt: 2
 				(byte) 0x40, // shorts in little endian
 				(byte) 0xEA,
@@ -262,7 +268,7 @@ public class MCDataInputTest {
 	@Test
 	public void testInts() {
 		int[] expected = {0xEA4021F0, 0x0F3407F8};
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_0010, // varInt: 2
 				(byte) 0xF0,
 				(byte) 0x21,
@@ -285,7 +291,7 @@ public class MCDataInputTest {
 	@Test
 	public void testLongs() {
 		long[] expected = {0x12_34_56_78_9A_BC_DE_F0L, 0x0F_ED_CB_A9_87_65_43_21L};
-		MCDataInputImpl stream = createStream(
+		AbstractMCDataInput stream = createStream(
 				(byte) 0b1000_0010, // varInt: 2
 
 				(byte) 0xF0,
@@ -314,7 +320,466 @@ public class MCDataInputTest {
 		assertThat(minusOneStream().readLongs(), is(nullValue()));
 	}
 
-	final MCDataInputImpl minusOneStream() {
+	@Test
+	public void testArrayOffset() {
+		MCDataInputImpl stream = new MCDataInputImpl(new byte[] { 1, 2, 3, 4, 5 }, 2, 2);
+		assertThat(stream.available(), is(equalTo(2)));
+		assertThat(stream.read(), is(equalTo(3)));
+		assertThat(stream.skipBytes(5), is(equalTo(1)));
+		assertThat(stream.read(), is(equalTo(-1)));
+	}
+
+	@Test
+	public void testReadIntoLargerArray() throws IOException {
+		byte[] b = new byte[8];
+		assertThat(createStream((byte) 7, (byte) 9).read(b, 4, 2), is(equalTo(2)));
+		assertThat(b[4], is(equalTo((byte) 7)));
+		assertThat(b[5], is(equalTo((byte) 9)));
+	}
+
+	@Test
+	public void testString() {
+		AbstractMCDataInput stream = createStream(
+				(byte) 0b1000_0010, // VarInt: 2
+				(byte) 0x61, // chars in little endian
+				(byte) 0x00,
+				(byte) 0xAC,
+				(byte) 0x20
+		);
+		assertThat(stream.readString(), is(equalTo("a\u20ac")));
+	}
+
+	enum Letter {
+		A, B, C, D, E, F, G, H, I, J
+	}
+
+	@Test
+	public void testEnumSetRoundTrip() {
+		checkEnumSet(EnumSet.of(Letter.A, Letter.G));
+		checkEnumSet(EnumSet.of(Letter.B, Letter.H, Letter.J));
+		checkEnumSet(EnumSet.allOf(Letter.class));
+		checkEnumSet(EnumSet.noneOf(Letter.class));
+		checkEnumSet(null);
+	}
+
+	private void checkEnumSet(EnumSet<Letter> set) {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeEnumSet(set);
+		assertThat(createStream(out.toByteArray()).readEnumSet(Letter.class), is(equalTo(set)));
+	}
+
+	@Test
+	public void testCompactString() {
+		AbstractMCDataInput stream = createStream(
+				(byte) 0b1000_0110, // VarInt: 3 << 1
+				(byte) 'a',
+				(byte) 'b',
+				(byte) 0xE4,
+
+				(byte) 0b1000_1001, // VarInt: 4 << 1 | 1
+				(byte) 'a',
+				(byte) 0xE2,
+				(byte) 0x82,
+				(byte) 0xAC,
+
+				(byte) 0b1000_0001, // null
+				(byte) 0b1000_0000 // empty
+		);
+		assertThat(stream.readCompactString(), is(equalTo("ab\u00e4")));
+		assertThat(stream.readCompactString(), is(equalTo("a\u20ac")));
+		assertThat(stream.readCompactString(), is(nullValue()));
+		assertThat(stream.readCompactString(), is(equalTo("")));
+	}
+
+	@Test
+	public void testCompactStringRoundTrip() {
+		String s = "\u00fcber \ud83d\ude00 \u4e2d";
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeCompactString(s);
+		assertThat(createStream(out.toByteArray()).readCompactString(), is(equalTo(s)));
+	}
+
+	@Test
+	public void testVarLong() {
+		AbstractMCDataInput stream = createStream(
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b1000_0001
+		);
+		assertThat(stream.readVarLong(), is(equalTo(1L << 35)));
+	}
+
+	@Test
+	public void testSignedVarInt() {
+		AbstractMCDataInput stream = createStream(
+				(byte) 0b1000_0000,
+				(byte) 0b1000_0001,
+				(byte) 0b1000_0010,
+				(byte) 0b1111_1111,
+				(byte) 0b1000_0011
+		);
+		assertThat(stream.readSignedVarInt(), is(equalTo(0)));
+		assertThat(stream.readSignedVarInt(), is(equalTo(-1)));
+		assertThat(stream.readSignedVarInt(), is(equalTo(1)));
+		assertThat(stream.readSignedVarInt(), is(equalTo(-64)));
+		assertThat(stream.readSignedVarLong(), is(equalTo(-2L)));
+	}
+
+	@Test
+	public void testVarNumbersRoundTrip() {
+		int[] ints = { 0, 1, -1, 300, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		long[] longs = { 0, 1, -1, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE };
+
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		for (int i : ints) {
+			out.writeSignedVarInt(i);
+		}
+		for (long l : longs) {
+			out.writeVarLong(l);
+			out.writeSignedVarLong(l);
+		}
+		out.writeVarInts(ints);
+		out.writeVarLongs(longs);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		for (int i : ints) {
+			assertThat(in.readSignedVarInt(), is(equalTo(i)));
+		}
+		for (long l : longs) {
+			assertThat(in.readVarLong(), is(equalTo(l)));
+			assertThat(in.readSignedVarLong(), is(equalTo(l)));
+		}
+		assertArrayEquals(ints, in.readVarInts());
+		assertArrayEquals(longs, in.readVarLongs());
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testVarInts() {
+		AbstractMCDataInput stream = createStream(
+				(byte) 0b1000_0011, // length
+				(byte) 0b1000_0001,
+				(byte) 0b0111_1111,
+				(byte) 0b1000_0001,
+				(byte) 0b1000_0000
+		);
+		assertArrayEquals(new int[] { 1, 0xFF, 0 }, stream.readVarInts());
+	}
+
+	@Test
+	public void testNullVarInts() {
+		assertThat(minusOneStream().readVarInts(), is(nullValue()));
+		assertThat(minusOneStream().readVarLongs(), is(nullValue()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testVarIntsTooLong() {
+		createStream((byte) 0b1000_0011, (byte) 0b1000_0001, (byte) 0b1000_0001).readVarInts();
+	}
+
+	@Test
+	public void testIntsDeltaRoundTrip() {
+		int[] prev = new int[40];
+		int[] cur = prev.clone();
+		cur[0] = 1;
+		cur[17] = 2;
+		cur[18] = 3;
+		cur[39] = 4;
+
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeIntsDelta(cur, prev);
+		out.writeIntsDelta(cur, cur);
+		out.writeIntsDelta(null, cur);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		int[] buf = prev.clone();
+		assertSame(buf, in.readIntsDelta(buf));
+		assertArrayEquals(cur, buf);
+		assertSame(buf, in.readIntsDelta(buf));
+		assertArrayEquals(cur, buf);
+		assertThat(in.readIntsDelta(buf), is(nullValue()));
+	}
+
+	@Test
+	public void testLongsDeltaRoundTrip() {
+		long[] prev = new long[20];
+		long[] cur = prev.clone();
+		cur[5] = Long.MIN_VALUE;
+		cur[6] = Long.MAX_VALUE;
+
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeLongsDelta(cur, prev);
+		out.writeLongsDelta(new long[] { 1, 2 }, cur);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		long[] buf = prev.clone();
+		assertArrayEquals(cur, in.readLongsDelta(buf));
+		assertArrayEquals(new long[] { 1, 2 }, in.readLongsDelta(buf));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIntsDeltaMismatch() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		int[] cur = new int[10];
+		cur[3] = 1;
+		out.writeIntsDelta(cur, new int[10]);
+		createStream(out.toByteArray()).readIntsDelta(new int[9]);
+	}
+
+	@Test
+	public void testSkipNBT() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeByte(BufferConstants.NBT_NULL);
+
+		out.writeByte(BufferConstants.NBT_COMPACT_NAMES);
+		out.writeByte(3); // int
+		out.writeCompactString("a");
+		out.writeInt(42);
+		out.writeByte(9); // list of strings
+		out.writeCompactString("list");
+		out.writeByte(8);
+		out.writeInt(2);
+		writeVanillaString(out, "foo");
+		writeVanillaString(out, "");
+		out.writeByte(10); // vanilla compound
+		out.writeCompactString("c");
+		out.writeByte(11); // int[]
+		writeVanillaString(out, "ints");
+		out.writeInt(2);
+		out.writeInt(1);
+		out.writeInt(2);
+		out.writeByte(0);
+		out.writeByte(0);
+
+		out.writeInt(1234);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		in.skipNBT();
+		in.skipNBT();
+		assertThat(in.readInt(), is(equalTo(1234)));
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testSkipNBTKeepsDictionary() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeByte(BufferConstants.NBT_DICTIONARY_NAMES);
+		out.writeByte(BufferConstants.NBT_COMPOUND_ID);
+		out.writeVarInt(BufferConstants.NBT_NAME_INLINE);
+		out.writeCompactString("outer");
+		out.writeByte(1); // byte
+		out.writeVarInt(BufferConstants.NBT_NAME_INLINE);
+		out.writeCompactString("inner");
+		out.writeByte(5);
+		out.writeByte(0);
+		out.writeByte(0);
+
+		out.writeByte(BufferConstants.NBT_DICTIONARY_NAMES);
+		out.writeByte(1);
+		out.writeVarInt(2); // reference to "inner"
+		out.writeByte(7);
+		out.writeByte(0);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		in.skipNBT();
+		in.skipNBT();
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testSliceNBTDictionary() {
+		// like a PacketSync: records written to their own streams, concatenated with their length
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		for (int i = 0; i < 2; i++) {
+			MCDataOutputImpl record = new MCDataOutputImpl(4);
+			NBTTagCompound nbt = sampleNBT();
+			nbt.setInteger("record", i);
+			record.writeNBT(nbt, BufferConstants.NBT_DICTIONARY_NAMES);
+			record.writeNBT(nbt, BufferConstants.NBT_DICTIONARY_NAMES);
+			out.writeVarInt(record.length());
+			out.write(record.backingArray(), 0, record.length());
+		}
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		// the first record is skipped, its names are never read
+		in.readSlice(in.readVarInt());
+		MCDataInput second = in.readSlice(in.readVarInt());
+		assertThat(in.available(), is(equalTo(0)));
+
+		NBTTagCompound expected = sampleNBT();
+		expected.setInteger("record", 1);
+		assertThat(second.readNBT(), is(equalTo(expected)));
+		assertThat(second.readNBT(), is(equalTo(expected)));
+		assertThat(second.pos(), is(equalTo(second.len())));
+	}
+
+	@Test
+	public void testSliceIsIndependent() {
+		AbstractMCDataInput in = createStream((byte) 1, (byte) 2, (byte) 3, (byte) 4);
+		in.readByte();
+		MCDataInput slice = in.readSlice(2);
+		assertThat(in.readByte(), is(equalTo((byte) 4)));
+		assertThat(slice.len(), is(equalTo(2)));
+		assertThat(slice.readByte(), is(equalTo((byte) 2)));
+		assertThat(slice.readByte(), is(equalTo((byte) 3)));
+		assertThat(slice.pos(), is(equalTo(2)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSliceTooLong() {
+		createStream((byte) 1, (byte) 2).readSlice(3);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSkipNBTTruncated() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeByte(BufferConstants.NBT_COMPACT_NAMES);
+		out.writeByte(7); // byte[]
+		out.writeCompactString("bytes");
+		out.writeInt(100);
+		out.writeByte(0);
+		createStream(out.toByteArray()).skipNBT();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSkipNBTIntArrayOverflow() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeByte(BufferConstants.NBT_COMPACT_NAMES);
+		out.writeByte(11); // int[]
+		out.writeCompactString("ints");
+		out.writeInt(0x40000001); // 4 bytes when multiplied by 4 in an int
+		out.writeInt(0);
+		out.writeByte(0);
+		createStream(out.toByteArray()).skipNBT();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSkipNBTListOverflow() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeByte(BufferConstants.NBT_COMPACT_NAMES);
+		out.writeByte(BufferConstants.NBT_LIST_ID);
+		out.writeCompactString("longs");
+		out.writeByte(4); // long
+		out.writeInt(0x20000001); // 8 bytes when multiplied by 8 in an int
+		out.writeLong(0);
+		out.writeByte(0);
+		createStream(out.toByteArray()).skipNBT();
+	}
+
+	private static NBTTagCompound sampleNBT() {
+		NBTTagCompound inner = new NBTTagCompound();
+		inner.setInteger("id", 3);
+		inner.setString("name", "foo");
+
+		NBTTagList compounds = new NBTTagList();
+		for (int i = 0; i < 3; i++) {
+			NBTTagCompound element = new NBTTagCompound();
+			element.setInteger("id", i);
+			element.setTag("inner", inner.copy());
+			compounds.appendTag(element);
+		}
+		NBTTagList strings = new NBTTagList();
+		strings.appendTag(new NBTTagString("", "a"));
+		strings.appendTag(new NBTTagString("", "b"));
+
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("id", 1);
+		nbt.setTag("inner", inner);
+		nbt.setTag("compounds", compounds);
+		nbt.setTag("strings", strings);
+		return nbt;
+	}
+
+	@Test
+	public void testNBTCompactRoundTrip() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeNBT(sampleNBT(), BufferConstants.NBT_COMPACT_NAMES);
+		out.writeNBT(null, BufferConstants.NBT_COMPACT_NAMES);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		assertThat(in.readNBT(), is(equalTo(sampleNBT())));
+		assertThat(in.readNBT(), is(nullValue()));
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testNBTDictionaryRoundTrip() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeNBT(sampleNBT(), BufferConstants.NBT_DICTIONARY_NAMES);
+		// the second compound only refers to the names of the first
+		out.writeNBT(sampleNBT(), BufferConstants.NBT_DICTIONARY_NAMES);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		assertThat(in.readNBT(), is(equalTo(sampleNBT())));
+		assertThat(in.readNBT(), is(equalTo(sampleNBT())));
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testNBTDictionaryReferences() {
+		AbstractMCDataInput in = createStream(
+				(byte) BufferConstants.NBT_DICTIONARY_NAMES,
+				(byte) 3, // int
+				(byte) 0b1000_0000, // VarInt: inline name
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				(byte) 'a',
+				(byte) 1, (byte) 0, (byte) 0, (byte) 0,
+				(byte) BufferConstants.NBT_COMPOUND_ID,
+				(byte) 0b1000_0000, // VarInt: inline name
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				(byte) 'c',
+				(byte) 3, // int
+				(byte) 0b1000_0001, // VarInt: reference to "a"
+				(byte) 2, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0,
+				(byte) 0,
+
+				(byte) BufferConstants.NBT_DICTIONARY_NAMES,
+				(byte) 3, // int
+				(byte) 0b1000_0010, // VarInt: reference to "c"
+				(byte) 7, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0
+		);
+		NBTTagCompound first = in.readNBT();
+		assertThat(first.getInteger("a"), is(equalTo(1)));
+		assertThat(first.getCompoundTag("c").getInteger("a"), is(equalTo(2)));
+		assertThat(in.readNBT().getInteger("c"), is(equalTo(7)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNBTInvalidReference() {
+		createStream(
+				(byte) BufferConstants.NBT_DICTIONARY_NAMES,
+				(byte) 3, // int
+				(byte) 0b1000_0001, // VarInt: reference to a name that was never written
+				(byte) 1, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0
+		).readNBT();
+	}
+
+	@Test
+	public void testSkipNBTDictionaryCompoundList() {
+		MCDataOutputImpl out = new MCDataOutputImpl(4);
+		out.writeNBT(sampleNBT(), BufferConstants.NBT_DICTIONARY_NAMES);
+		out.writeNBT(sampleNBT(), BufferConstants.NBT_DICTIONARY_NAMES);
+
+		AbstractMCDataInput in = createStream(out.toByteArray());
+		in.skipNBT();
+		assertThat(in.readNBT(), is(equalTo(sampleNBT())));
+		assertThat(in.available(), is(equalTo(0)));
+	}
+
+	private static void writeVanillaString(MCDataOutput out, String s) {
+		out.writeShort(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			out.writeByte(s.charAt(i));
+		}
+	}
+
+	final AbstractMCDataInput minusOneStream() {
 		return createStream(
 				(byte) 0b0111_1111, // VarInt: -1
 				(byte) 0b0111_1111,
@@ -1,5 +1,7 @@
 package de.take_weiland.mods.commons.net;
 
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
 import org.junit.Test;
 
 import static de.take_weiland.mods.commons.net.MCDataInputTest.leArr;
@@ -14,11 +16,11 @@ import static org.junit.Assert.assertThat;
  */
 public class MCDataOutputTest {
 
-	MCDataOutputImpl newStream() {
+	AbstractMCDataOutput newStream() {
         return new MCDataOutputImpl(64);
     }
 
-	MCDataOutputImpl newStream(int cap) {
+	AbstractMCDataOutput newStream(int cap) {
         return new MCDataOutputImpl(cap);
     }
 	@Test
@@ -40,28 +42,28 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testByte() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeByte(0b0100_1101);
 		assertArrayEquals(new byte[] { (byte) 0b0100_1101 }, stream.toByteArray());
 	}
 
 	@Test
 	public void testShort() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeShort(0x77D0);
 		assertArrayEquals(new byte[] { (byte) 0xD0, (byte) 0x77 }, stream.toByteArray());
 	}
 
 	@Test
 	public void testInt() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeInt(0x77D0_FA34);
 		assertArrayEquals(new byte[] { (byte) 0x34, (byte) 0xFA, (byte) 0xD0, (byte) 0x77 }, stream.toByteArray());
 	}
 
 	@Test
 	public void testLong() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeLong(0x77D0_FA34_4508_E044L);
 		assertArrayEquals(new byte[] {
 				(byte) 0x44,
@@ -77,28 +79,28 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testChar() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeChar(0x77D0);
 		assertArrayEquals(new byte[] { (byte) 0xD0, (byte) 0x77 }, stream.toByteArray());
 	}
 
 	@Test
 	public void testFloat() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeFloat(3.5f);
 		assertArrayEquals(leArr(Float.floatToRawIntBits(3.5f)), stream.toByteArray());
 	}
 
 	@Test
 	public void testDouble() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeDouble(3.5);
 		assertArrayEquals(leArr(Double.doubleToRawLongBits(3.5)), stream.toByteArray());
 	}
 
 	@Test
 	public void testBytes() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeBytes(new byte[] { 77, (byte) 0xFE, (byte) 0xAA }, 1, 2);
 		assertArrayEquals(new byte[] {
 				(byte) 0b1000_0010,
@@ -109,7 +111,7 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testShorts() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeShorts(new short[] { 1234, 0x45_FE, 0x21_90 }, 1, 2);
 		assertArrayEquals(new byte[] {
 				(byte) 0b1000_0010,
@@ -122,7 +124,7 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testInts() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeInts(new int[] { 12345, 0x45FE_2190, 0x6070_34AB }, 1, 2);
 		assertArrayEquals(new byte[] {
 				(byte) 0b1000_0010,
@@ -139,7 +141,7 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testLongs() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeLongs(new long[] { 12345L, 0x45FE_2190_6070_34ABL, 0xA412_B5E0_77A3_220FL }, 1, 2);
 		assertArrayEquals(new byte[] {
 				(byte) 0b1000_0010,
@@ -165,7 +167,7 @@ public class MCDataOutputTest {
 
 	@Test
 	public void testBooleans() {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeBooleans(new boolean[] { true, false, true, true, false, true, false, false, false, true }, 1, 9);
 		byte[] expected = {
 				(byte) 0b1000_1001,
@@ -206,8 +208,249 @@ public class MCDataOutputTest {
 		assertThat(varIntBytes(0b1_0000000_0000000), is(equalTo(expected)));
 	}
 
+	@Test
+	public void testVarLong() {
+		AbstractMCDataOutput stream = newStream();
+		stream.writeVarLong(1L << 35);
+		byte[] expected = {
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b1000_0001
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+
+		stream = newStream();
+		stream.writeVarLong(-1L);
+		assertThat(stream.length(), is(equalTo(10)));
+	}
+
+	@Test
+	public void testSignedVarInt() {
+		AbstractMCDataOutput stream = newStream();
+		stream.writeSignedVarInt(0);
+		stream.writeSignedVarInt(-1);
+		stream.writeSignedVarInt(1);
+		stream.writeSignedVarInt(-64);
+		stream.writeSignedVarLong(-2L);
+		byte[] expected = {
+				(byte) 0b1000_0000,
+				(byte) 0b1000_0001,
+				(byte) 0b1000_0010,
+				(byte) 0b1111_1111,
+				(byte) 0b1000_0011
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testVarInts() {
+		AbstractMCDataOutput stream = newStream(1);
+		stream.writeVarInts(new int[] { 1, 0xFF, 0 });
+		stream.writeVarInts(null);
+		byte[] expected = {
+				(byte) 0b1000_0011, // length
+				(byte) 0b1000_0001,
+				(byte) 0b0111_1111,
+				(byte) 0b1000_0001,
+				(byte) 0b1000_0000,
+
+				(byte) 0b0111_1111, // VarInt: -1
+				(byte) 0b0111_1111,
+				(byte) 0b0111_1111,
+				(byte) 0b0111_1111,
+				(byte) 0b1000_1111
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testVarLongsPortion() {
+		AbstractMCDataOutput stream = newStream(1);
+		stream.writeVarLongs(new long[] { 5, 1L << 35, 7 }, 1, 1);
+		byte[] expected = {
+				(byte) 0b1000_0001, // length
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b0000_0000,
+				(byte) 0b1000_0001
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testIntsDelta() {
+		int[] prev = new int[16];
+		int[] cur = prev.clone();
+		cur[2] = 0x01020304;
+		cur[3] = 5;
+		cur[15] = -1;
+		AbstractMCDataOutput stream = newStream(1);
+		stream.writeIntsDelta(cur, prev);
+		byte[] expected = {
+				(byte) 0b1010_0001, // VarInt: 16 << 1 | 1
+				(byte) 0b1000_0010, // 2 runs
+				(byte) 0b1000_0010, // skip 2
+				(byte) 0b1000_0010, // 2 changed
+				0x04, 0x03, 0x02, 0x01,
+				0x05, 0x00, 0x00, 0x00,
+				(byte) 0b1000_1011, // skip 11
+				(byte) 0b1000_0001, // 1 changed
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testIntsDeltaFull() {
+		AbstractMCDataOutput stream = newStream(1);
+		stream.writeIntsDelta(new int[] { 1, 2 }, new int[] { 3, 4 });
+		stream.writeIntsDelta(new int[] { 1 }, null);
+		byte[] expected = {
+				(byte) 0b1000_0100, // VarInt: 2 << 1
+				0x01, 0x00, 0x00, 0x00,
+				0x02, 0x00, 0x00, 0x00,
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				0x01, 0x00, 0x00, 0x00
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testCompactStringLatin1() {
+		AbstractMCDataOutput stream = newStream();
+		stream.writeCompactString("ab\u00e4");
+		byte[] expected = {
+				(byte) 0b1000_0110, // VarInt: 3 << 1
+				'a',
+				'b',
+				(byte) 0xE4
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testCompactStringUTF8() {
+		AbstractMCDataOutput stream = newStream();
+		stream.writeCompactString("a\u20ac");
+		byte[] expected = {
+				(byte) 0b1000_1001, // VarInt: 4 << 1 | 1
+				'a',
+				(byte) 0xE2,
+				(byte) 0x82,
+				(byte) 0xAC
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testCompactStringNull() {
+		AbstractMCDataOutput stream = newStream();
+		stream.writeCompactString(null);
+		stream.writeCompactString("");
+		assertThat(stream.toByteArray(), is(equalTo(new byte[] { (byte) 0b1000_0001, (byte) 0b1000_0000 })));
+	}
+
+	@Test
+	public void testNBTLegacyByDefault() {
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("a", 5);
+		AbstractMCDataOutput stream = newStream();
+		stream.writeNBT(nbt);
+		byte[] expected = {
+				3, // int
+				(byte) 0b1000_0001, // VarInt: 1
+				'a', 0,
+				5, 0, 0, 0,
+				0
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testNBTCompactNames() {
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("a", 5);
+		AbstractMCDataOutput stream = newStream();
+		stream.writeNBT(nbt, BufferConstants.NBT_COMPACT_NAMES);
+		byte[] expected = {
+				BufferConstants.NBT_COMPACT_NAMES,
+				3, // int
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				'a',
+				5, 0, 0, 0,
+				0
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testNBTDictionaryNames() {
+		NBTTagCompound inner = new NBTTagCompound();
+		inner.setInteger("x", 1);
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("x", inner);
+		AbstractMCDataOutput stream = newStream();
+		stream.writeNBT(nbt, BufferConstants.NBT_DICTIONARY_NAMES);
+		byte[] expected = {
+				BufferConstants.NBT_DICTIONARY_NAMES,
+				BufferConstants.NBT_COMPOUND_ID,
+				(byte) 0b1000_0000, // VarInt: inline name
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				'x',
+				3, // int
+				(byte) 0b1000_0001, // VarInt: reference to "x"
+				1, 0, 0, 0,
+				0,
+				0
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testNBTDictionaryCompoundList() {
+		NBTTagList list = new NBTTagList();
+		for (int i = 1; i <= 2; i++) {
+			NBTTagCompound element = new NBTTagCompound();
+			element.setInteger("x", i);
+			list.appendTag(element);
+		}
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("l", list);
+		AbstractMCDataOutput stream = newStream();
+		stream.writeNBT(nbt, BufferConstants.NBT_DICTIONARY_NAMES);
+		byte[] expected = {
+				BufferConstants.NBT_DICTIONARY_NAMES,
+				BufferConstants.NBT_LIST_ID,
+				(byte) 0b1000_0000, // VarInt: inline name
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				'l',
+				BufferConstants.NBT_COMPOUND_ID,
+				2, 0, 0, 0,
+
+				3, // int
+				(byte) 0b1000_0000, // VarInt: inline name
+				(byte) 0b1000_0010, // VarInt: 1 << 1
+				'x',
+				1, 0, 0, 0,
+				0,
+
+				3, // int
+				(byte) 0b1000_0010, // VarInt: reference to "x"
+				2, 0, 0, 0,
+				0,
+
+				0
+		};
+		assertThat(stream.toByteArray(), is(equalTo(expected)));
+	}
+
 	private byte[] varIntBytes(int i) {
-		MCDataOutputImpl stream = newStream();
+		AbstractMCDataOutput stream = newStream();
 		stream.writeVarInt(i);
 		return stream.toByteArray();
 	}